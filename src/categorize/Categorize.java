@@ -1,10 +1,26 @@
 package categorize;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import categorize.Examinator.Operations;
+import utils.categorize.ParsedUnitCache;
+import utils.categorize.SpecIndex;
 import utils.commons.Constants;
 import utils.commons.GenerateResult;
+import utils.commons.MetricsRegistry;
+import utils.commons.Workspace;
 import utils.datastructure.Nonconformance;
 
 /**
@@ -13,8 +29,22 @@ import utils.datastructure.Nonconformance;
  */
 public class Categorize {
 
+	// Examined together on the invariant and constraint nonconformances.
+	private static final Set<Operations> NULL_OR_WEAK_PRECONDITION = Collections.unmodifiableSet(
+			EnumSet.of(Operations.ISNT_NULL_RELATED, Operations.REQUIRES_TRUE, Operations.ATR_MOD, Operations.ENSURES_TRUE));
 	private Examinator examine; 
+	private ParsedUnitCache parsedUnits = new ParsedUnitCache(Constants.PARSED_UNITS, Constants.CATEGORIZE_WORKERS);
+	private SpecIndex specs;
 	private List<String> methodsList;
+	private Workspace workspace;
+	private ExecutorService background;
+	private List<Future<?>> pending = new ArrayList<Future<?>>();
+	// Compared by identity, distinct objects may have the same identifier. Each one is mapped
+	// to the test that revealed it when it was categorized.
+	private Map<Nonconformance, String> categorized = Collections.synchronizedMap(
+			new IdentityHashMap<Nonconformance, String>());
+	// Informed by the threads that categorize, while new listeners may be added.
+	private List<CategorizeListener> categorizeListeners = new CopyOnWriteArrayList<CategorizeListener>();
 	
 	public enum Cause {
 		STRONG_PRE("Strong Precondition"), WEAK_PRE("Weak Precondition"), STRONG_POST("Strong Postcondition"), 
@@ -32,77 +62,263 @@ public class Categorize {
 		}
 	}
 	
+	/**
+	 * The constructor of this class, receives the workspace of the execution whose
+	 * nonconformances will be categorized.
+	 * @param workspace - The workspace of the current execution.
+	 */
+	public Categorize(Workspace workspace){
+		this.workspace = workspace;
+	}
+	
 	/**
 	 * Method that receives the set of nonconformances, and the source folder and returns a set of 
 	 * nonconformances with category and likely cause. This is the principal method of the Categorize 
 	 * module, because in this method we categorize all nonconformances discovered in Detect module.
+	 * The nonconformances already categorized in background are not categorized again, and the
+	 * others are categorized at the same time by a pool of threads. The time spent is recorded, 
+	 * with the other metrics of the execution, into the workspace.
 	 * @param errors - The set of nonconformances detected by the Detect module.
 	 * @param sourceFolder - The source folder of the SUT.
 	 * @return a set of nonconformances with categories and likely causes.
 	 */
 	public Set<Nonconformance> categorize(Set<Nonconformance> errors, String sourceFolder){
-		this.examine = new Examinator(sourceFolder);
-		this.methodsList = this.examine.generatePossibleMethodsList(Constants.CLASSES);
-		for(Nonconformance n : errors){
-			switch (n.getType()) {
-			case PRECONDITION:
-				n.setLineNumberOnTestThatRevealsNC();
-				n.setPackageAndClassCalling();
-				n.setMethodCalling(sourceFolder);
-				n.setCause(categorizePrecondition(n, sourceFolder));
-				n.setSampleLineOfError();
-				n.setStackTraceOrder(this.methodsList);
-				n.setTestCaseCode(this.examine.showsMethodCode(n));
-				break;
-				
-			case POSTCONDITION:
-				n.setLineNumberOnTestThatRevealsNC();
-				n.setPackageAndClassCalling();
-				n.setMethodCalling(sourceFolder);
-				n.setCause(categorizePostcondition(n, sourceFolder));
-				n.setSampleLineOfError();
-				n.setStackTraceOrder(this.methodsList);
-				n.setTestCaseCode(this.examine.showsMethodCode(n));
-				break;
-
-			case INVARIANT:
-				n.setLineNumberOnTestThatRevealsNC();
-				n.setPackageAndClassCalling();
-				n.setMethodCalling(sourceFolder);
-				n.setCause(categorizeInvariant(n, sourceFolder));
-				n.setSampleLineOfError();
-				n.setStackTraceOrder(this.methodsList);
-				n.setTestCaseCode(this.examine.showsMethodCode(n));
-				break;
-				
-			case CONSTRAINT:
-				n.setLineNumberOnTestThatRevealsNC();
-				n.setPackageAndClassCalling();
-				n.setMethodCalling(sourceFolder);
-				n.setCause(categorizeConstraint(n, sourceFolder));
-				n.setSampleLineOfError();
-				n.setStackTraceOrder(this.methodsList);
-				n.setTestCaseCode(this.examine.showsMethodCode(n));
-				break;
-				
-			case EVALUATION:
-				n.setLineNumberOnTestThatRevealsNC();
-				n.setPackageAndClassCalling();
-				n.setMethodCalling(sourceFolder);
-				n.setCause(categorizeEvaluation(n, sourceFolder));				
-				n.setSampleLineOfError();
-				n.setStackTraceOrder(this.methodsList);
-				n.setTestCaseCode(this.examine.showsMethodCode(n));
-				break;
-				
-			default:
-				break;
-			}
+		MetricsRegistry metrics = this.workspace.getMetrics();
+		MetricsRegistry.Timer timer = metrics.start("categorize");
+		awaitBackground();
+		categorizeInParallel(errors, sourceFolder);
+		GenerateResult.generateResult(errors, this.workspace);
+		metrics.setCount("parsedUnitHits", this.parsedUnits.getHits());
+		metrics.setCount("parsedUnitMisses", this.parsedUnits.getMisses());
+		if(this.specs != null){
+			this.specs.save();
+			metrics.setCount("specsReindexed", this.specs.getReindexed());
 		}
-		GenerateResult.generateResult(errors);
+		timer.stop(true);
+		metrics.write(this.workspace);
 		return errors;
 	}
 	
+	/**
+	 * Method that categorizes a nonconformance in background, as soon as it is detected. The
+	 * listeners of Categorize are informed when it is categorized.
+	 * @param n - The nonconformance detected.
+	 * @param sourceFolder - The source folder of the SUT.
+	 */
+	public void categorizeInBackground(final Nonconformance n, final String sourceFolder){
+		// Only the list of pending tasks is locked, so the caller never waits a categorization.
+		synchronized (this.pending) {
+			if(this.background == null)
+				this.background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "jmlok-categorize");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+			this.pending.add(this.background.submit(new Runnable() {
+				@Override
+				public void run() {
+					categorize(n, sourceFolder);
+				}
+			}));
+		}
+	}
+	
+	/**
+	 * Method that categorizes many nonconformances at the same time, each one with its own
+	 * context of examination, and waits the end of all of them.
+	 * @param errors - The nonconformances to be categorized.
+	 * @param sourceFolder - The source folder of the SUT.
+	 */
+	private void categorizeInParallel(Set<Nonconformance> errors, final String sourceFolder){
+		if(errors.isEmpty())
+			return;
+		prepare(sourceFolder);
+		int workers = Math.max(1, Math.min(Constants.CATEGORIZE_WORKERS, errors.size()));
+		if(workers == 1){
+			for(Nonconformance n : errors)
+				categorize(n, sourceFolder);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+			private int count = 0;
+			
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "jmlok-categorize-" + (++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+		for(final Nonconformance n : errors){
+			tasks.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					categorize(n, sourceFolder);
+				}
+			}));
+		}
+		try {
+			for(Future<?> task : tasks){
+				try {
+					task.get();
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Method that waits the end of the categorizations made in background.
+	 */
+	private void awaitBackground(){
+		List<Future<?>> tasks;
+		synchronized (this.pending) {
+			tasks = new ArrayList<Future<?>>(this.pending);
+			this.pending.clear();
+		}
+		for(Future<?> task : tasks){
+			try {
+				task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Method that categorizes a single nonconformance, giving its likely cause. A nonconformance
+	 * already categorized is left as it is, since its stack trace order would be appended again,
+	 * unless the test that reveals it was changed since then by the registry of the Detect module.
+	 * Distinct nonconformances may be categorized at the same time.
+	 * @param n - The nonconformance to be categorized.
+	 * @param sourceFolder - The source folder of the SUT.
+	 * @return the nonconformance categorized.
+	 */
+	public Nonconformance categorize(Nonconformance n, String sourceFolder){
+		prepare(sourceFolder);
+		// The same nonconformance is categorized by one thread at a time.
+		synchronized (n) {
+			String test = n.getTestFile() + "." + n.getNumberedTest();
+			if(test.equals(this.categorized.get(n)))
+				return n;
+			categorizeUnchecked(n, sourceFolder);
+			this.categorized.put(n, test);
+		}
+		triggersEvent(n);
+		return n;
+	}
+	
+	/**
+	 * Method that creates, on the first categorization, the objects shared by all categorizations:
+	 * the index of the specifications of the SUT, the Examinator and the list of its methods.
+	 * @param sourceFolder - The source folder of the SUT.
+	 */
+	private synchronized void prepare(String sourceFolder){
+		if(this.examine == null){
+			this.specs = new SpecIndex(sourceFolder, this.workspace);
+			this.specs.update(this.parsedUnits, Constants.PRELOAD_UNITS);
+			this.examine = new Examinator(sourceFolder, this.workspace, this.parsedUnits, this.specs);
+			this.methodsList = Collections.unmodifiableList(this.examine.generatePossibleMethodsList(this.workspace.getClasses()));
+		}
+	}
+	
+	/**
+	 * Method that gives the likely cause of a nonconformance, whatever it was categorized before.
+	 * @param n - The nonconformance to be categorized.
+	 * @param sourceFolder - The source folder of the SUT.
+	 */
+	private void categorizeUnchecked(Nonconformance n, String sourceFolder){
+		long start = System.nanoTime();
+		switch (n.getType()) {
+		case PRECONDITION:
+			n.setLineNumberOnTestThatRevealsNC();
+			n.setPackageAndClassCalling();
+			n.setMethodCalling(sourceFolder);
+			n.setCause(categorizePrecondition(n, sourceFolder));
+			n.setSampleLineOfError(this.workspace);
+			n.setStackTraceOrder(this.methodsList);
+			n.setTestCaseCode(this.examine.showsMethodCode(n));
+			break;
+			
+		case POSTCONDITION:
+			n.setLineNumberOnTestThatRevealsNC();
+			n.setPackageAndClassCalling();
+			n.setMethodCalling(sourceFolder);
+			n.setCause(categorizePostcondition(n, sourceFolder));
+			n.setSampleLineOfError(this.workspace);
+			n.setStackTraceOrder(this.methodsList);
+			n.setTestCaseCode(this.examine.showsMethodCode(n));
+			break;
+
+		case INVARIANT:
+			n.setLineNumberOnTestThatRevealsNC();
+			n.setPackageAndClassCalling();
+			n.setMethodCalling(sourceFolder);
+			n.setCause(categorizeInvariant(n, sourceFolder));
+			n.setSampleLineOfError(this.workspace);
+			n.setStackTraceOrder(this.methodsList);
+			n.setTestCaseCode(this.examine.showsMethodCode(n));
+			break;
+			
+		case CONSTRAINT:
+			n.setLineNumberOnTestThatRevealsNC();
+			n.setPackageAndClassCalling();
+			n.setMethodCalling(sourceFolder);
+			n.setCause(categorizeConstraint(n, sourceFolder));
+			n.setSampleLineOfError(this.workspace);
+			n.setStackTraceOrder(this.methodsList);
+			n.setTestCaseCode(this.examine.showsMethodCode(n));
+			break;
+			
+		case EVALUATION:
+			n.setLineNumberOnTestThatRevealsNC();
+			n.setPackageAndClassCalling();
+			n.setMethodCalling(sourceFolder);
+			n.setCause(categorizeEvaluation(n, sourceFolder));				
+			n.setSampleLineOfError(this.workspace);
+			n.setStackTraceOrder(this.methodsList);
+			n.setTestCaseCode(this.examine.showsMethodCode(n));
+			break;
+			
+		default:
+			break;
+		}
+		this.workspace.getMetrics().recordLatency(String.valueOf(n.getType()), System.nanoTime() - start);
+	}
+	
+	/**
+	 * Informs the listeners of Categorize that a nonconformance was categorized.
+	 * @param n - The nonconformance categorized.
+	 */
+	private void triggersEvent(Nonconformance n){
+		CategorizeEvent e = new CategorizeEvent(this, n);
+		for(CategorizeListener l : this.categorizeListeners){
+			l.categorizedNonconformance(e);
+		}
+	}
+	
+	public synchronized void addCategorizeListener(CategorizeListener l) {
+		if (!this.categorizeListeners.contains(l)) {
+			this.categorizeListeners.add(l);
+		}
+	}
+
+	public synchronized void removeCategorizeListener(CategorizeListener l) {
+		this.categorizeListeners.remove(l);
+	}
+	
 	/**
 	 * Method that returns a likely cause for a nonconformance of precondition. Receives a test 
 	 * error - the nonconformance - and the source folder that contains the class that has a nonconformance.
@@ -111,12 +327,9 @@ public class Categorize {
 	 * @return the string that corresponds the likely cause for this precondition error.
 	 */
 	private String categorizePrecondition(Nonconformance e, String sourceFolder){
-		if(e.getPackageName() == "")
-			this.examine.setPrincipalClassName(e.getClassName());
-		else
-			this.examine.setPrincipalClassName(e.getPackageName() + "." + e.getClassName());
-		this.examine.setMethodCalling(e.getMethodCalling());
-		if(this.examine.checkStrongPrecondition(e.getMethodName())) 
+		String classInvolved = (e.getPackageName() == "") ? e.getClassName() : (e.getPackageName() + "." + e.getClassName());
+		ExaminationContext context = this.examine.newContext(classInvolved, e.getMethodCalling());
+		if(this.examine.checkStrongPrecondition(context, e.getMethodName())) 
 			return Cause.STRONG_PRE.getName();
 		else 
 			return Cause.WEAK_POST.getName();
@@ -130,12 +343,9 @@ public class Categorize {
 	 * @return the string that corresponds the likely cause for this postcondition error.
 	 */
 	private String categorizePostcondition(Nonconformance e, String sourceFolder){
-		if(e.getPackageName() == "")
-			this.examine.setPrincipalClassName(e.getClassName());
-		else
-			this.examine.setPrincipalClassName(e.getPackageName() + "." + e.getClassName());
-		this.examine.setMethodCalling(e.getMethodCalling());
-		if(this.examine.checkWeakPrecondition(e.getMethodName()))
+		String classInvolved = (e.getPackageName() == "") ? e.getClassName() : (e.getPackageName() + "." + e.getClassName());
+		ExaminationContext context = this.examine.newContext(classInvolved, e.getMethodCalling());
+		if(this.examine.checkWeakPrecondition(context, e.getMethodName()))
 			return Cause.WEAK_PRE.getName();
 		else
 			return Cause.STRONG_POST.getName();
@@ -149,24 +359,22 @@ public class Categorize {
 	 * @return the string that corresponds the likely cause for this invariant error.
 	 */
 	private String categorizeInvariant(Nonconformance e, String sourceFolder){
-		if(e.getPackageName() == "")
-			this.examine.setPrincipalClassName(e.getClassName());
-		else 
-			this.examine.setPrincipalClassName(e.getPackageName() + "." + e.getClassName());
-		this.examine.setMethodCalling(e.getMethodCalling());
+		String classInvolved = (e.getPackageName() == "") ? e.getClassName() : (e.getPackageName() + "." + e.getClassName());
+		ExaminationContext context = this.examine.newContext(classInvolved, e.getMethodCalling());
 		if(!e.getMethodCalling().contains("<init>") && !e.getMethodCalling().contains("defaultConstructor")){
 			if(e.getErrorMessage().contains("@pre") || e.getErrorMessage().contains("<clinit>"))
 				return Cause.NULL_RELATED.getName();
 			else{
-				if(this.examine.checkWeakPrecondition(e.getMethodName()))
+				if(this.examine.checkWeakPrecondition(context, e.getMethodName()))
 					return Cause.WEAK_PRE.getName();
 				else
 					return Cause.STRONG_INV.getName();
 			}
 		}else{
-			if(this.examine.checkNull(e.getMethodName())) 
+			EnumSet<Operations> verdict = this.examine.examine(context, e.getMethodName(), NULL_OR_WEAK_PRECONDITION);
+			if(!verdict.contains(Operations.ISNT_NULL_RELATED)) 
 				return Cause.NULL_RELATED.getName();
-			else if(this.examine.checkWeakPrecondition(e.getMethodName())) 
+			else if(!Collections.disjoint(verdict, Examinator.WEAK_PRECONDITION)) 
 				return Cause.WEAK_PRE.getName();
 			else 
 				return Cause.STRONG_INV.getName();
@@ -185,11 +393,11 @@ public class Categorize {
 							   ((e.getPackageName() == "") ? (e.getClassName())
 							 : (e.getPackageName() + "." + e.getClassName()))
 							 : (e.getPackageAndClassCalling());
-		this.examine.setPrincipalClassName(classInvolved);
-		this.examine.setMethodCalling(e.getMethodCalling());
-		if(this.examine.checkNull(e.getMethodName())) 
+		ExaminationContext context = this.examine.newContext(classInvolved, e.getMethodCalling());
+		EnumSet<Operations> verdict = this.examine.examine(context, e.getMethodName(), NULL_OR_WEAK_PRECONDITION);
+		if(!verdict.contains(Operations.ISNT_NULL_RELATED)) 
 			return Cause.NULL_RELATED.getName();
-		else if(this.examine.checkWeakPrecondition(e.getMethodName())) 
+		else if(!Collections.disjoint(verdict, Examinator.WEAK_PRECONDITION)) 
 			return Cause.WEAK_PRE.getName();
 		else 
 			return Cause.STRONG_CONST.getName();
@@ -203,12 +411,9 @@ public class Categorize {
 	 * @return the string that corresponds the likely cause for this evaluation error.
 	 */
 	private String categorizeEvaluation(Nonconformance e, String sourceFolder){
-		if(e.getPackageName() == "")
-			this.examine.setPrincipalClassName(e.getClassName());
-		else
-			this.examine.setPrincipalClassName(e.getPackageName() + "." + e.getClassName());
-		this.examine.setMethodCalling(e.getMethodCalling());
-		if(this.examine.checkWeakPrecondition(e.getMethodName()))
+		String classInvolved = (e.getPackageName() == "") ? e.getClassName() : (e.getPackageName() + "." + e.getClassName());
+		ExaminationContext context = this.examine.newContext(classInvolved, e.getMethodCalling());
+		if(this.examine.checkWeakPrecondition(context, e.getMethodName()))
 			return Cause.WEAK_PRE.getName();
 		else
 			return Cause.STRONG_POST.getName();
@@ -0,0 +1,33 @@
+package categorize;
+
+import utils.datastructure.Nonconformance;
+
+/**
+ * Event class used to define events thrown by Categorize.
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class CategorizeEvent extends java.util.EventObject {
+
+	private static final long serialVersionUID = 1L;
+	private transient Nonconformance nonconformance;
+
+	/**
+	 * Creates an event about a nonconformance categorized.
+	 * @param source the Categorize that categorized the nonconformance.
+	 * @param nonconformance the nonconformance categorized.
+	 */
+	public CategorizeEvent(Categorize source, Nonconformance nonconformance) {
+		super(source);
+		this.nonconformance = nonconformance;
+	}
+
+	/**
+	 * Get the nonconformance categorized.
+	 * @return the nonconformance categorized.
+	 */
+	public Nonconformance getNonconformance() {
+		return nonconformance;
+	}
+
+}
@@ -0,0 +1,16 @@
+package categorize;
+
+/**
+ * Listener used to define events thrown by Categorize.
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public interface CategorizeListener extends java.util.EventListener {
+
+	/**
+	 * Called for each nonconformance as soon as it is categorized.
+	 * @param e the event, whose nonconformance is the one categorized.
+	 */
+	void categorizedNonconformance(CategorizeEvent e);
+
+}
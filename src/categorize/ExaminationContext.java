@@ -0,0 +1,90 @@
+package categorize;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Class used to keep the state of the examination of a single nonconformance,
+ * so that many nonconformances may be examined at the same time by the same
+ * Examinator. Each context must be used by one thread at a time.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ *
+ */
+public class ExaminationContext {
+
+	private String principalClassName = "";
+	private String methodCalling = "";
+	private Set<String> variables = new LinkedHashSet<String>();
+	private boolean isAllVarUpdated = false;
+
+	/**
+	 * The constructor of this class.
+	 * @param principalClassName the complete name of the principal class examined.
+	 * @param methodCalling the method calling identifier.
+	 */
+	ExaminationContext(String principalClassName, String methodCalling) {
+		this.principalClassName = principalClassName;
+		this.methodCalling = methodCalling;
+	}
+
+	/**
+	 * Get the complete name of the principal class examined.
+	 * @return the complete name of the principal class examined.
+	 */
+	String getPrincipalClassName() {
+		return principalClassName;
+	}
+
+	/**
+	 * Get the method calling identifier.
+	 * @return the method calling identifier.
+	 */
+	String getMethodCalling() {
+		return methodCalling;
+	}
+
+	/**
+	 * Set the method calling identifier.
+	 * @param methodCalling the method calling identifier.
+	 */
+	void setMethodCalling(String methodCalling) {
+		this.methodCalling = methodCalling;
+	}
+
+	/**
+	 * Get the fields of the principal class and of the classes related to it
+	 * already examined, without the ones found initialized by the null related
+	 * examination.
+	 * @return the names of the fields.
+	 */
+	Set<String> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Change the fields of the principal class, forgetting the fields of the
+	 * classes related to it.
+	 * @param variables the names of the fields of the principal class.
+	 */
+	void resetVariables(Set<String> variables) {
+		this.variables = variables;
+		this.isAllVarUpdated = false;
+	}
+
+	/**
+	 * Verify if the fields of all superclasses were already added.
+	 * @return true if the fields of all superclasses were added.
+	 */
+	boolean isAllVarUpdated() {
+		return isAllVarUpdated;
+	}
+
+	/**
+	 * Change if the fields of all superclasses were already added.
+	 * @param isAllVarUpdated true if the fields of all superclasses were added.
+	 */
+	void setAllVarUpdated(boolean isAllVarUpdated) {
+		this.isAllVarUpdated = isAllVarUpdated;
+	}
+}
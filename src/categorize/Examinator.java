@@ -1,36 +1,36 @@
 package categorize;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
-import org.jmlspecs.openjml.Factory;
-import org.jmlspecs.openjml.IAPI;
 import org.jmlspecs.openjml.JmlToken;
 import org.jmlspecs.openjml.JmlTree;
 import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
-import org.jmlspecs.openjml.JmlTree.JmlMethodClause;
-import org.jmlspecs.openjml.JmlTree.JmlMethodClauseExpr;
 import org.jmlspecs.openjml.JmlTree.JmlMethodDecl;
-import org.jmlspecs.openjml.JmlTree.JmlSingleton;
 import org.jmlspecs.openjml.JmlTree.JmlVariableDecl;
 
 import utils.categorize.AcessingTestCases;
 import utils.categorize.ClassDriver;
+import utils.categorize.ParsedUnitCache;
+import utils.categorize.SpecIndex;
 import utils.commons.Constants;
+import utils.commons.Workspace;
 import utils.datastructure.Nonconformance;
 
 import com.sun.source.tree.Tree;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCAssign;
 import com.sun.tools.javac.tree.JCTree.JCAssignOp;
-import com.sun.tools.javac.tree.JCTree.JCBinary;
 import com.sun.tools.javac.tree.JCTree.JCBlock;
 import com.sun.tools.javac.tree.JCTree.JCExpression;
 import com.sun.tools.javac.tree.JCTree.JCExpressionStatement;
-import com.sun.tools.javac.tree.JCTree.JCIdent;
 import com.sun.tools.javac.tree.JCTree.JCLiteral;
 import com.sun.tools.javac.tree.JCTree.JCMethodInvocation;
-import com.sun.tools.javac.tree.JCTree.JCParens;
 import com.sun.tools.javac.tree.JCTree.JCPrimitiveTypeTree;
 import com.sun.tools.javac.tree.JCTree.JCStatement;
 import com.sun.tools.javac.tree.JCTree.JCUnary;
@@ -45,13 +45,10 @@ import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
  */
 public class Examinator {
 	
-	private static final int INF = Integer.MAX_VALUE;
-	private static final int VAR_FALSE_VALUE = -INF;
 	private String srcDir = "";
-	private String principalClassName = "";
-	private String methodCalling = "";
-	private ArrayList<String> variables;
-	private boolean isAllVarUpdated = false;
+	private Workspace workspace;
+	private ParsedUnitCache parsedUnits;
+	private SpecIndex specs;
 	
 	/**
 	 * Declares some constants that will be used in Examinator for indicate which verification
@@ -64,38 +61,58 @@ public class Examinator {
 	}
 	
 	/**
-	 * Constructs an PatternsTool object with the directory of the source project paste.
+	 * The operations whose fulfillment indicates a precondition too weak.
+	 */
+	public static final Set<Operations> WEAK_PRECONDITION = Collections.unmodifiableSet(
+			EnumSet.of(Operations.REQUIRES_TRUE, Operations.ATR_MOD, Operations.ENSURES_TRUE));
+	private static final Set<Operations> SPECIFICATION = Collections.unmodifiableSet(
+			EnumSet.of(Operations.ATR_VAR_IN_PRECONDITION, Operations.REQUIRES_TRUE, Operations.ENSURES_TRUE));
+	private static final Set<Operations> CODE = Collections.unmodifiableSet(
+			EnumSet.of(Operations.ATR_MOD, Operations.ISNT_NULL_RELATED));
+	// Operations also examined on the interfaces and on the jml file of a class.
+	private static final Set<Operations> DECLARED = Collections.unmodifiableSet(
+			EnumSet.of(Operations.ATR_VAR_IN_PRECONDITION, Operations.REQUIRES_TRUE));
+	
+	/**
+	 * Constructs an PatternsTool object with the directory of the source project paste,
+	 * sharing the units already parsed with other objects of the same execution.
 	 * 
 	 * @param dir
 	 *            directory of the source project paste
-	 */
-	public Examinator(String dir) {
+	 * @param workspace
+	 *            workspace of the current execution
+	 * @param parsedUnits
+	 *            units parsed by OpenJML on the current execution
+	 * @param specs
+	 *            specifications of the classes of the source project, already updated
+	 */
+	public Examinator(String dir, Workspace workspace, ParsedUnitCache parsedUnits, SpecIndex specs) {
 		this.srcDir = dir;
+		this.workspace = workspace;
+		this.parsedUnits = parsedUnits;
+		this.specs = specs;
 	}
 	
 	/**
-	 * Get the complete name of the principal class examined. 
-	 * @return complete name of the principal class examined.
-	 */
-	public String getPrincipalClassName() {
-		return principalClassName;
-	}
-	
-	/**
-	 * Change the principal class examined from this object.
-	 * @param principalClassName the principal class name examined from this object.
+	 * Creates the context of the examination of a nonconformance. An Examinator
+	 * may be used by many threads at the same time, each one with its own context.
+	 * @param principalClassName the complete name of the principal class examined.
+	 * @param methodCalling the method calling identifier.
+	 * @return the context of the examination.
 	 */
-	public void setPrincipalClassName(String principalClassName) {
-		this.principalClassName = principalClassName;
-		this.variables = ClassDriver.getVariablesFromClass(principalClassName);
-		this.isAllVarUpdated = false;
+	public ExaminationContext newContext(String principalClassName, String methodCalling) {
+		ExaminationContext context = new ExaminationContext(principalClassName, methodCalling);
+		resetVariables(context);
+		return context;
 	}
 	
 	/**
-	 * Declares isAllVarUpdated to default value, for class variable analysis.
+	 * Take again the fields of the principal class of a context, forgetting the fields of
+	 * the related classes and the ones found initialized.
+	 * @param context The context of the examination.
 	 */
-	public void resetIsAllVarUpdated(){
-		this.isAllVarUpdated = false;
+	private void resetVariables(ExaminationContext context) {
+		context.resetVariables(new LinkedHashSet<String>(ClassDriver.getVariablesFromClass(context.getPrincipalClassName(), this.workspace)));
 	}
 	
 	/**
@@ -151,248 +168,278 @@ public class Examinator {
 	/**
 	 * Method that add variables from superclass not added before to variables
 	 * list of the class.
+	 * @param context The context of the examination.
 	 * @param classname Name of the class desired to update the variables from.
 	 */
-	private void updateVariables(String classname) {
-		if(!classname.equals(this.getPrincipalClassName()))
-			for(String s : ClassDriver.getVariablesFromClass(classname))
-				if(!this.variables.contains(s))
-					this.variables.add(s);
-	}
-	
-	/**
-	 * Get the method calling identifier.
-	 * @return The method calling identifier.
-	 */
-	public String getMethodCalling() {
-		return methodCalling;
-	}
-	
-	/**
-	 * Set the method calling identifier.
-	 * @param methodCalling The method calling identifier.
-	 */
-	public void setMethodCalling(String methodCalling) {
-		this.methodCalling = methodCalling;
+	private void updateVariables(ExaminationContext context, String classname) {
+		if(!classname.equals(context.getPrincipalClassName()))
+			context.getVariables().addAll(ClassDriver.getVariablesFromClass(classname, this.workspace));
 	}
 	
 	/**
 	 * Checks if the Precondition clauses from a method are too strong.
+	 * @param context The context of the examination.
 	 * @param methodName Name of the method studied.
 	 * @return true if the Precondition clauses are too strong, or false.
 	 */
-	public boolean checkStrongPrecondition(String methodName){
-		this.setMethodCalling("");
-		if(methodName.equals(getOnlyClassName(this.getPrincipalClassName())))
-			methodName = "<init>";
-		try {
-			return examineJavaAndJMLCode(this.getPrincipalClassName(), methodName, false, Operations.ATR_VAR_IN_PRECONDITION);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return false;
+	public boolean checkStrongPrecondition(ExaminationContext context, String methodName){
+		return examine(context, methodName, EnumSet.of(Operations.ATR_VAR_IN_PRECONDITION)).contains(Operations.ATR_VAR_IN_PRECONDITION);
 	}
 	
 	/**
 	 * Checks if the Precondition clauses from a method are too weak.
+	 * @param context The context of the examination.
 	 * @param methodName Name of the method studied.
 	 * @return true if the Precondition clauses are too weak, false otherwise.
 	 */
-	public boolean checkWeakPrecondition(String methodName) {
-		this.setMethodCalling("");
-		if(methodName.equals(getOnlyClassName(this.getPrincipalClassName())))
-			methodName = "<init>";
-		try {
-			if(examineJavaAndJMLCode(this.getPrincipalClassName(), methodName, false, Operations.REQUIRES_TRUE))
-				return true;
-			if(examineJavaAndJMLCode(this.getPrincipalClassName(), methodName, false, Operations.ATR_MOD)) 
-				return true;
-			if(examineJavaAndJMLCode(this.getPrincipalClassName(), methodName, false, Operations.ENSURES_TRUE))
-				return true;
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return false;
+	public boolean checkWeakPrecondition(ExaminationContext context, String methodName) {
+		return !examine(context, methodName, WEAK_PRECONDITION).isEmpty();
 	}
 	
 	/**
 	 * Checks if the nonconformance where caused by some variable with null value.
+	 * @param context The context of the examination.
 	 * @param methodName Name of the method studied.
 	 * @return if the nonconformance are null-related.
 	 */
-	public boolean checkNull(String methodName){
-		this.setPrincipalClassName(this.getPrincipalClassName());
-		try {
-			if(!examineJavaAndJMLCode(this.principalClassName, "<init>", false, Operations.ISNT_NULL_RELATED)){
-				return true;
+	public boolean checkNull(ExaminationContext context, String methodName){
+		return !examine(context, methodName, EnumSet.of(Operations.ISNT_NULL_RELATED)).contains(Operations.ISNT_NULL_RELATED);
+	}
+	
+	/**
+	 * Realize all the examinations desired on a method of the principal class, walking 
+	 * the class and its related classes once for all of them. The examination 
+	 * ISNT_NULL_RELATED is done first, on the constructor of the method calling, and 
+	 * the others on all methods with the name desired, only with the fields it didn't find
+	 * initialized.
+	 * @param context The context of the examination.
+	 * @param methodName Name of the method studied.
+	 * @param operations The examinations desired.
+	 * @return the examinations whose conditions where fulfilled.
+	 */
+	public EnumSet<Operations> examine(ExaminationContext context, String methodName, Set<Operations> operations){
+		EnumSet<Operations> verdict = EnumSet.noneOf(Operations.class);
+		EnumSet<Operations> onMethod = EnumSet.noneOf(Operations.class);
+		onMethod.addAll(operations);
+		if(onMethod.remove(Operations.ISNT_NULL_RELATED)){
+			resetVariables(context);
+			try {
+				verdict.addAll(examineJavaAndJMLCode(context, context.getPrincipalClassName(), "<init>", false, EnumSet.of(Operations.ISNT_NULL_RELATED)));
+			} catch (Exception e) {
+				e.printStackTrace();
+				// A class whose code can't be examined isn't taken as null related.
+				verdict.add(Operations.ISNT_NULL_RELATED);
 			}
+			if(verdict.contains(Operations.ISNT_NULL_RELATED))
+				context.setAllVarUpdated(false);
+		}
+		if(onMethod.isEmpty())
+			return verdict;
+		context.setMethodCalling("");
+		if(methodName.equals(getOnlyClassName(context.getPrincipalClassName())))
+			methodName = "<init>";
+		try {
+			verdict.addAll(examineJavaAndJMLCode(context, context.getPrincipalClassName(), methodName, false, onMethod));
 		} catch (Exception e) {
-				e.printStackTrace();
+			e.printStackTrace();
 		}
-		this.resetIsAllVarUpdated();
-		return false;
+		return verdict;
 	}
 	
 	/**
-	 * Realize some examinations on clauses in a desired class,
-	 * and its related class, like interfaces or superclasses. 
+	 * Realize some examinations on clauses and code in a desired class,
+	 * and its related class, like interfaces or superclasses. The class and 
+	 * each of its methods are walked once for all examinations.
 	 * 
+	 * @param context The context of the examination.
 	 * @param className
 	 *            name of the class searched.
 	 * @param methodName
 	 *            name of the method searched.
 	 * @param isJMLFile
-	 * @param typeOfExamination
-	 * 			  operation desired to do on the method.
-	 * @return true if the conditions of the desired method
+	 * @param operations
+	 * 			  operations desired to do on the method.
+	 * @return the operations whose conditions of the desired method
 	 * 	          where fulfilled.
 	 * @throws Exception When the API can't be created.
 	 */
-	private boolean examineJavaAndJMLCode(String className, String methodName, boolean isJMLFile, Operations typeOfExamination) throws Exception {
-		JmlClassDecl ourClass = takeClassFromFile(getFileToInvestigate(className, isJMLFile), className);
+	private EnumSet<Operations> examineJavaAndJMLCode(ExaminationContext context, String className, String methodName, boolean isJMLFile, Set<Operations> operations) throws Exception {
+		EnumSet<Operations> verdict = EnumSet.noneOf(Operations.class);
+		EnumSet<Operations> onSpecs = only(operations, SPECIFICATION);
+		EnumSet<Operations> onCode = only(operations, CODE);
+		SpecIndex.TypeSpec ourSpecs = onSpecs.isEmpty() ? null : this.specs.getType(className, isJMLFile);
+		if(ourSpecs == null)
+			onSpecs.clear();
+		JmlClassDecl ourClass = onCode.isEmpty() ? null : takeClassFromFile(getFileToInvestigate(className, isJMLFile), className);
 		if(ourClass == null)
-			return false;
-		updateVariables(className);
-		if(!isJMLFile && examineAllClassAssociated(className, methodName, typeOfExamination))
-			return true;
-		if(isAllVarUpdated && typeOfExamination == Operations.ISNT_NULL_RELATED)
-			verifyVarInitializedOutsideMethods(ourClass);
-		return examineMethods(takeMethodsFromClass(ourClass, methodName), typeOfExamination);
+			onCode.clear();
+		if(onSpecs.isEmpty() && onCode.isEmpty())
+			return verdict;
+		updateVariables(context, className);
+		if(!isJMLFile){
+			EnumSet<Operations> pending = EnumSet.copyOf(onSpecs);
+			pending.addAll(onCode);
+			verdict.addAll(examineAllClassAssociated(context, className, methodName, pending));
+			onSpecs.removeAll(verdict);
+			onCode.removeAll(verdict);
+		}
+		if(!onSpecs.isEmpty())
+			verdict.addAll(examineMethodSpecs(context, takeMethodSpecs(context, ourSpecs, className, methodName, isJMLFile), onSpecs));
+		if(!onCode.isEmpty()){
+			if(context.isAllVarUpdated() && onCode.contains(Operations.ISNT_NULL_RELATED))
+				verifyVarInitializedOutsideMethods(context, ourClass);
+			verdict.addAll(examineMethods(context, takeMethodsFromClass(ourClass, methodName, context.getMethodCalling()), onCode));
+		}
+		return verdict;
 	}
 	
 	/**
-	 * Examine various methods to do some type of Operation.
+	 * Take the operations of a set that belong to a kind of examination.
+	 * @param operations The operations desired.
+	 * @param kind The operations of a kind of examination.
+	 * @return a new set with the operations of the kind.
+	 */
+	private static EnumSet<Operations> only(Set<Operations> operations, Set<Operations> kind){
+		EnumSet<Operations> selected = EnumSet.noneOf(Operations.class);
+		for (Operations operation : operations)
+			if(kind.contains(operation))
+				selected.add(operation);
+		return selected;
+	}
+	
+	/**
+	 * Examine the code of various methods to do some operations.
+	 * @param context The context of the examination.
 	 * @param ourMethods The methods selected for examination.
-	 * @param typeOfExamination Type of examination.
-	 * @return true If the specified examination returns true.
+	 * @param operations Types of examination.
+	 * @return the operations fulfilled by some method.
 	 * @throws Exception When the code were bad formulated.
 	 */
-	private boolean examineMethods(List<JmlMethodDecl> ourMethods, Operations typeOfExamination) throws Exception{
+	private EnumSet<Operations> examineMethods(ExaminationContext context, List<JmlMethodDecl> ourMethods, Set<Operations> operations) throws Exception{
+		EnumSet<Operations> verdict = EnumSet.noneOf(Operations.class);
 		if(ourMethods != null){
 			for (JmlMethodDecl anMethod : ourMethods) {
-				if(typeOfExamination == Operations.ATR_MOD || typeOfExamination == Operations.ISNT_NULL_RELATED){
-					if(examineCodeFromMethod(anMethod, typeOfExamination))
-						return true;
-				}if (anMethod.cases != null){
-					if(typeOfExamination == Operations.ATR_VAR_IN_PRECONDITION || typeOfExamination == Operations.REQUIRES_TRUE || typeOfExamination == Operations.ENSURES_TRUE){ 
-						if(examineSpecifiedPrePostClause(typeOfExamination, anMethod,anMethod.cases.cases.head.clauses))
-							return true;
-					}
-				}else if(typeOfExamination == Operations.REQUIRES_TRUE){
-					return true;
-				}
+				if(anMethod.body == null)
+					continue;
+				if(operations.contains(Operations.ATR_MOD) && isSomeVarOtAtrGettingAttribution(context, anMethod.params, anMethod.body))
+					verdict.add(Operations.ATR_MOD);
+				if(operations.contains(Operations.ISNT_NULL_RELATED) && isAllVariableInitialized(context, anMethod.body))
+					verdict.add(Operations.ISNT_NULL_RELATED);
+				if(verdict.size() == operations.size())
+					break;
 			}
 		}
-		if(typeOfExamination == Operations.ISNT_NULL_RELATED)
-			return this.variables.isEmpty();
-		return false;
+		if(operations.contains(Operations.ISNT_NULL_RELATED) && context.getVariables().isEmpty())
+			verdict.add(Operations.ISNT_NULL_RELATED);
+		return verdict;
+	}
+	
+	/**
+	 * Examine the specifications of various methods to do some operations.
+	 * @param context The context of the examination.
+	 * @param ourMethods The specifications of the methods selected for examination.
+	 * @param operations Types of examination.
+	 * @return the operations fulfilled by some method.
+	 */
+	private EnumSet<Operations> examineMethodSpecs(ExaminationContext context, List<SpecIndex.MethodSpec> ourMethods, Set<Operations> operations) {
+		EnumSet<Operations> verdict = EnumSet.noneOf(Operations.class);
+		for (SpecIndex.MethodSpec anMethod : ourMethods) {
+			if (anMethod.isSpecified())
+				verdict.addAll(examineSpecifiedPrePostClause(context, operations, anMethod));
+			else if(operations.contains(Operations.REQUIRES_TRUE))
+				verdict.add(Operations.REQUIRES_TRUE);
+			if(verdict.size() == operations.size())
+				break;
+		}
+		return verdict;
+	}
+	
+	/**
+	 * Take the specifications of all methods with the name desired from an class, whose declaration
+	 * is the method calling line. When the line is not a declaration, it is searched on the code.
+	 * @param context The context of the examination.
+	 * @param ourClass The specifications of the class.
+	 * @param className Name of the class.
+	 * @param methodName The name of the method desired.
+	 * @param isJMLFile If the specifications are from the jml file.
+	 * @return An list of specifications of the methods found.
+	 */
+	private List<SpecIndex.MethodSpec> takeMethodSpecs(ExaminationContext context, SpecIndex.TypeSpec ourClass, String className, String methodName, boolean isJMLFile){
+		List<SpecIndex.MethodSpec> methods = ourClass.findMethods(methodName, context.getMethodCalling());
+		if(methods != null)
+			return methods;
+		methods = new ArrayList<SpecIndex.MethodSpec>();
+		List<SpecIndex.MethodSpec> candidates = ourClass.getMethods(methodName);
+		JmlClassDecl clazz = takeClassFromFile(getFileToInvestigate(className, isJMLFile), className);
+		if(clazz != null)
+			for (int ordinal : this.parsedUnits.getMethodIndex(clazz).findOrdinals(methodName, context.getMethodCalling()))
+				if(ordinal < candidates.size())
+					methods.add(candidates.get(ordinal));
+		return methods;
 	}
 	
 	/**
-	 * Examine an Requires or Ensures Clause from an method to do some operations.
-	 * @param typeOfExamination The type of examination used.
-	 * @param anMethod The method searched.
-	 * @param clauses The clauses from the method.
-	 * @return true If the examination has returned true.
-	 * @throws Exception For bad-code formulation.
+	 * Examine the Requires and Ensures Clauses from an method to do some operations,
+	 * visiting each clause once.
+	 * @param context The context of the examination.
+	 * @param operations The types of examination used.
+	 * @param anMethod The specifications of the method searched.
+	 * @return the operations fulfilled by the clauses.
 	 */
-	private boolean examineSpecifiedPrePostClause(Operations typeOfExamination, JmlMethodDecl anMethod,
-			com.sun.tools.javac.util.List<JmlMethodClause> clauses) throws Exception {
+	private EnumSet<Operations> examineSpecifiedPrePostClause(ExaminationContext context, Set<Operations> operations, SpecIndex.MethodSpec anMethod) {
+		EnumSet<Operations> verdict = EnumSet.noneOf(Operations.class);
 		boolean isRequiresClauseNotFounded = true, isEnsuresClauseNotFounded = true;
-		for (com.sun.tools.javac.util.List<JmlMethodClause> traversing = clauses; !traversing.isEmpty(); traversing = traversing.tail) {
-			if (traversing.head.token.equals(JmlToken.REQUIRES)) {
+		for (SpecIndex.ClauseSpec clause : anMethod.getClauses()) {
+			if (clause.is(JmlToken.REQUIRES)) {
 				isRequiresClauseNotFounded = false;
-				switch (typeOfExamination) {
-				case ATR_VAR_IN_PRECONDITION:
-					if(isAtrAndVarInPrecondition(anMethod, traversing))
-						return true;
-					break;
-				case REQUIRES_TRUE:
-					if(isClauseTrue(traversing))
-						return true;
-					break;
-				default:
-					break;
-				}
+				if(operations.contains(Operations.ATR_VAR_IN_PRECONDITION) && isAtrAndVarInPrecondition(context, anMethod, clause))
+					verdict.add(Operations.ATR_VAR_IN_PRECONDITION);
+				if(operations.contains(Operations.REQUIRES_TRUE) && clause.isTrue())
+					verdict.add(Operations.REQUIRES_TRUE);
 			}
-			if (traversing.head.token.equals(JmlToken.ENSURES)){
+			if (clause.is(JmlToken.ENSURES)){
 				isEnsuresClauseNotFounded = false;
-				if(typeOfExamination.equals(Operations.ENSURES_TRUE)){
-					if(isClauseTrue(traversing))
-						return true;
-				}
+				if(operations.contains(Operations.ENSURES_TRUE) && clause.isTrue())
+					verdict.add(Operations.ENSURES_TRUE);
 			}
 		}
-		if(typeOfExamination == Operations.REQUIRES_TRUE)
-			return isRequiresClauseNotFounded;
-		if(typeOfExamination == Operations.ENSURES_TRUE)
-			return isEnsuresClauseNotFounded;
-		return false;
+		if(operations.contains(Operations.REQUIRES_TRUE) && isRequiresClauseNotFounded)
+			verdict.add(Operations.REQUIRES_TRUE);
+		if(operations.contains(Operations.ENSURES_TRUE) && isEnsuresClauseNotFounded)
+			verdict.add(Operations.ENSURES_TRUE);
+		return verdict;
 	}
 	
 	/**
-	 * Examine if the attribute or variable from a Class method are on the requires clauses.
-	 * @param anMethod The method examined.
-	 * @param traversing The clause examined from the method.
+	 * Examine if the attribute or variable from a Class method are on the requires clause.
+	 * @param context The context of the examination.
+	 * @param anMethod The specifications of the method examined.
+	 * @param clause The clause examined from the method.
 	 * @return true If the attribute or variable was found.
 	 */
-	private boolean isAtrAndVarInPrecondition(JmlMethodDecl anMethod, com.sun.tools.javac.util.List<JmlMethodClause> traversing){
-		for (com.sun.tools.javac.util.List<JCVariableDecl> acessing = anMethod.params; 
-				!acessing.isEmpty(); acessing = acessing.tail)
-			if(verifyFieldsInClause(traversing, acessing.head.name.toString(), true))
+	private boolean isAtrAndVarInPrecondition(ExaminationContext context, SpecIndex.MethodSpec anMethod, SpecIndex.ClauseSpec clause){
+		for (String parameter : anMethod.getParameters())
+			if(clause.mentions(parameter))
 				return true;
-		for (String var : this.variables) 
-			if(verifyFieldsInClause(traversing, var, false))
+		for (String var : context.getVariables()) 
+			if(clause.mentions(var))
 				return true;
 		return false;
 	}
 	
-	/**
-	 * Examine if the method has some requires or ensures with value constantly true.
-	 * @param traversing The clause to examine.
-	 * @return true If the method has some requires or ensures with constant true value.
-	 */
-	private boolean isClauseTrue(com.sun.tools.javac.util.List<JmlMethodClause> traversing) {
-		JCTree expression = ((JmlMethodClauseExpr) traversing.head).expression;
-		return hasTrueValue(expression) != 0 && hasTrueValue(expression) != VAR_FALSE_VALUE;
-	}
-	
-	/**
-	 * Take the code from the method to perform some examination.
-	 * @param anMethod The method to examine.
-	 * @param typeOfExamination The type of examination.
-	 * @return true If the examination returns it.
-	 */
-	private boolean examineCodeFromMethod(JmlMethodDecl anMethod, Operations typeOfExamination) {
-		JCBlock block = anMethod.body;
-		com.sun.tools.javac.util.List<JCVariableDecl> params = anMethod.params;
-		switch (typeOfExamination) {
-		case ATR_MOD:
-			if(isSomeVarOtAtrGettingAttribution(params, block))
-				return true;
-			break;
-		case ISNT_NULL_RELATED:
-			if(isAllVariableInitialized(block))
-				return true;
-			break;
-		default:
-			break;
-		}
-		return false;
-	}
-	
 	/**
 	 * Verify if some variable from class or parameter from the method are receiving a value
 	 * in an attribution.
+	 * @param context The context of the examination.
 	 * @param params The parameters from the method.
 	 * @param block The code lines from the method.
 	 * @return true If the method attribute value to some field.
 	 */
-	private boolean isSomeVarOtAtrGettingAttribution(com.sun.tools.javac.util.List<JCVariableDecl> params, JCBlock block) {
+	private boolean isSomeVarOtAtrGettingAttribution(ExaminationContext context, com.sun.tools.javac.util.List<JCVariableDecl> params, JCBlock block) {
 		for (com.sun.tools.javac.util.List<JCStatement> traversing = block.stats; !traversing.isEmpty(); traversing = traversing.tail){
 			
 			if(traversing.head instanceof JCExpressionStatement){
-				if(verifyAttribution(params, ((JCExpressionStatement) traversing.head).expr))
+				if(verifyAttribution(context, params, ((JCExpressionStatement) traversing.head).expr))
 					return true;
 				else if(((JCExpressionStatement) traversing.head).expr instanceof JCMethodInvocation)
 					return true;
@@ -403,28 +450,21 @@ public class Examinator {
 	
 	/**
 	 * Verify if all variables were initialized on the constructor.
+	 * @param context The context of the examination.
 	 * @param block The lines of the constructor.
 	 * @return true if all variables were initialized on the constructor.
 	 */
-	private boolean isAllVariableInitialized(JCBlock block) {
+	private boolean isAllVariableInitialized(ExaminationContext context, JCBlock block) {
 		for (com.sun.tools.javac.util.List<JCStatement> traversing = block.stats; !traversing.isEmpty(); traversing = traversing.tail){
 			if(traversing.head instanceof JCExpressionStatement){
 				if(((JCExpressionStatement) traversing.head).expr instanceof JCAssign 
 				&& !((JCAssign) ((JCExpressionStatement) traversing.head).expr).rhs.toString().equals("null")){
 					String toTest = ((JCAssign) ((JCExpressionStatement) traversing.head).expr).lhs.toString();		
-					int i = 0; boolean isNecessaryToRemove = false;
-					for(i = 0; i < this.variables.size(); i++){
-						if(toTest.equals(this.variables.get(i)) || toTest.equals("this." + this.variables.get(i))){
-							isNecessaryToRemove = true;
-							break;
-						}
-					}
-					if(isNecessaryToRemove)
-						this.variables.remove(i);
+					context.getVariables().remove(toTest.startsWith("this.") ? toTest.substring("this.".length()) : toTest);
 				}
 			}
 		}
-		return this.variables.isEmpty();
+		return context.getVariables().isEmpty();
 	}
 	
 	/**
@@ -434,15 +474,11 @@ public class Examinator {
 	 * @return null if none class was found, otherwise the class founded.
 	 */
 	private JmlClassDecl takeClassFromFile(java.io.File f, String className){
-		IAPI app;
 		try {
-			if(!f.exists())
-				throw new Exception("The File acessed " + f.getName() + "does not exist.");
-			app = Factory.makeAPI();
-			List<JmlTree.JmlCompilationUnit> ast = app.parseFiles(f);
+			JmlTree.JmlCompilationUnit unit = this.parsedUnits.get(f);
 			com.sun.tools.javac.util.List<JCTree> acesser;
 			JmlTree.JmlClassDecl ourClass = null;
-			for (acesser = ast.get(0).defs; !acesser.isEmpty(); acesser = acesser.tail)
+			for (acesser = unit.defs; !acesser.isEmpty(); acesser = acesser.tail)
 				if(acesser.head.getKind().equals(Tree.Kind.CLASS) || acesser.head.getKind().equals(Tree.Kind.INTERFACE)){
 					ourClass = (JmlClassDecl) acesser.head;
 					if(ourClass.name.toString().equals(getOnlyClassName(className)))
@@ -457,219 +493,108 @@ public class Examinator {
 	 * Take all methods with the same name desired from an class, and return listed.
 	 * @param clazz The class to walk.
 	 * @param methodName The name of the method desired.
+	 * @param methodCalling The line of the declaration of the method, or empty for all methods with the name.
 	 * @return An list of methods with the name desired.
 	 */
-	private List<JmlTree.JmlMethodDecl> takeMethodsFromClass(JmlTree.JmlClassDecl clazz, String methodName){
-		List<JmlTree.JmlMethodDecl> methods = new ArrayList<JmlTree.JmlMethodDecl>();
-		com.sun.tools.javac.util.List<JCTree> traverser;
-		for (traverser = clazz.defs; !traverser.isEmpty(); traverser = traverser.tail)
-			if(traverser.head.getKind().equals(Tree.Kind.METHOD) 
-			   && ((JmlMethodDecl)traverser.head).name.toString().equals(methodName)
-			   && (traverser.head.toString().contains(this.methodCalling.trim()))){
-				methods.add((JmlMethodDecl) traverser.head);
-			}
-		return methods;
-	}
-	
-	/**
-	 * Take an class declaration and return a list with all Methods from there.
-	 * @param clazz Class declaration examined.
-	 * @return list with all methods from class examined.
-	 */
-	private List<String> takeMethodsList(JmlTree.JmlClassDecl clazz){
-		List<String> methods = new ArrayList<>();
-		com.sun.tools.javac.util.List<JCTree> traverser;
-		try {
-			for (traverser = clazz.defs; !traverser.isEmpty(); traverser = traverser.tail) {
-				if(traverser.head.getKind().equals(Tree.Kind.METHOD))
-					methods.add(((JmlMethodDecl) traverser.head).name.toString());
-			}			
-		} catch (Exception e) {
-		}
-		return methods;
-		
+	private List<JmlTree.JmlMethodDecl> takeMethodsFromClass(JmlTree.JmlClassDecl clazz, String methodName, String methodCalling){
+		return this.parsedUnits.getMethodIndex(clazz).find(methodName, methodCalling);
 	}
 	
 	/**
 	 * Do an specified operation in all interfaces, superclasses
 	 * or jml files associated with the .java who called it.
+	 * @param context The context of the examination.
 	 * @param className The name of the class who called it.
 	 * @param methodName The method searched.
-	 * @param typeOfExamination The operation made in the class.
-	 * @return true if it in any of the operations returns it.
+	 * @param operations The operations made in the class.
+	 * @return the operations fulfilled in any of the classes.
 	 * @throws Exception If any Operation was bad-formulated on Code.
 	 */
-	private boolean examineAllClassAssociated(String className, String methodName, Operations typeOfExamination) throws Exception {
-		if(typeOfExamination == Operations.ATR_VAR_IN_PRECONDITION || typeOfExamination == Operations.REQUIRES_TRUE){
-			ArrayList<String> interfacesOfClass = ClassDriver.getInterfacesPathFromClass(className);
-			if(!interfacesOfClass.isEmpty())
-				for (String i : interfacesOfClass)
-					if(examineJavaAndJMLCode(i, methodName, false, typeOfExamination))
-						return true;
+	private EnumSet<Operations> examineAllClassAssociated(ExaminationContext context, String className, String methodName, Set<Operations> operations) throws Exception {
+		EnumSet<Operations> verdict = EnumSet.noneOf(Operations.class);
+		SpecIndex.TypeSpec indexed = this.specs.getType(className, false);
+		EnumSet<Operations> declared = only(operations, DECLARED);
+		if(!declared.isEmpty()){
+			List<String> interfacesOfClass = (indexed != null) ? this.specs.getInterfaces(indexed) 
+					: ClassDriver.getInterfacesPathFromClass(className, this.workspace);
+			for (String i : interfacesOfClass){
+				declared.removeAll(verdict);
+				if(declared.isEmpty())
+					break;
+				verdict.addAll(examineJavaAndJMLCode(context, i, methodName, false, declared));
+			}
 		}
-		String superClassOfClass = ClassDriver.getSuperclassPathFromClass(className, srcDir);
+		String superClassOfClass = (indexed != null) ? this.specs.getSuperclass(indexed) 
+				: ClassDriver.getSuperclassPathFromClass(className, srcDir, this.workspace);
+		EnumSet<Operations> pending = EnumSet.noneOf(Operations.class);
+		pending.addAll(operations);
+		pending.removeAll(verdict);
 		if(!(superClassOfClass == "")){
-			if(examineJavaAndJMLCode(superClassOfClass, methodName, false, typeOfExamination))
-				return true;
+			if(!pending.isEmpty())
+				verdict.addAll(examineJavaAndJMLCode(context, superClassOfClass, methodName, false, pending));
 		}else
-			isAllVarUpdated = true;
-		if(typeOfExamination == Operations.ATR_VAR_IN_PRECONDITION || typeOfExamination == Operations.REQUIRES_TRUE){
-			if(examineJavaAndJMLCode(className, methodName, true, typeOfExamination))
-				return true;
-		}
-		return false;
+			context.setAllVarUpdated(true);
+		declared.removeAll(verdict);
+		if(!declared.isEmpty())
+			verdict.addAll(examineJavaAndJMLCode(context, className, methodName, true, declared));
+		return verdict;
 	}
 	
 	/**
 	 * Verify if some variable were already initialized on its declaration.
+	 * @param context The context of the examination.
 	 * @param ourClass The class to examine.
 	 */
-	private void verifyVarInitializedOutsideMethods(JmlClassDecl ourClass) {
+	private void verifyVarInitializedOutsideMethods(ExaminationContext context, JmlClassDecl ourClass) {
 		com.sun.tools.javac.util.List<JCTree> traverser;
 		for (traverser = ourClass.defs; !traverser.isEmpty(); traverser = traverser.tail){
 			if(traverser.head instanceof JmlVariableDecl) 
 				if( ((JmlVariableDecl)traverser.head).vartype instanceof JCPrimitiveTypeTree){
-					String toRemove = ((JmlVariableDecl)traverser.head).name.toString();
-					this.variables.remove(this.variables.indexOf(toRemove));
+					removeInitialized(context, ((JmlVariableDecl)traverser.head).name.toString());
 				} else if(((JmlVariableDecl)traverser.head).init != null){
 					if(((JmlVariableDecl)traverser.head).init instanceof JCLiteral){
 						if(((JCLiteral)((JmlVariableDecl)traverser.head).init).value != null){
-							String toRemove = ((JmlVariableDecl)traverser.head).name.toString();
-							this.variables.remove(this.variables.indexOf(toRemove));			
+							removeInitialized(context, ((JmlVariableDecl)traverser.head).name.toString());
 						}
 					}else{
-						String toRemove = ((JmlVariableDecl)traverser.head).name.toString();
-						this.variables.remove(this.variables.indexOf(toRemove));			
+						removeInitialized(context, ((JmlVariableDecl)traverser.head).name.toString());
 					}
 				}
 		}
 	}
 	
 	/**
-	 * Verify all components of the Method Clause, if it's JCBinary or JCIdent type, that there are at least
-	 * one field equals to the String toTest given.
-	 * @param traversing Method Clause to verify.
-	 * @param toTest Name of the field to compare.
-	 * @param isFieldParameterOfMethod true, if the type of the field are just methods parameters or false. 
-	 * @return true if it was found any component of the clause equal the name of the field. 
+	 * Remove a field initialized on its declaration from the fields still to be initialized.
+	 * A field that is not there, like one already removed by a class related, makes the null
+	 * related examination fail, so the nonconformance isn't taken as null related.
+	 * @param context The context of the examination.
+	 * @param name The name of the field initialized.
 	 */
-	private boolean verifyFieldsInClause(com.sun.tools.javac.util.List<JmlMethodClause> traversing, String toTest, boolean isFieldParameterOfMethod) {
-		if (isThereInMiniTree(toTest,((JmlMethodClauseExpr) traversing.head).expression))
-			return true;
-		if(!isFieldParameterOfMethod && (isThereInMiniTree("this." + toTest,((JmlMethodClauseExpr) traversing.head).expression)
-									  || isThereInMiniTree(toTest, ((JmlMethodClauseExpr) traversing.head).expression)))
-			return true;
-		return false;
-	}
-	
-	/**
-	 * This function walks into a tree with nodes of type JCBinary to search for 
-	 * a string as one of the elements of the tree.
-	 * @param toTest The String searched as Element in the tree.
-	 * @param expression The bifurcation tree searched.
-	 * @return True if the string was found, or False.
-	 */
-	private boolean isThereInMiniTree(String toTest, JCTree expression) {
-		if(expression instanceof JCParens){
-			if(isThereInMiniTree(toTest, ((JCParens) expression).expr))
-				return true;
-		} else if(expression instanceof JCIdent){
-			if(((JCIdent) expression).name.toString().equals(toTest))
-				return true;
-		} else if(expression instanceof JCBinary){
-			if(isThereInMiniTree(toTest, ((JCBinary) expression).rhs))
-				return true;
-			if(isThereInMiniTree(toTest, ((JCBinary) expression).lhs))
-				return true;
-		}
-		return false;
-	}
-	
-	/**
-	 * Verify if the boolean expression have a true value despite of any variable values. 
-	 * @param expression The boolean expression examined.
-	 * @return 1 When the expression is always true.
-	 */
-	private int hasTrueValue(JCTree expression) {
-		if(expression instanceof JCParens){
-			if(hasTrueValue(((JCParens)expression).expr) != 0)
-				return 1;
-		}else if(expression instanceof JCLiteral){
-			if(((JCLiteral) expression).value == null)
-				return VAR_FALSE_VALUE;
-			return (int) ((JCLiteral) expression).value;
-		}else if(expression instanceof JmlSingleton){
-			return 1;
-		}else if(expression instanceof JCBinary){
-			return resolveBooleanOperations(expression);
-		}
-		return VAR_FALSE_VALUE;
-	}
-	
-	/**
-	 * Calculate the value from binary expression, always considering variables with false value.
-	 * @param expression The binary boolean expression examined.
-	 * @return 1 When the expression has value true. 
-	 */
-	private int resolveBooleanOperations(JCTree expression) {
-		int rexp = hasTrueValue(((JCBinary) expression).rhs);
-		int lexp = hasTrueValue(((JCBinary) expression).lhs);
-		switch (((JCBinary) expression).getTag()) {
-			case JCTree.OR:
-				if((rexp != 0)&&(rexp != VAR_FALSE_VALUE) || (lexp != 0)&&(lexp != VAR_FALSE_VALUE))
-					return 1;
-				return 0;
-			case JCTree.AND:
-				if((rexp == 0)||(rexp == VAR_FALSE_VALUE) || (lexp == 0)||(lexp == VAR_FALSE_VALUE))
-					return 0;
-				return 1;
-			case JCTree.EQ:
-				if(rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
-					return VAR_FALSE_VALUE;
-				return ((rexp != 0) == (lexp != 0)) ? 1 : 0;
-			case JCTree.NE:
-				if(rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
-					return VAR_FALSE_VALUE;
-				return ((rexp != 0) != (lexp != 0)) ? 1 : 0;
-			case JCTree.LT:
-				if(rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
-					return VAR_FALSE_VALUE;
-				return (rexp < lexp) ? 1 : 0;
-			case JCTree.GT:
-				if(rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
-					return VAR_FALSE_VALUE;
-				return (rexp > lexp) ? 1 : 0;
-			case JCTree.LE:
-				if(rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
-					return VAR_FALSE_VALUE;
-				return (rexp <= lexp) ? 1 : 0;
-			case JCTree.GE:
-				if(rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
-					return VAR_FALSE_VALUE;
-				return (rexp >= lexp) ? 1 : 0;
-			default:
-				return 0;
-		}
+	private void removeInitialized(ExaminationContext context, String name) {
+		if(!context.getVariables().remove(name))
+			throw new IllegalStateException("Field " + name + " not found on the fields of " 
+					+ context.getPrincipalClassName());
 	}
 	
 	/**
 	 * Verify if the expression is an assign and its assign to some value in parameters or variables from class.
+	 * @param context The context of the examination.
 	 * @param params The parameters from the method.
 	 * @param expr The expression to analyze.
 	 * @return true if the expression is an assign to variable or parameter of the method.
 	 */
-	private boolean verifyAttribution(com.sun.tools.javac.util.List<JCVariableDecl> params, JCExpression expr) {
+	private boolean verifyAttribution(ExaminationContext context, com.sun.tools.javac.util.List<JCVariableDecl> params, JCExpression expr) {
 		if(expr instanceof JCUnary){
 			String toTest = ((JCUnary) expr).arg.toString();
-			if(compareFieldsWith(params, toTest))
+			if(compareFieldsWith(context, params, toTest))
 				return true;
 		}else if(expr instanceof JCAssign){
 			String toTest = ((JCAssign) expr).lhs.toString();
-			if(compareFieldsWith(params, toTest))
+			if(compareFieldsWith(context, params, toTest))
 				return true;
 		}else if(expr instanceof JCAssignOp){
 			String toTest = ((JCAssignOp) expr).lhs.toString();
-			if(compareFieldsWith(params, toTest))
+			if(compareFieldsWith(context, params, toTest))
 				return true;
 		}
 		return false;
@@ -677,15 +602,16 @@ public class Examinator {
 	
 	/**
 	 * Verify if the name given is some of the parameters of a method or variables from the class.
+	 * @param context The context of the examination.
 	 * @param params The parameters from the method to analyze.
 	 * @param toTest The name to search.
 	 * @return true If the name correspond to some of the fields.
 	 */
-	private boolean compareFieldsWith(com.sun.tools.javac.util.List<JCVariableDecl> params, String toTest) {
+	private boolean compareFieldsWith(ExaminationContext context, com.sun.tools.javac.util.List<JCVariableDecl> params, String toTest) {
 		for (com.sun.tools.javac.util.List<JCVariableDecl> acessing = params; !acessing.isEmpty(); acessing = acessing.tail)
 			if(acessing.head.name.toString().equals(toTest))
 				return true;
-		for (String var : this.variables) 
+		for (String var : context.getVariables()) 
 			if(toTest.equals(var)){
 				return true;
 			}else if(toTest.equals("this."+var)){
@@ -700,7 +626,8 @@ public class Examinator {
 	 * @return list with all possible pair within the classname given and its methods.
 	 */
 	private List<String> generateListAllClassMethodPair(String classname){
-		List<String> methods = takeMethodsList(takeClassFromFile(getFileToInvestigate(classname, false), classname));
+		SpecIndex.TypeSpec ourClass = this.specs.getType(classname, false);
+		List<String> methods = (ourClass != null) ? ourClass.getMethodNames() : new ArrayList<String>();
 		List<String> classMethodPair = new ArrayList<String>();
 		for (int index = 0; index < methods.size(); index++) {
 			classMethodPair.add(classname + "." + methods.get(index));
@@ -750,8 +677,7 @@ public class Examinator {
 	 * @return code of test method that generated nonconformance.
 	 */
 	public String showsMethodCode(Nonconformance n){
-		java.io.File file = new java.io.File(Constants.TEST_DIR	+ Constants.FILE_SEPARATOR + n.getTestFile());
-		this.methodCalling = "";
+		java.io.File file = new java.io.File(this.workspace.getTestDir() + Constants.FILE_SEPARATOR + n.getTestFile());
 		return showsMethodCode(file, n.getTestFile().replace(".java", ""), n.getNumberedTest());
 	}
 	
@@ -765,7 +691,7 @@ public class Examinator {
 	public String showsMethodCode(java.io.File file, String classname, String methodname){
 		JmlClassDecl ourClass = takeClassFromFile(file, classname);
 		JmlMethodDecl anMethod;
-		anMethod = takeMethodsFromClass(ourClass, methodname).get(0);
+		anMethod = takeMethodsFromClass(ourClass, methodname, "").get(0);
 		return anMethod.toString();
 	}
 	
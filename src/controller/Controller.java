@@ -21,14 +21,17 @@ import java.util.Set;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 
-import org.apache.commons.io.output.ByteArrayOutputStream;
-
-import utils.commons.ClassPathHacker;
+import utils.commons.ConsoleChannel;
 import utils.commons.Constants;
-import utils.commons.FileUtil;
+import utils.commons.Workspace;
 import utils.datastructure.Nonconformance;
+import utils.detect.GenerationPlanner;
 import categorize.Categorize;
+import categorize.CategorizeEvent;
+import categorize.CategorizeListener;
 import detect.Detect;
+import detect.DetectAdapter;
+import detect.DetectEvent;
 
 public class Controller {
 	private Set<Nonconformance> errors;
@@ -38,6 +41,8 @@ public class Controller {
 	private String srcFolder;
 	private String extLibFolder;
 	private String time;
+	private Workspace workspace;
+	private Categorize categorize;
 
 	/**
 	 * Constructor for Controller, it initialize the compiler and OS options for
@@ -206,7 +211,6 @@ public class Controller {
 	 *             When some XML cannot be read.
 	 */
 	public void prepareToDetectPhase() throws Exception {
-		setSystemVariableClassPath();
 		showDetectionScreen();
 	}
 
@@ -233,16 +237,40 @@ public class Controller {
 	 *             When some XML cannot be read.
 	 */
 	public void showDetectionScreen() throws Exception {
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		PrintStream ps = new PrintStream(baos);
+		disposeWorkspace(true);
+		this.workspace = Workspace.create();
+		this.workspace.setLibraries(this.extLibFolder);
+		final ConsoleChannel console = new ConsoleChannel(
+				Constants.CONSOLE_LINES);
+		PrintStream ps = new PrintStream(console, true);
 		PrintStream old = System.out;
 		System.setOut(ps);
-		final Detect d = new Detect(this.compiler);
+		final Detect d = new Detect(this.compiler, this.workspace);
+		this.categorize = new Categorize(this.workspace);
+		this.categorize.addCategorizeListener(new CategorizeListener() {
+			@Override
+			public void categorizedNonconformance(CategorizeEvent e) {
+				Nonconformance n = e.getNonconformance();
+				System.out.println("Nonconformance categorized: "
+						+ n.getIdentifier() + " - likely cause: "
+						+ n.getCause());
+			}
+		});
+		// Nonconformances are categorized while the tests are still running
+		d.addDetectListener(new DetectAdapter() {
+			@Override
+			public void detectFoundNonconformance(DetectEvent e) {
+				System.out.println("Nonconformance found: "
+						+ e.getNonconformance().getIdentifier());
+				categorize.categorizeInBackground(e.getNonconformance(),
+						srcFolder);
+			}
+		});
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 				try {
 					DetectionScreenAdvisorFrame frame;
-					frame = new DetectionScreenAdvisorFrame(d, baos,
+					frame = new DetectionScreenAdvisorFrame(d, console,
 							Controller.this);
 					frame.setVisible(true);
 				} catch (Exception e) {
@@ -255,6 +283,42 @@ public class Controller {
 		System.setOut(old);
 	}
 
+	/**
+	 * Run the Detection phase, and the Categorization phase if asked, with no
+	 * screens, as done by the daemon. The input must have been validated
+	 * before.
+	 * 
+	 * @param categorizeToo
+	 *            If the nonconformances detected will be categorized too.
+	 * @return the nonconformances detected.
+	 * @throws Exception
+	 *             When the Detection phase shows some error.
+	 */
+	public Set<Nonconformance> runWithoutScreens(boolean categorizeToo)
+			throws Exception {
+		this.workspace = Workspace.create();
+		// Each execution has its own libraries, the daemon runs many of them.
+		this.workspace.setLibraries(this.extLibFolder);
+		final boolean[] failed = { false };
+		Detect d = new Detect(this.compiler, this.workspace);
+		d.addDetectListener(new DetectAdapter() {
+			@Override
+			public void detectErrorOnGeneratingTests(DetectEvent e) {
+				failed[0] = true;
+			}
+		});
+		errors = d.detect(this.srcFolder, this.extLibFolder, this.time);
+		if (failed[0])
+			throw new Exception("Detection failed for " + this.srcFolder
+					+ ", see the console for details.");
+		if (!categorizeToo)
+			return errors;
+		this.categorize = new Categorize(this.workspace);
+		nonconformities = this.categorize.categorize(errors, this.srcFolder);
+		GenerationPlanner.recordResults(this.workspace, this.srcFolder);
+		return nonconformities;
+	}
+
 	/**
 	 * Show the Categorization Screen with all of the fields filled.
 	 */
@@ -293,26 +357,6 @@ public class Controller {
 		});
 	}
 
-	/**
-	 * Set an hack to add jars on SystemClassLoader.
-	 */
-	private void setSystemVariableClassPath() {
-		boolean isWindows = System.getProperty("os.name").contains("Windows");
-		String separator = (isWindows) ? ";" : ":";
-		// ClassLoader must know source directory
-		String pathVar = "."
-				+ separator
-				+ FileUtil.getListPathPrinted(this.extLibFolder,
-						FileUtil.JAR_FILES);
-		for (String jar : pathVar.split(separator)) {
-			try {
-				ClassPathHacker.addFile(jar);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-	}
-
 	/**
 	 * Call Categorize for the categorization phase.
 	 * 
@@ -324,14 +368,52 @@ public class Controller {
 	 */
 	private List<Nonconformance> fulfillCategorizePhase(
 			Set<Nonconformance> errors, String source) {
-		Categorize c = new Categorize();
+		if (this.categorize == null)
+			this.categorize = new Categorize(this.workspace);
+		Categorize c = this.categorize;
 		List<Nonconformance> x = new ArrayList<Nonconformance>();
 		nonconformities = c.categorize(errors, source);
+		// The results guide the generation of the next executions.
+		GenerationPlanner.recordResults(this.workspace, source);
 		for (Nonconformance n : nonconformities)
 			x.add(n);
 		return x;
 	}
 
+	/**
+	 * Get the Categorize of the current execution, that categorizes the
+	 * nonconformances while they are detected.
+	 * 
+	 * @return the Categorize of the current execution.
+	 */
+	public Categorize getCategorize() {
+		return this.categorize;
+	}
+
+	/**
+	 * Get the workspace of the current execution.
+	 * 
+	 * @return the workspace of the current execution.
+	 */
+	public Workspace getWorkspace() {
+		return this.workspace;
+	}
+
+	/**
+	 * Release the workspace of the current execution and remove its
+	 * directory, when the execution is not needed anymore.
+	 * 
+	 * @param background
+	 *            If the directory is removed in background, false when the
+	 *            JVM is about to exit.
+	 */
+	public void disposeWorkspace(boolean background) {
+		if (this.workspace != null) {
+			this.workspace.dispose(background);
+			this.workspace = null;
+		}
+	}
+
 	/**
 	 * Copy the file results.xml generated from the categorization to another
 	 * file specified.
@@ -342,9 +424,9 @@ public class Controller {
 	 *             When the path is invalid.
 	 */
 	public void saveResultsInXML(String path) throws IOException {
-		Path source = (new File(Constants.RESULTS)).toPath();
+		Path source = (new File(this.workspace.getResults())).toPath();
 		Path target = (new File(path + Constants.FILE_SEPARATOR + "results.xml"))
 				.toPath();
 		Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,305 @@
+package daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Entry point of the tool running as a daemon. The daemon keeps one JVM, with
+ * the tool classes already loaded and compiled, and receives detection jobs
+ * over HTTP on the loopback interface, so many small SUTs can be checked
+ * without starting the tool for each one.
+ *
+ * The API is:
+ * <ul>
+ * <li>POST /jobs - submits a job. Parameters, on the query string or as a form
+ * body: source (required), lib, time, priority (higher runs first, default 0)
+ * and categorize (default true). Answers the job and its identifier.</li>
+ * <li>GET /jobs - the jobs known by the daemon, without their results.</li>
+ * <li>GET /jobs/{id} - the job, with the nonconformances detected when DONE.</li>
+ * </ul>
+ *
+ * The port is set by the property jmlok.daemon.port. The jobs are run one at a
+ * time, each one using all workers of the tool: a job changes state global to
+ * the JVM, like the classpath of the System set by the Controller and the
+ * outputs of the System redirected while Randoop runs inside the tool, so two
+ * jobs at the same time would see the state of each other. The OpenJML APIs,
+ * expensive to create, are kept between the jobs.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class Daemon {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	// Finished jobs kept to be queried, the oldest are forgotten first.
+	private static final int MAX_FINISHED_JOBS = 256;
+	private HttpServer server;
+	private ThreadPoolExecutor workers;
+	private ExecutorService handlers;
+	private Map<Long, DetectionJob> jobs = new LinkedHashMap<Long, DetectionJob>();
+
+	/**
+	 * Start the daemon and keep it running.
+	 *
+	 * @param args
+	 *            from command line(non-used).
+	 */
+	public static void main(String[] args) {
+		int port = Integer.getInteger("jmlok.daemon.port", 8547);
+		if (System.getProperty("jmlok.daemon.workers") != null)
+			System.out.println("jmlok.daemon.workers is ignored, the jobs"
+					+ " are run one at a time.");
+		try {
+			Daemon daemon = new Daemon(port);
+			daemon.start();
+			System.out.println("JMLOK daemon listening on "
+					+ daemon.getAddress() + ".");
+		} catch (IOException e) {
+			System.err.println("Couldn't start the daemon: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The constructor of this class, binds the daemon to the loopback
+	 * interface.
+	 *
+	 * @param port
+	 *            = the port where the jobs are received, 0 for any free port.
+	 * @throws IOException
+	 *             When the port cannot be bound.
+	 */
+	public Daemon(int port) throws IOException {
+		server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+				0);
+		// The queue orders the jobs by priority, so they must be executed,
+		// not submitted, to keep their type.
+		workers = new ThreadPoolExecutor(1, 1, 0L,
+				TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+				threads("jmlok-job"));
+		handlers = Executors.newCachedThreadPool(threads("jmlok-http"));
+		server.setExecutor(handlers);
+		server.createContext("/jobs", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					handleJobs(exchange);
+				} catch (RuntimeException e) {
+					send(exchange, 500,
+							"{\"error\": " + DetectionJob.quote(e.toString())
+									+ "}");
+				}
+			}
+		});
+	}
+
+	/**
+	 * Start to receive jobs.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stop receiving jobs, interrupting the jobs still running.
+	 */
+	public void stop() {
+		server.stop(0);
+		workers.shutdownNow();
+		handlers.shutdownNow();
+	}
+
+	/**
+	 * Get the address where the daemon receives jobs.
+	 *
+	 * @return the address where the daemon receives jobs.
+	 */
+	public String getAddress() {
+		InetSocketAddress address = server.getAddress();
+		return "http://" + address.getHostString() + ":" + address.getPort();
+	}
+
+	/**
+	 * Answer a request to the jobs API.
+	 */
+	private void handleJobs(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		if (path.equals("/jobs") || path.equals("/jobs/")) {
+			if (method.equals("POST"))
+				submit(exchange);
+			else if (method.equals("GET"))
+				list(exchange);
+			else
+				send(exchange, 405, "{\"error\": \"Method not allowed.\"}");
+			return;
+		}
+		if (!method.equals("GET")) {
+			send(exchange, 405, "{\"error\": \"Method not allowed.\"}");
+			return;
+		}
+		DetectionJob job = null;
+		try {
+			long id = Long.parseLong(path.substring("/jobs/".length()));
+			synchronized (jobs) {
+				job = jobs.get(id);
+			}
+		} catch (NumberFormatException e) {
+			// Answered as an unknown job.
+		}
+		if (job == null)
+			send(exchange, 404, "{\"error\": \"Unknown job.\"}");
+		else
+			send(exchange, 200, job.toJson(true));
+	}
+
+	/**
+	 * Queue a new job.
+	 */
+	private void submit(HttpExchange exchange) throws IOException {
+		Map<String, String> params = parameters(exchange.getRequestURI()
+				.getRawQuery());
+		params.putAll(parameters(new String(readAll(exchange
+				.getRequestBody()), UTF_8)));
+		String source = params.get("source");
+		if (source == null || source.equals("")) {
+			send(exchange, 400, "{\"error\": \"The source folder is missing.\"}");
+			return;
+		}
+		int priority;
+		try {
+			priority = Integer.parseInt(value(params, "priority", "0"));
+		} catch (NumberFormatException e) {
+			send(exchange, 400, "{\"error\": \"Invalid priority.\"}");
+			return;
+		}
+		DetectionJob job = new DetectionJob(source, value(params, "lib", ""),
+				value(params, "time", ""), priority, !value(params,
+						"categorize", "true").equals("false"));
+		synchronized (jobs) {
+			jobs.put(job.getId(), job);
+			forgetOldJobs();
+		}
+		workers.execute(job);
+		send(exchange, 202, job.toJson(false));
+	}
+
+	/**
+	 * Answer all jobs known, without their results.
+	 */
+	private void list(HttpExchange exchange) throws IOException {
+		List<DetectionJob> known;
+		synchronized (jobs) {
+			known = new ArrayList<DetectionJob>(jobs.values());
+		}
+		StringBuilder json = new StringBuilder("[");
+		String separator = "";
+		for (DetectionJob job : known) {
+			json.append(separator).append(job.toJson(false));
+			separator = ",\n";
+		}
+		send(exchange, 200, json.append("]").toString());
+	}
+
+	/**
+	 * Forget the oldest finished jobs, keeping at most MAX_FINISHED_JOBS.
+	 */
+	private void forgetOldJobs() {
+		int finished = 0;
+		for (DetectionJob job : jobs.values()) {
+			if (job.isFinished())
+				finished++;
+		}
+		Iterator<DetectionJob> it = jobs.values().iterator();
+		while (finished > MAX_FINISHED_JOBS && it.hasNext()) {
+			if (it.next().isFinished()) {
+				it.remove();
+				finished--;
+			}
+		}
+	}
+
+	/**
+	 * Send a JSON answer.
+	 */
+	private static void send(HttpExchange exchange, int code, String json)
+			throws IOException {
+		byte[] body = json.getBytes(UTF_8);
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=utf-8");
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Read the parameters of a query string or form body.
+	 */
+	private static Map<String, String> parameters(String encoded)
+			throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<String, String>();
+		if (encoded == null)
+			return params;
+		for (String pair : encoded.trim().split("&")) {
+			if (pair.equals(""))
+				continue;
+			int equals = pair.indexOf('=');
+			String name = (equals < 0) ? pair : pair.substring(0, equals);
+			String value = (equals < 0) ? "" : pair.substring(equals + 1);
+			params.put(URLDecoder.decode(name, "UTF-8"),
+					URLDecoder.decode(value, "UTF-8"));
+		}
+		return params;
+	}
+
+	private static String value(Map<String, String> params, String name,
+			String defaultValue) {
+		String value = params.get(name);
+		return (value == null) ? defaultValue : value;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static ThreadFactory threads(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name);
+				t.setDaemon(false);
+				return t;
+			}
+		};
+	}
+}
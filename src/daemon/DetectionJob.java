@@ -0,0 +1,270 @@
+package daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+
+import utils.commons.Constants;
+import utils.commons.Workspace;
+import utils.datastructure.Nonconformance;
+import controller.Controller;
+
+/**
+ * Class that represents one execution of the tool submitted to the daemon: the
+ * SUT to be checked, its priority, and, when finished, the nonconformances
+ * detected. The metrics and results written into the workspace of the job are
+ * kept in a folder of its own, since the workspace is removed when the job
+ * finishes.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class DetectionJob implements Runnable, Comparable<DetectionJob> {
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	public enum Status {
+		QUEUED, RUNNING, DONE, FAILED
+	}
+
+	private long id;
+	private int priority;
+	private String source;
+	private String lib;
+	private String time;
+	private boolean categorize;
+	private volatile Status status = Status.QUEUED;
+	private volatile String error;
+	private volatile List<Nonconformance> nonconformances;
+	private volatile String artifacts;
+	private long submitted;
+	private volatile long started;
+	private volatile long finished;
+
+	/**
+	 * The constructor of this class, receives the same input given on the
+	 * main screen of the tool.
+	 *
+	 * @param source
+	 *            = the source folder of the SUT.
+	 * @param lib
+	 *            = the folder of the external libraries of the SUT.
+	 * @param time
+	 *            = the time, in seconds, to generate tests.
+	 * @param priority
+	 *            = the priority of the job, higher runs first.
+	 * @param categorize
+	 *            = if the nonconformances detected will be categorized too.
+	 */
+	public DetectionJob(String source, String lib, String time, int priority,
+			boolean categorize) {
+		this.id = SEQUENCE.incrementAndGet();
+		this.source = source;
+		this.lib = lib;
+		this.time = time;
+		this.priority = priority;
+		this.categorize = categorize;
+		this.submitted = System.currentTimeMillis();
+	}
+
+	/**
+	 * Run the job, keeping its result or its error.
+	 */
+	@Override
+	public void run() {
+		status = Status.RUNNING;
+		started = System.nanoTime();
+		Controller controller = new Controller();
+		try {
+			controller.checkProblemsWithInput(source, time);
+			controller.validateInput(source, lib, time);
+			Set<Nonconformance> found = controller
+					.runWithoutScreens(categorize);
+			List<Nonconformance> ordered = new ArrayList<Nonconformance>(
+					found);
+			Collections.sort(ordered, new Comparator<Nonconformance>() {
+				@Override
+				public int compare(Nonconformance a, Nonconformance b) {
+					return a.getIdentifier().compareTo(b.getIdentifier());
+				}
+			});
+			nonconformances = ordered;
+			status = Status.DONE;
+		} catch (Exception e) {
+			error = (e.getMessage() == null) ? e.toString() : e.getMessage();
+			status = Status.FAILED;
+		} finally {
+			finished = System.nanoTime();
+			if (controller.getWorkspace() != null) {
+				artifacts = keepArtifacts(controller.getWorkspace());
+				controller.getWorkspace().dispose();
+			}
+		}
+	}
+
+	/**
+	 * Copy the metrics and results written into the workspace of the job to
+	 * a folder that is not removed with the workspace.
+	 *
+	 * @return the folder where the files were copied, or null if they could
+	 *         not be copied.
+	 */
+	private String keepArtifacts(Workspace workspace) {
+		File root = new File(Constants.JOBS_DIR);
+		while (!root.exists()) {
+			root.mkdirs();
+		}
+		try {
+			File dir = Files.createTempDirectory(root.toPath(),
+					"job-" + id + "-").toFile();
+			for (String path : new String[] { workspace.getMetricsJson(),
+					workspace.getMetricsText(), workspace.getResults() }) {
+				File file = new File(path);
+				if (file.isFile())
+					FileUtils.copyFileToDirectory(file, dir);
+			}
+			return dir.getAbsolutePath();
+		} catch (IOException e) {
+			System.err.println("Error in method DetectionJob.keepArtifacts()");
+			return null;
+		}
+	}
+
+	/**
+	 * Jobs of higher priority come first, and jobs of the same priority in
+	 * the order they were submitted.
+	 */
+	@Override
+	public int compareTo(DetectionJob other) {
+		if (priority != other.priority)
+			return (priority > other.priority) ? -1 : 1;
+		return Long.compare(id, other.id);
+	}
+
+	/**
+	 * Get the identifier of the job.
+	 *
+	 * @return the identifier of the job.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Get the status of the job.
+	 *
+	 * @return the status of the job.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Verify if the job has finished, with or without errors.
+	 *
+	 * @return true if the job has finished.
+	 */
+	public boolean isFinished() {
+		return status == Status.DONE || status == Status.FAILED;
+	}
+
+	/**
+	 * Get the job as a JSON object, with the nonconformances detected when
+	 * asked and the job is done.
+	 *
+	 * @param withResults
+	 *            = if the nonconformances detected are included.
+	 * @return the job as a JSON object.
+	 */
+	public String toJson(boolean withResults) {
+		StringBuilder json = new StringBuilder("{");
+		json.append("\"id\": ").append(id);
+		json.append(", \"status\": ").append(quote(status.toString()));
+		json.append(", \"priority\": ").append(priority);
+		json.append(", \"source\": ").append(quote(source));
+		json.append(", \"categorize\": ").append(categorize);
+		json.append(", \"submitted\": ").append(submitted);
+		if (isFinished())
+			json.append(", \"seconds\": ").append(
+					(double) (finished - started) * 1e-9);
+		if (error != null)
+			json.append(", \"error\": ").append(quote(error));
+		if (artifacts != null)
+			json.append(", \"artifacts\": ").append(quote(artifacts));
+		List<Nonconformance> result = nonconformances;
+		if (withResults && result != null) {
+			json.append(", \"nonconformances\": [");
+			String separator = "";
+			for (Nonconformance n : result) {
+				json.append(separator).append(toJson(n));
+				separator = ", ";
+			}
+			json.append("]");
+		}
+		return json.append("}").toString();
+	}
+
+	/**
+	 * Get a nonconformance as a JSON object, with the same fields written to
+	 * the results file.
+	 */
+	private String toJson(Nonconformance n) {
+		StringBuilder json = new StringBuilder("{");
+		json.append("\"type\": ").append(quote(n.getType().getName()));
+		json.append(", \"package\": ").append(quote(n.getPackageName()));
+		json.append(", \"class\": ").append(quote(n.getClassName()));
+		json.append(", \"method\": ").append(quote(n.getMethodName()));
+		json.append(", \"likelyCause\": ").append(quote(n.getCause()));
+		json.append(", \"occurrences\": ").append(n.getOccurrences());
+		json.append(", \"testName\": ").append(quote(n.getNumberedTest()));
+		json.append(", \"testFile\": ").append(quote(n.getTestFile()));
+		json.append(", \"message\": ").append(quote(n.getErrorMessage()));
+		return json.append("}").toString();
+	}
+
+	/**
+	 * Get a text as a JSON string.
+	 *
+	 * @param text
+	 *            = the text.
+	 * @return the text as a JSON string.
+	 */
+	static String quote(String text) {
+		if (text == null)
+			return "null";
+		StringBuilder json = new StringBuilder("\"");
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					json.append(String.format("\\u%04x", (int) c));
+				else
+					json.append(c);
+			}
+		}
+		return json.append("\"").toString();
+	}
+}
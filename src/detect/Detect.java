@@ -3,26 +3,53 @@ package detect;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.tools.ant.DefaultLogger;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectHelper;
 
+import utils.commons.CompiledClasses;
 import utils.commons.Constants;
 import utils.commons.FileUtil;
+import utils.commons.MetricsRegistry;
+import utils.commons.StageLog;
+import utils.commons.Workspace;
+import utils.datastructure.DetectProgress;
 import utils.datastructure.Nonconformance;
+import utils.datastructure.NonconformanceRegistry;
+import utils.detect.ArtifactCache;
 import utils.detect.DetectUtil;
+import utils.detect.GenerationPlanner;
+import utils.detect.InProcessCompiler;
+import utils.detect.InProcessRandoop;
+import utils.detect.OutputListener;
+import utils.detect.ParallelTestRunner;
+import utils.detect.TestDeduplicator;
+import utils.detect.TestResultListener;
+import utils.detect.TestSplitter;
 
 /**
  * Class used to detect nonconformances in Java/JML programs.
@@ -33,11 +60,26 @@ import utils.detect.DetectUtil;
 public class Detect {
 	private boolean isWindows = false;
 	private String contractLib;
-	private File tempDir = new File(Constants.TEMP_DIR);
-	private File javaBin = new File(Constants.JML_SOURCE_BIN);
-	private File jmlBin = new File(Constants.JML_BIN);
-	private File testSource = new File(Constants.TEST_DIR);
-	private File testBin = new File(Constants.TEST_BIN);
+	private Workspace workspace;
+	private File tempDir;
+	private File javaBin;
+	private File jmlBin;
+	private File testSource;
+	private File testBin;
+	private ArtifactCache cache;
+	private String projectHash;
+	private NonconformanceRegistry streamed;
+	private int randomSeed;
+	// Prefix of the names of the test classes of the current round.
+	private String roundPrefix = "";
+	private DetectProgress progress;
+	private ScheduledExecutorService progressTicker;
+	// Progress line printed by Randoop while it generates tests.
+	private static final Pattern RANDOOP_PROGRESS = Pattern
+			.compile("test inputs generated=(\\d+)");
+	// Time, in seconds, Randoop run inside the tool has after its time limit
+	// to write the tests, before it is given up.
+	private static final int RANDOOP_GRACE = 120;
 	private long startTime;
 	private List<DetectListener> detectListeners;
 	private String sourceFolder;
@@ -45,18 +87,26 @@ public class Detect {
 	private String timeout;
 	private int compiler;
 
-	private enum StagesDetect {
-		CREATED_DIRECTORIES, COMPILED_PROJECT, GENERATED_TESTS, EXECUTED_TESTS, ERROR_ON_DETECTION
+	private enum EventsDetect {
+		CREATED_DIRECTORIES, COMPILED_PROJECT, GENERATED_TESTS, EXECUTED_TESTS, FOUND_NONCONFORMANCE, PROGRESS, ERROR_ON_DETECTION
 	}
 
 	/**
 	 * The constructor of this class, creates a new instance of Detect class,
-	 * creates the jmlok directory and set the JML compiler used.
+	 * creates the workspace directory and set the JML compiler used.
 	 * 
 	 * @param comp
 	 *            = the integer that indicates which compiler will be used.
+	 * @param workspace
+	 *            = the workspace of the current execution.
 	 */
-	public Detect(int comp) {
+	public Detect(int comp, Workspace workspace) {
+		this.workspace = workspace;
+		tempDir = new File(workspace.getTempDir());
+		javaBin = new File(workspace.getJmlSourceBin());
+		jmlBin = new File(workspace.getJmlBin());
+		testSource = new File(workspace.getTestDir());
+		testBin = new File(workspace.getTestBin());
 		// Create directories
 		while (!tempDir.exists()) {
 			tempDir.mkdirs();
@@ -71,6 +121,8 @@ public class Detect {
 		}
 		isWindows = System.getProperty("os.name").contains("Windows");
 		detectListeners = new ArrayList<DetectListener>();
+		cache = new ArtifactCache(Constants.CACHE_DIR);
+		progress = new DetectProgress();
 	}
 
 	/**
@@ -90,21 +142,49 @@ public class Detect {
 		try {
 			// Execute scripts division starts here
 			execute(source, lib, timeout);
+			// Errors already read while the tests were running
+			if (streamed != null)
+				return recordMetrics(streamed.getNonconformances());
 			// List Errors
-			NCCreator ncFinder = new NCCreator();
-			return ncFinder.listNonconformances(compiler);
+			NCCreator ncFinder = new NCCreator(workspace);
+			return recordMetrics(ncFinder.listNonconformances(compiler));
 		} catch (Exception e) {
 			System.out.println(e.getMessage());
-			triggersEvent(StagesDetect.ERROR_ON_DETECTION);
+			triggersEvent(EventsDetect.ERROR_ON_DETECTION);
 			// This line below commented serves to inform all errors just on
 			// Detection console.
 			// e.printStackTrace();
-			return new HashSet<Nonconformance>();
+			return recordMetrics(new HashSet<Nonconformance>());
 		}
 	}
 
 	/**
-	 * Method that executes the scripts to conformance checking.
+	 * Record the counts of the Detection phase on the metrics of the
+	 * execution, and write them into the workspace.
+	 * 
+	 * @param nonconformances
+	 *            = the nonconformances detected.
+	 * @return the nonconformances detected.
+	 */
+	private Set<Nonconformance> recordMetrics(
+			Set<Nonconformance> nonconformances) {
+		MetricsRegistry metrics = workspace.getMetrics();
+		metrics.setCount("filesCompiled", progress.getFilesCompiled());
+		metrics.setCount("sequencesGenerated", progress.getSequencesGenerated());
+		metrics.setCount("testsCompiled", progress.getTestsCompiled());
+		metrics.setCount("testsExecuted", progress.getTestsExecuted());
+		metrics.setCount("testFailures", progress.getFailures());
+		metrics.setCount("nonconformances", nonconformances.size());
+		metrics.write(workspace);
+		return nonconformances;
+	}
+
+	/**
+	 * Method that executes the scripts to conformance checking. The stages are
+	 * run following their dependencies: the JML compilation runs at the same
+	 * time of the tests generation and compilation, since only the tests
+	 * execution needs the JML compiled classes. In the saturation mode the
+	 * tests are generated, compiled and run in rounds, after both compilations.
 	 * 
 	 * @param srcFolder
 	 *            = the path to source of files to be tested.
@@ -122,75 +202,255 @@ public class Detect {
 			librariesFolder = libFolder;
 			getClassListFile(sourceFolder);
 			initTimer();
+			startProgressTicker();
 			timeout = time;
-			runStage("Creating directories", "\nDirectories created in",
-					StagesDetect.CREATED_DIRECTORIES);
-			runStage("\nCompiling the project", "Project compiled in",
-					StagesDetect.COMPILED_PROJECT);
-			if (FileUtil.getListPathPrinted(Constants.JML_BIN,
-					FileUtil.DIRECTORIES).equals(""))
-				throw new Exception("Couldn't compile the files.");
-			runStage("Generating tests", "Tests generated in",
-					StagesDetect.GENERATED_TESTS);
-			runStage("Running test into contract-based code", "Tests ran in",
-					StagesDetect.EXECUTED_TESTS);
+			StageScheduler scheduler = new StageScheduler(
+					workspace.getMetrics());
+			DetectStage directories = new DetectStage("directories",
+					"Creating directories", "Directories created in") {
+				@Override
+				protected void execute() throws Exception {
+					createDirectories();
+					cleanDirectories();
+				}
+
+				@Override
+				protected void finished() {
+					triggersEvent(EventsDetect.CREATED_DIRECTORIES);
+				}
+			};
+			DetectStage javaCompilation = new DetectStage("javaCompilation",
+					"Compiling the project", "Project compiled in", directories) {
+				@Override
+				protected void execute() throws Exception {
+					javaCompile(sourceFolder, librariesFolder);
+				}
+
+				@Override
+				protected void finished() {
+					triggersEvent(EventsDetect.COMPILED_PROJECT);
+				}
+			};
+			DetectStage jmlCompilation = new DetectStage("jmlCompilation",
+					"Compiling the project with the JML compiler",
+					"Project compiled with the JML compiler in", directories) {
+				@Override
+				protected void execute() throws Exception {
+					jmlCompile(sourceFolder);
+					if (FileUtil.getListPathPrinted(workspace.getJmlBin(),
+							FileUtil.DIRECTORIES).equals(""))
+						throw new Exception("Couldn't compile the files.");
+				}
+			};
+			scheduler.addStage(directories);
+			scheduler.addStage(javaCompilation);
+			scheduler.addStage(jmlCompilation);
+			if (Constants.SATURATION_ROUND > 0) {
+				scheduler.addStage(new DetectStage("testsSaturation",
+						"Generating and running tests until saturation",
+						"Tests generated and ran in", javaCompilation,
+						jmlCompilation) {
+					@Override
+					protected void execute() throws Exception {
+						runUntilSaturation(librariesFolder, timeout);
+					}
+
+					@Override
+					protected void finished() {
+						triggersEvent(EventsDetect.EXECUTED_TESTS);
+					}
+				});
+			} else {
+				addTestsStages(scheduler, javaCompilation, jmlCompilation);
+			}
+			scheduler.execute();
+			System.out.println("Detection finished in "
+					+ ((double) countTime() * 0.001) + " seconds");
 		} catch (Exception e) {
 			throw new Exception(e.getMessage());
+		} finally {
+			stopProgressTicker();
 		}
 	}
 
 	/**
-	 * Initiates timer, to count seconds of each stages of Detect.
+	 * Add the stages that generate, compile and run the tests, once, to the
+	 * scheduler.
+	 * 
+	 * @param scheduler
+	 *            = the scheduler of the stages.
+	 * @param javaCompilation
+	 *            = the stage that compiles the project.
+	 * @param jmlCompilation
+	 *            = the stage that compiles the project with the JML compiler.
 	 */
-	private void initTimer() {
-		setStartTime(0);
-		countTime();
+	private void addTestsStages(StageScheduler scheduler,
+			DetectStage javaCompilation, DetectStage jmlCompilation) {
+		DetectStage testsGeneration = new DetectStage("testsGeneration",
+				"Generating tests", "Tests generated in", javaCompilation) {
+			@Override
+			protected void execute() throws Exception {
+				generateTestsForJava(librariesFolder, timeout);
+			}
+		};
+		DetectStage testsCompilation = new DetectStage("testsCompilation",
+				"Compiling tests", "Tests compiled in", testsGeneration) {
+			@Override
+			protected void execute() throws Exception {
+				compileTests(librariesFolder, timeout);
+			}
+
+			@Override
+			protected void finished() {
+				triggersEvent(EventsDetect.GENERATED_TESTS);
+			}
+		};
+		DetectStage testsExecution = new DetectStage("testsExecution",
+				"Running test into contract-based code", "Tests ran in",
+				testsCompilation, jmlCompilation) {
+			@Override
+			protected void execute() throws Exception {
+				runTests(librariesFolder);
+			}
+
+			@Override
+			protected void finished() {
+				triggersEvent(EventsDetect.EXECUTED_TESTS);
+			}
+		};
+		scheduler.addStage(testsGeneration);
+		scheduler.addStage(testsCompilation);
+		scheduler.addStage(testsExecution);
 	}
 
 	/**
-	 * Run a stage from Detection phase.
+	 * Generate, compile and run the tests in rounds of SATURATION_ROUND
+	 * seconds of generation, each one with new random seeds, until the time
+	 * of generation is spent or no new distinct nonconformance is found for
+	 * SATURATION_PATIENCE rounds.
 	 * 
-	 * @param iniMsg
-	 *            message introducing the stage.
-	 * @param finMsg
-	 *            message advising end of the stage.
-	 * @param stagesDetect
-	 *            which stage will be executed.
+	 * @param libFolder
+	 *            = the path to external libraries needed for the current SUT.
+	 * @param time
+	 *            = the whole time to tests generation.
 	 * @throws Exception
-	 *             When some stage shows some error.
-	 */
-	private void runStage(String iniMsg, String finMsg,
-			StagesDetect stagesDetect) throws Exception {
-		System.out.print(iniMsg + "...");
-		switch (stagesDetect) {
-		case CREATED_DIRECTORIES:
-			createDirectories();
-			cleanDirectories();
-			break;
-		case COMPILED_PROJECT:
-			compileProject(sourceFolder, librariesFolder);
-			break;
-		case GENERATED_TESTS:
-			generateTestsForJava(librariesFolder, timeout);
-			break;
-		case EXECUTED_TESTS:
-			runTests(librariesFolder);
-			break;
-		case ERROR_ON_DETECTION:
-			break;
-		default:
-			break;
+	 *             When some round shows some error.
+	 */
+	private void runUntilSaturation(String libFolder, String time)
+			throws Exception {
+		int remaining = time.trim().matches("\\d+") ? Integer.parseInt(time
+				.trim()) : Constants.SATURATION_ROUND;
+		int idle = 0;
+		int round = 0;
+		File previousRounds = new File(workspace.getTests(), "rounds");
+		try {
+			while (remaining > 0 && idle < Constants.SATURATION_PATIENCE) {
+				int slice = Math.min(Constants.SATURATION_ROUND, remaining);
+				remaining -= slice;
+				randomSeed = round * 1000;
+				if (round > 0) {
+					// The tests of the previous rounds are kept, under names
+					// of their own, for the categorization of the
+					// nonconformances they revealed.
+					keepRoundTests(testSource, previousRounds);
+					FileUtils.cleanDirectory(testSource);
+					FileUtils.cleanDirectory(testBin);
+					roundPrefix = "Round" + round;
+				}
+				int before = (streamed == null) ? 0 : streamed.size();
+				generateTestsForJava(libFolder, String.valueOf(slice));
+				compileTests(libFolder, String.valueOf(slice));
+				if (round == 0)
+					triggersEvent(EventsDetect.GENERATED_TESTS);
+				runTests(libFolder);
+				round++;
+				if (streamed == null) {
+					System.out.println("Saturation needs the tests to be run"
+							+ " by the tool, stopping after the first round.");
+					break;
+				}
+				int found = streamed.size() - before;
+				idle = (found == 0) ? idle + 1 : 0;
+				System.out.println("Round " + round + ": " + streamed.size()
+						+ " distinct nonconformances (+" + found + ")");
+			}
+		} finally {
+			roundPrefix = "";
+			if (previousRounds.exists()) {
+				keepRoundTests(previousRounds, testSource);
+				FileUtils.deleteQuietly(previousRounds);
+			}
 		}
-		System.out.println(finMsg + " " + ((double) countTime() * 0.001)
-				+ " seconds");
-		triggersEvent(stagesDetect);
+		workspace.getMetrics().setCount("saturationRounds", round);
+		if (remaining > 0)
+			System.out.println("Saturated after " + round + " rounds, "
+					+ remaining + " seconds of generation saved.");
 	}
 
-	private void compileProject(String sourceFolder, String librariesFolder)
-			throws Exception {
-		javaCompile(sourceFolder, librariesFolder);
-		jmlCompile(sourceFolder);
-		triggersEvent(StagesDetect.COMPILED_PROJECT);
+	/**
+	 * Copy the sources of the tests of one directory to another one.
+	 * 
+	 * @param from
+	 *            = the directory of the tests copied.
+	 * @param to
+	 *            = the directory where the tests are copied.
+	 * @throws IOException
+	 *             When some test cannot be copied.
+	 */
+	private void keepRoundTests(File from, File to) throws IOException {
+		for (File test : FileUtils.listFiles(from, new String[] { "java" },
+				false))
+			FileUtils.copyFileToDirectory(test, to);
+	}
+
+	/**
+	 * Starts to inform the listeners, each second, about the progress of the
+	 * Detection phase.
+	 */
+	private void startProgressTicker() {
+		progressTicker = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "jmlok-progress");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		progressTicker.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				triggersEvent(EventsDetect.PROGRESS);
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the progress ticker, informing the listeners about the final
+	 * progress.
+	 */
+	private void stopProgressTicker() {
+		if (progressTicker == null)
+			return;
+		progressTicker.shutdownNow();
+		triggersEvent(EventsDetect.PROGRESS);
+	}
+
+	/**
+	 * Get the counters of the work done by the Detection phase.
+	 * 
+	 * @return the counters of the work done.
+	 */
+	public DetectProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Initiates timer, to count seconds of the Detection phase.
+	 */
+	private void initTimer() {
+		setStartTime(0);
+		countTime();
 	}
 
 	/**
@@ -209,7 +469,7 @@ public class Detect {
 			className = className + "\n";
 			lines.append(className);
 		}
-		return DetectUtil.makeFile(Constants.CLASSES, lines.toString());
+		return DetectUtil.makeFile(workspace.getClasses(), lines.toString());
 	}
 
 	/**
@@ -257,54 +517,339 @@ public class Detect {
 	 */
 	public void javaCompile(String sourceFolder, String libFolder)
 			throws Exception {
-		final StringBuilder buff = new StringBuilder();
-		contractLib = contractLib + libFolder;
+		String jmlLib = contractLib + libFolder;
+		String key = newProjectKey("javac").add(javaCompilerIdentity())
+				.add(jmlLib)
+				.addFiles(accessFile("javaCompile.xml"), "", false).toHex();
+		List<File> sources = new ArrayList<File>(FileUtils.listFiles(new File(
+				sourceFolder), new String[] { "java" }, true));
+		if (cache.restore(key, javaBin)) {
+			System.out.println("Project classes restored from cache.");
+			progress.addFilesCompiled(sources.size());
+			return;
+		}
+		if (InProcessCompiler.isAvailable()) {
+			CompiledClasses classes = workspace.getCompiledClasses();
+			if (!InProcessCompiler.compileToMemory(sources, sourceFolder,
+					buildClasspath(jmlLib, libFolder), classes))
+				throw new Exception(
+						"Compile failed; see the compiler error output for details.");
+			System.out.println(classes.size() + " classes compiled.");
+			progress.addFilesCompiled(sources.size());
+			cache.store(key, classes);
+			return;
+		}
 		// Run ant file
 		Project p = new Project();
-		DefaultLogger consoleLogger = createLogger(buff);
+		StageLog log = createStageLog("javaCompile");
+		DefaultLogger consoleLogger = createLogger(log);
 		File buildFile = accessFile("javaCompile.xml");
 		p.setUserProperty("source_folder", sourceFolder);
-		p.setUserProperty("source_bin", Constants.JML_SOURCE_BIN);
+		p.setUserProperty("source_bin", workspace.getJmlSourceBin());
 		p.setUserProperty("lib", libFolder);
-		p.setUserProperty("jmlLib", contractLib);
-		runProject(buff, p, buildFile, "javaCompile.xml", "compile_project",
+		p.setUserProperty("jmlLib", jmlLib);
+		runProject(log, p, buildFile, "javaCompile.xml", "compile_project",
 				consoleLogger);
+		progress.addFilesCompiled(sources.size());
+		cache.store(key, javaBin);
 	}
 
 	/**
 	 * Method used to generate the tests to conformance checking on Java
-	 * projects.
+	 * projects. The classes are split into batches of generation by the
+	 * GenerationPlanner, and when the plan has more than one batch of classes
+	 * the batches are run by parallel Randoop workers.
 	 * 
 	 * @param libFolder
-	 *            = the path to external libraries needed to tests generation
-	 *            and compilation.
+	 *            = the path to external libraries needed to tests generation.
 	 * @param timeout
 	 *            = the time to tests generation.
 	 * @throws Exception
-	 *             When the XML cannot be read.
+	 *             When Randoop cannot be run.
 	 */
 	public void generateTestsForJava(String libFolder, String timeout)
 			throws Exception {
-		final StringBuilder buff = new StringBuilder();
-		contractLib = contractLib + libFolder;
+		workspace.getCompiledClasses().materialize();
 		// Run Randoop
 		String pathToRandoop = getJARPath() + Constants.FILE_SEPARATOR + "lib"
 				+ Constants.FILE_SEPARATOR + "randoop.jar";
-		runRandoop(libFolder, timeout, pathToRandoop);
+		List<String> classes = FileUtils.readLines(new File(workspace
+				.getClasses()), Charset.forName("UTF-8"));
+		classes.removeAll(Collections.singleton(""));
+		List<GenerationPlanner.Batch> batches = null;
+		if (timeout.trim().matches("\\d+"))
+			batches = new GenerationPlanner(sourceFolder).plan(classes,
+					Constants.RANDOOP_WORKERS);
+		if (batches == null || batches.size() <= 1) {
+			runRandoop(libFolder, pathToRandoop, (randomSeed == 0) ? DetectUtil
+					.getRandoopArguments(workspace, timeout) : DetectUtil
+					.getRandoopArguments(workspace, timeout, roundPrefix
+							+ "RandoopTest", randomSeed), "");
+			return;
+		}
+		runRandoopWorkers(libFolder, pathToRandoop, timeout.trim(), batches,
+				Math.min(Constants.RANDOOP_WORKERS, batches.size()));
+	}
+
+	/**
+	 * Run the batches of classes planned on parallel Randoop workers, each
+	 * batch with the whole time of generation and its own random seed, the
+	 * batches with higher scores first, and merge the tests generated into the tests directory under one
+	 * RandoopTest suite.
+	 * 
+	 * @param libFolder
+	 *            = the path to external libraries needed to tests generation.
+	 * @param pathToRandoop
+	 *            = location of Randoop JAR.
+	 * @param timeout
+	 *            = the time to tests generation of each batch.
+	 * @param batches
+	 *            = the batches of classes planned.
+	 * @param workers
+	 *            = the number of workers.
+	 * @throws Exception
+	 *             When the parts of the classes cannot be written.
+	 */
+	private void runRandoopWorkers(final String libFolder,
+			final String pathToRandoop, String timeout,
+			List<GenerationPlanner.Batch> batches, int workers)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		List<File> outputs = new ArrayList<File>();
+		for (int i = 0; i < batches.size(); i++) {
+			GenerationPlanner.Batch batch = batches.get(i);
+			StringBuilder part = new StringBuilder();
+			for (String name : batch.getClasses())
+				part.append(name).append("\n");
+			System.out.println("Batch " + i + ": "
+					+ batch.getClasses().size() + " classes, score "
+					+ Math.round(batch.getScore()));
+			File output = new File(workspace.getRandoopOutputFolder(),
+					"batch" + i);
+			FileUtils.deleteQuietly(output);
+			while (!output.exists()) {
+				output.mkdirs();
+			}
+			File classList = DetectUtil.makeFile(new File(output,
+					"classes.txt").getAbsolutePath(), part.toString());
+			// Suite names must not end with "Test", only RandoopTest is run.
+			String suite = roundPrefix + "RandoopWorker" + i + "Part";
+			final String[] arguments = DetectUtil.getRandoopArguments(
+					classList.getAbsolutePath(), timeout,
+					output.getAbsolutePath(), suite, randomSeed + i);
+			final String prefix = "[batch " + i + "] ";
+			outputs.add(output);
+			results.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					runRandoop(libFolder, pathToRandoop, arguments, prefix);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		mergeRandoopWorkers(outputs);
+	}
+
+	/**
+	 * Copy the tests generated by the Randoop workers into the tests
+	 * directory, and write the RandoopTest suite that runs all of them. The
+	 * suite references each test class, in the style of the tests: a JUnit 3
+	 * suite of new TestSuite(X.class) when all of them extend TestCase, or a
+	 * JUnit 4 suite of @SuiteClasses otherwise, so the TestSplitter can
+	 * update it when it splits some test class.
+	 * 
+	 * @param outputs
+	 *            = the directories of the tests of each worker.
+	 * @throws IOException
+	 *             When some test cannot be copied.
+	 */
+	private void mergeRandoopWorkers(List<File> outputs) throws IOException {
+		List<String> tests = new ArrayList<String>();
+		boolean junit4 = false;
+		for (File output : outputs) {
+			for (File test : FileUtils.listFiles(output,
+					new String[] { "java" }, false)) {
+				FileUtils.copyFileToDirectory(test, testSource);
+				if (!TestDeduplicator.hasTests(test))
+					continue;
+				tests.add(test.getName().replace(".java", ""));
+				if (!FileUtils.readFileToString(test, Charset.forName("UTF-8"))
+						.contains("extends TestCase"))
+					junit4 = true;
+			}
+		}
+		Collections.sort(tests);
+		String name = roundPrefix + "RandoopTest";
+		StringBuilder suite = new StringBuilder();
+		if (junit4) {
+			suite.append("import org.junit.runner.RunWith;\n");
+			suite.append("import org.junit.runners.Suite;\n\n");
+			suite.append("@RunWith(Suite.class)\n");
+			suite.append("@Suite.SuiteClasses({ ");
+			for (int i = 0; i < tests.size(); i++)
+				suite.append((i == 0) ? "" : ", ").append(tests.get(i))
+						.append(".class");
+			suite.append(" })\n");
+			suite.append("public class " + name + " {\n");
+			suite.append("}\n");
+		} else {
+			suite.append("import junit.framework.Test;\n");
+			suite.append("import junit.framework.TestCase;\n");
+			suite.append("import junit.framework.TestSuite;\n\n");
+			suite.append("public class " + name + " extends TestCase {\n\n");
+			suite.append("  public static Test suite() {\n");
+			suite.append("    TestSuite result = new TestSuite();\n");
+			for (String test : tests)
+				suite.append("    result.addTest(new TestSuite(" + test
+						+ ".class));\n");
+			suite.append("    return result;\n");
+			suite.append("  }\n");
+			suite.append("}\n");
+		}
+		DetectUtil.makeFile(new File(testSource, name + ".java")
+				.getAbsolutePath(), suite.toString());
+	}
+
+	/**
+	 * Method used to compile the tests generated to conformance checking on
+	 * Java projects.
+	 * 
+	 * @param libFolder
+	 *            = the path to external libraries needed to tests compilation.
+	 * @param timeout
+	 *            = the time to tests generation.
+	 * @throws Exception
+	 *             When the XML cannot be read.
+	 */
+	public void compileTests(String libFolder, String timeout)
+			throws Exception {
+		workspace.getCompiledClasses().materialize();
+		String jmlLib = contractLib + libFolder;
+		if (Constants.DEDUPLICATE_TESTS)
+			pruneTests();
+		splitTests();
+		String key = newProjectKey("javac-tests").add(javaCompilerIdentity())
+				.add(jmlLib)
+				.addFiles(accessFile("generateTests.xml"), "", false)
+				.addFiles(testSource, ".java", false).toHex();
+		int tests = FileUtils.listFiles(testSource, new String[] { "java" },
+				false).size();
+		if (cache.restore(key, testBin)) {
+			System.out.println("Tests classes restored from cache.");
+			progress.addTestsCompiled(tests);
+			return;
+		}
+		if (InProcessCompiler.isAvailable()) {
+			compileTestsInShards(jmlLib, libFolder);
+			progress.addTestsCompiled(tests);
+			cache.store(key, testBin);
+			return;
+		}
 		// Run ant file
 		Project p = new Project();
-		DefaultLogger consoleLogger = createLogger(buff);
+		StageLog log = createStageLog("compileTests");
+		DefaultLogger consoleLogger = createLogger(log);
 		File buildFile = accessFile("generateTests.xml");
-		p.setUserProperty("classes", Constants.CLASSES);
-		p.setUserProperty("source_bin", Constants.JML_SOURCE_BIN);
-		p.setUserProperty("tests_src", Constants.TEST_DIR);
-		p.setUserProperty("tests_bin", Constants.TEST_BIN);
-		p.setUserProperty("tests_folder", Constants.TESTS);
+		p.setUserProperty("classes", workspace.getClasses());
+		p.setUserProperty("source_bin", workspace.getJmlSourceBin());
+		p.setUserProperty("tests_src", workspace.getTestDir());
+		p.setUserProperty("tests_bin", workspace.getTestBin());
+		p.setUserProperty("tests_folder", workspace.getTests());
 		p.setUserProperty("lib", libFolder);
-		p.setUserProperty("jmlLib", contractLib);
+		p.setUserProperty("jmlLib", jmlLib);
 		p.setUserProperty("timeout", timeout);
-		runProject(buff, p, buildFile, "generateTests.xml",
+		runProject(log, p, buildFile, "generateTests.xml",
 				"compile_tests", consoleLogger);
+		progress.addTestsCompiled(tests);
+		cache.store(key, testBin);
+	}
+
+	/**
+	 * Compiles the tests generated inside the JVM of the tool, the test
+	 * classes split into shards compiled at the same time and the suites
+	 * compiled after them.
+	 * 
+	 * @param jmlLib
+	 *            = the path to the libraries of the JML compiler.
+	 * @param libFolder
+	 *            = the path to external libraries needed to tests compilation.
+	 * @throws Exception
+	 *             When the tests do not compile.
+	 */
+	private void compileTestsInShards(String jmlLib, String libFolder)
+			throws Exception {
+		List<File> tests = new ArrayList<File>();
+		List<File> suites = new ArrayList<File>();
+		for (File source : FileUtils.listFiles(testSource,
+				new String[] { "java" }, false)) {
+			if (TestDeduplicator.hasTests(source))
+				tests.add(source);
+			else
+				suites.add(source);
+		}
+		while (!testBin.exists()) {
+			testBin.mkdirs();
+		}
+		String classpath = buildClasspath(jmlLib, libFolder)
+				+ File.pathSeparator + workspace.getJmlSourceBin();
+		int shards = Math.min(Constants.TEST_COMPILE_WORKERS, tests.size());
+		if (!InProcessCompiler.compileInShards(tests, suites, classpath,
+				testBin, shards))
+			throw new Exception(
+					"Compile failed; see the compiler error output for details.");
+		System.out.println((tests.size() + suites.size())
+				+ " test classes compiled in " + Math.max(1, shards)
+				+ " shards.");
+	}
+
+	/**
+	 * Removes the duplicated tests generated, so they are neither compiled nor
+	 * run.
+	 * 
+	 * @throws IOException
+	 *             When some test class cannot be read or written.
+	 */
+	private void pruneTests() throws IOException {
+		TestDeduplicator deduplicator = new TestDeduplicator();
+		deduplicator.prune(testSource);
+		System.out.println("Tests pruned: " + deduplicator.getRemoved()
+				+ " of " + deduplicator.getTests()
+				+ " test methods were duplicated ("
+				+ deduplicator.getCharactersRemoved() + " characters removed).");
+		workspace.getMetrics().setCount("testsGenerated",
+				deduplicator.getTests());
+		workspace.getMetrics().setCount("testsPruned",
+				deduplicator.getRemoved());
+	}
+
+	/**
+	 * Splits the large test classes generated into smaller classes of
+	 * balanced sizes, so they are compiled faster.
+	 * 
+	 * @throws IOException
+	 *             When some test class cannot be read or written.
+	 */
+	private void splitTests() throws IOException {
+		TestSplitter splitter = new TestSplitter(Constants.TEST_CLASS_SIZE);
+		if (splitter.split(testSource) > 0)
+			System.out.println("Tests split: " + splitter.getCreated()
+					+ " test classes created.");
+		workspace.getMetrics().setCount("testClassesSplit",
+				splitter.getCreated());
 	}
 
 	/**
@@ -313,56 +858,72 @@ public class Detect {
 	 * @param libFolder
 	 *            = the path to external libraries needed to tests generation
 	 *            and compilation.
-	 * @param timeout
-	 *            = the time to tests generation.
 	 * @param pathToRandoop
 	 *            = location of Randoop JAR.
+	 * @param arguments
+	 *            = the arguments of Randoop.
+	 * @param prefix
+	 *            = the text put before each line of output of Randoop.
 	 * @throws IOException
 	 *             = bad command interpretation.
 	 * @throws InterruptedException
 	 *             = bad command.
 	 */
-	private void runRandoop(String libFolder, String timeout,
-			String pathToRandoop) throws IOException, InterruptedException {
-		Runtime runtime = Runtime.getRuntime();
-		Process proc = runtime.exec(DetectUtil.getCommandToUseRandoop(timeout,
-				pathToRandoop,
-				FileUtil.getListPathPrinted(libFolder, FileUtil.JAR_FILES)));
-		final InputStreamReader ou = new InputStreamReader(
-				proc.getInputStream());
-		final InputStreamReader er = new InputStreamReader(
-				proc.getErrorStream());
-		final BufferedReader bo = new BufferedReader(ou);
-		final BufferedReader be = new BufferedReader(er);
-		new Thread(new Runnable() {
+	private void runRandoop(String libFolder, String pathToRandoop,
+			String[] arguments, final String prefix) throws IOException,
+			InterruptedException {
+		String liblist = FileUtil.getListPathPrinted(libFolder,
+				FileUtil.JAR_FILES);
+		progress.startGeneration();
+		String process = ("randoop " + prefix).trim();
+		// The workers of each round of saturation are counted apart.
+		final String worker = roundPrefix + prefix;
+		OutputListener console = new OutputListener() {
 			@Override
-			public void run() {
-				String line = null;
-				try {
-					while ((line = bo.readLine()) != null) {
-						System.out.println(line);
-					}
-					ou.close();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+			public void outputLine(String line) {
+				Matcher generated = RANDOOP_PROGRESS.matcher(line);
+				if (generated.find())
+					progress.setSequencesGenerated(worker,
+							Long.parseLong(generated.group(1)));
+				System.out.println(prefix + line);
 			}
-		}).start();
-		new Thread(new Runnable() {
+
 			@Override
-			public void run() {
-				String line = null;
-				try {
-					while ((line = be.readLine()) != null) {
-						System.out.println(line);
-					}
-					er.close();
-				} catch (IOException e) {
-					e.printStackTrace();
+			public void errorLine(String line) {
+				System.out.println(prefix + line);
+			}
+		};
+		if (Constants.RANDOOP_IN_PROCESS) {
+			try {
+				if (new InProcessRandoop(DetectUtil.getClasspathToUseRandoop(
+						workspace, pathToRandoop, liblist), console).run(
+						arguments, randoopDeadline(arguments))) {
+					workspace.getMetrics().recordExitCode(process, 0);
+					return;
 				}
+				System.out.println("Randoop cannot be run inside the tool"
+						+ " from " + pathToRandoop + ", running it on a new JVM.");
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				System.out.println("Couldn't run Randoop inside the tool: "
+						+ e.getMessage() + ", running it on a new JVM.");
 			}
-		}).start();
-		int exitVal = proc.waitFor();
+		}
+		Runtime runtime = Runtime.getRuntime();
+		Process proc = runtime.exec(DetectUtil.getCommandToUseRandoop(
+				workspace, pathToRandoop, liblist, arguments));
+		gobble(proc.getInputStream(), console, false);
+		gobble(proc.getErrorStream(), console, true);
+		int exitVal;
+		try {
+			exitVal = proc.waitFor();
+		} catch (InterruptedException e) {
+			// Another stage failed, Randoop must not keep running.
+			proc.destroy();
+			throw e;
+		}
+		workspace.getMetrics().recordExitCode(process, exitVal);
 		if (exitVal != 0) {
 			System.out.println("Error reading: "
 					+ pathToRandoop
@@ -370,13 +931,31 @@ public class Detect {
 					+ "Couldn't run Randoop. Verify if command below works."
 					+ "Command Used -> "
 					+ DetectUtil.getCommandToUseRandoop(
-							timeout,
+							workspace,
 							pathToRandoop,
 							FileUtil.getListPathPrinted(libFolder,
-									FileUtil.JAR_FILES) + pathToRandoop));
+									FileUtil.JAR_FILES) + pathToRandoop,
+							arguments));
 		}
 	}
 
+	/**
+	 * Get the time Randoop run inside the tool is waited for: its time limit
+	 * and some time more to write the tests.
+	 * 
+	 * @param arguments
+	 *            = the arguments of Randoop.
+	 * @return the time, in milliseconds, or 0 for no limit.
+	 */
+	private long randoopDeadline(String[] arguments) {
+		for (String argument : arguments) {
+			String limit = argument.replace("--timelimit=", "").trim();
+			if (argument.startsWith("--timelimit=") && limit.matches("\\d+"))
+				return (Long.parseLong(limit) + RANDOOP_GRACE) * 1000L;
+		}
+		return 0;
+	}
+
 	/**
 	 * Method used to do the JML compilation of the files.
 	 * 
@@ -386,16 +965,124 @@ public class Detect {
 	 *             problem with ANT projects.
 	 */
 	public void jmlCompile(String sourceFolder) throws Exception {
-		final StringBuilder buff = new StringBuilder();
-		if (DetectUtil.hasDirectories(sourceFolder)) {
-			if (compiler == Constants.JMLC_COMPILER) {
-				runJMLCompiler(sourceFolder, buff, "jmlcCompiler.xml");
+		String nameFile = (DetectUtil.hasDirectories(sourceFolder)) ? "jmlcCompiler.xml"
+				: "jmlcCompiler2.xml";
+		if (compiler == Constants.JMLC_COMPILER) {
+			String key = newProjectKey("jmlc").add(jmlCompilerIdentity())
+					.addFiles(accessFile(nameFile), "", false).toHex();
+			if (cache.restore(key, jmlBin)) {
+				System.out.println("JML classes restored from cache.");
+				return;
 			}
-		} else {
-			if (compiler == Constants.JMLC_COMPILER) {
-				runJMLCompiler(sourceFolder, buff, "jmlcCompiler2.xml");
+			runJMLCompiler(sourceFolder, nameFile);
+			if (!FileUtil.getListPathPrinted(workspace.getJmlBin(),
+					FileUtil.DIRECTORIES).equals(""))
+				cache.store(key, jmlBin);
+		}
+	}
+
+	/**
+	 * Start a key of the artifact cache, containing the sources of the SUT and
+	 * the external libraries, used by all compilations.
+	 * 
+	 * @param compilation
+	 *            = the name of the compilation the key is for.
+	 * @return the key started.
+	 * @throws IOException
+	 *             When some file of the SUT cannot be read.
+	 */
+	private ArtifactCache.Key newProjectKey(String compilation)
+			throws IOException {
+		synchronized (cache) {
+			if (projectHash == null) {
+				ArtifactCache.Key key = ArtifactCache.newKey().addFiles(
+						new File(sourceFolder), "", true);
+				if (!librariesFolder.equals(""))
+					key.addFiles(new File(librariesFolder), ".jar", true);
+				projectHash = key.toHex();
 			}
 		}
+		return ArtifactCache.newKey().add(compilation).add(projectHash);
+	}
+
+	/**
+	 * Read in background the lines of an output of a process, delivering
+	 * them to the listener received.
+	 * 
+	 * @param stream
+	 *            = the output of the process.
+	 * @param listener
+	 *            = the listener of the lines read.
+	 * @param error
+	 *            = if the output is the error output of the process.
+	 */
+	private void gobble(InputStream stream, final OutputListener listener,
+			final boolean error) {
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(stream));
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				String line = null;
+				try {
+					while ((line = reader.readLine()) != null) {
+						if (error)
+							listener.errorLine(line);
+						else
+							listener.outputLine(line);
+					}
+					reader.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}).start();
+	}
+
+	/**
+	 * Build the classpath used on compilations, with the contract library and
+	 * all jars of the external libraries folder.
+	 * 
+	 * @param jmlLib
+	 *            = the path to the contract library.
+	 * @param libFolder
+	 *            = the path to external libraries.
+	 * @return the classpath, separated by the path separator of the System.
+	 */
+	private String buildClasspath(String jmlLib, String libFolder) {
+		StringBuilder classpath = new StringBuilder(String.valueOf(jmlLib));
+		File libs = new File(libFolder);
+		if (!libFolder.equals("") && libs.isDirectory()) {
+			for (File jar : FileUtils.listFiles(libs, new String[] { "jar" },
+					true)) {
+				classpath.append(File.pathSeparator).append(
+						jar.getAbsolutePath());
+			}
+		}
+		return classpath.toString();
+	}
+
+	/**
+	 * Identity of the Java compiler, used on keys of the artifact cache.
+	 * 
+	 * @return identity of the Java compiler.
+	 */
+	private String javaCompilerIdentity() {
+		return System.getProperty("java.home") + ";"
+				+ System.getProperty("java.vendor") + ";"
+				+ System.getProperty("java.version");
+	}
+
+	/**
+	 * Identity of the JML compiler, used on keys of the artifact cache.
+	 * 
+	 * @return identity of the JML compiler.
+	 */
+	private String jmlCompilerIdentity() {
+		File jmlc = new File((isWindows) ? (Constants.JMLC_SRC + "jmlc.bat")
+				: (Constants.JMLC_SRC + "jmlc-unix"));
+		return jmlc.getAbsolutePath() + ";" + jmlc.lastModified() + ";"
+				+ jmlc.length();
 	}
 
 	/**
@@ -403,23 +1090,22 @@ public class Detect {
 	 * 
 	 * @param sourceFolder
 	 *            = the source of files to be compiled.
-	 * @param buff
-	 *            = where error an log will be printed.
 	 * @param nameFile
 	 *            = name of .xml to be executed.
 	 * @throws Exception
 	 *             problems with ANT projects.
 	 */
-	private void runJMLCompiler(String sourceFolder, final StringBuilder buff,
-			String nameFile) throws Exception {
+	private void runJMLCompiler(String sourceFolder, String nameFile)
+			throws Exception {
 		Project p = new Project();
-		DefaultLogger consoleLogger = createLogger(buff);
+		StageLog log = createStageLog("jmlCompile");
+		DefaultLogger consoleLogger = createLogger(log);
 		File buildFile = setJMLProperties(sourceFolder, nameFile, p);
 
 		p.setUserProperty("jmlcExec",
 				(isWindows) ? (Constants.JMLC_SRC + "jmlc.bat")
 						: (Constants.JMLC_SRC + "jmlc-unix"));
-		runProject(buff, p, buildFile, nameFile, "jmlc", consoleLogger);
+		runProject(log, p, buildFile, nameFile, "jmlc", consoleLogger);
 	}
 
 	/**
@@ -438,12 +1124,14 @@ public class Detect {
 		File buildFile;
 		buildFile = accessFile(nameFile);
 		p.setUserProperty("source_folder", sourceFolder);
-		p.setUserProperty("jmlBin", Constants.JML_BIN);
+		p.setUserProperty("jmlBin", workspace.getJmlBin());
 		return buildFile;
 	}
 
 	/**
-	 * Method used to run the tests with the JML oracles.
+	 * Method used to run the tests with the JML oracles, inside the JVM of the
+	 * tool, or by the ANT junit task on a new JVM when they cannot be run
+	 * inside it.
 	 * 
 	 * @param libFolder
 	 *            = the path to external libraries needed to tests execution.
@@ -463,26 +1151,77 @@ public class Detect {
 	 *             problems with ANT project.
 	 */
 	private void runTestsOnJava(String libFolder) throws Exception {
-		final StringBuilder buff = new StringBuilder();
+		// Kept between the rounds of the saturation mode.
+		final NonconformanceRegistry found = (streamed != null) ? streamed
+				: new NonconformanceRegistry();
+		ParallelTestRunner runner = new ParallelTestRunner(
+				testClasspath(libFolder), testBin, testSource,
+				Constants.TEST_WORKERS, Constants.TEST_TIMEOUT);
+		runner.setProgress(progress);
+		runner.setTestResultListener(new TestResultListener() {
+			@Override
+			public void errorFound(Nonconformance error) {
+				if (error.isNonconformance() && found.register(error))
+					triggersEvent(EventsDetect.FOUND_NONCONFORMANCE, error);
+			}
+		});
+		try {
+			if (runner.run()) {
+				streamed = found;
+				return;
+			}
+			System.out
+					.println("JUnit not found on the libraries, or System.exit cannot be guarded, running the tests with ANT.");
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			System.err.println("Error in method Detect.runTestsOnJava()");
+			e.printStackTrace();
+			System.out
+					.println("The tests could not be run inside the tool, running the tests with ANT.");
+		}
 		// Run ant file
 		Project p = new Project();
-		DefaultLogger consoleLogger = createLogger(buff);
+		StageLog log = createStageLog("runTests");
+		DefaultLogger consoleLogger = createLogger(log);
 		File buildFile = accessFile("runTests.xml");
 		p.setUserProperty("lib", libFolder);
-		p.setUserProperty("jmlBin", Constants.JML_BIN);
+		p.setUserProperty("jmlBin", workspace.getJmlBin());
 		if (compiler == Constants.JMLC_COMPILER)
 			p.setUserProperty("jmlCompiler", Constants.JMLC_SRC);
-		p.setUserProperty("tests_src", Constants.TEST_DIR);
-		p.setUserProperty("tests_bin", Constants.TEST_BIN);
-		runProject(buff, p, buildFile, "runTests.xml", "run_tests",
+		p.setUserProperty("tests_src", workspace.getTestDir());
+		p.setUserProperty("tests_bin", workspace.getTestBin());
+		runProject(log, p, buildFile, "runTests.xml", "run_tests",
 				consoleLogger);
 	}
 
 	/**
-	 * Run specify ANT project.
+	 * Build the classpath used on tests execution, the same of the ANT
+	 * runTests.xml file.
 	 * 
-	 * @param buff
-	 *            = where log will be printed.
+	 * @param libFolder
+	 *            = the path to external libraries needed to tests execution.
+	 * @return the files of the classpath.
+	 */
+	private List<File> testClasspath(String libFolder) {
+		List<File> classpath = new ArrayList<File>();
+		classpath.add(jmlBin);
+		classpath.add(testBin);
+		File libs = new File(libFolder);
+		if (!libFolder.equals("") && libs.isDirectory())
+			classpath.addAll(FileUtils.listFiles(libs, new String[] { "jar" },
+					true));
+		if (compiler == Constants.JMLC_COMPILER)
+			classpath.add(new File(Constants.JMLC_SRC, "jmlruntime.jar"));
+		return classpath;
+	}
+
+	/**
+	 * Run specify ANT project. The log of the project is closed at the end,
+	 * and its last lines are printed on console.
+	 * 
+	 * @param log
+	 *            = where log will be written.
 	 * @param p
 	 *            = project to be run.
 	 * @param buildFile
@@ -496,50 +1235,60 @@ public class Detect {
 	 * @throws Exception
 	 *             parsing or executing ANT problems.
 	 */
-	private void runProject(final StringBuilder buff, Project p,
-			File buildFile, String nameFile, String targetName,
-			DefaultLogger consoleLogger) throws Exception {
-		p.addBuildListener(consoleLogger);
-		p.init();
-		ProjectHelper helper = ProjectHelper.getProjectHelper();
-		p.addReference("ant.projectHelper", helper);
-		try {
-			helper.parse(p, buildFile);
-		} catch (Exception e) {
-			System.out.println(buff.toString());
-			throw new Exception("Error while trying to parse file " + "ant"
-					+ Constants.FILE_SEPARATOR + nameFile
-					+ " Running directory: " + getJARPath());
-		}
+	private void runProject(StageLog log, Project p, File buildFile,
+			String nameFile, String targetName, DefaultLogger consoleLogger)
+			throws Exception {
 		try {
-			p.executeTarget(targetName);
-		} catch (Exception e) {
-			System.out.println(buff.toString());
-			throw new Exception(e.getMessage());
+			p.addBuildListener(consoleLogger);
+			p.init();
+			ProjectHelper helper = ProjectHelper.getProjectHelper();
+			p.addReference("ant.projectHelper", helper);
+			try {
+				helper.parse(p, buildFile);
+			} catch (Exception e) {
+				throw new Exception("Error while trying to parse file " + "ant"
+						+ Constants.FILE_SEPARATOR + nameFile
+						+ " Running directory: " + getJARPath());
+			}
+			try {
+				p.executeTarget(targetName);
+			} catch (Exception e) {
+				throw new Exception(e.getMessage());
+			}
+		} finally {
+			log.close();
+			System.out.print(log.getTail());
 		}
-		System.out.println(buff.toString());
 	}
 
 	/**
-	 * Defines an Logger to transmit info about ANT execution to an
-	 * StringBuffer.
+	 * Creates the log of a stage, inside the logs directory of the
+	 * workspace.
 	 * 
-	 * @param buff
-	 *            buffer that will receive info about ANT execution.
-	 * @return Logger to transmit info about ANT execution to an StringBuffer.
+	 * @param name
+	 *            = the name of the stage.
+	 * @return the log of the stage.
+	 * @throws IOException
+	 *             When the file of the log cannot be created.
+	 */
+	private StageLog createStageLog(String name) throws IOException {
+		return new StageLog(new File(workspace.getLogs(), name + ".log"),
+				Constants.LOG_TAIL_LINES, Charset.defaultCharset());
+	}
+
+	/**
+	 * Defines an Logger to transmit info about ANT execution to the log of a
+	 * stage.
+	 * 
+	 * @param log
+	 *            = the log that will receive info about ANT execution.
+	 * @return Logger to transmit info about ANT execution to the log.
 	 */
-	private DefaultLogger createLogger(final StringBuilder buff) {
+	private DefaultLogger createLogger(StageLog log) {
 		DefaultLogger consoleLogger = new DefaultLogger();
-		consoleLogger.setErrorPrintStream(new PrintStream(new OutputStream() {
-			public void write(int b) throws IOException {
-				buff.append(String.valueOf((char) b));
-			}
-		}));
-		consoleLogger.setOutputPrintStream(new PrintStream(new OutputStream() {
-			public void write(int b) throws IOException {
-				buff.append(String.valueOf((char) b));
-			}
-		}));
+		PrintStream stream = new PrintStream(log, false);
+		consoleLogger.setErrorPrintStream(stream);
+		consoleLogger.setOutputPrintStream(stream);
 		consoleLogger.setMessageOutputLevel(Project.MSG_INFO);
 		return consoleLogger;
 	}
@@ -621,13 +1370,27 @@ public class Detect {
 	}
 
 	/**
-	 * Trigger event to be detected by all listeners of Detect.
+	 * Trigger event to be detected by all listeners of Detect. Stages may
+	 * finish at the same time, so listeners are informed one event at a time.
 	 * 
 	 * @param stage
 	 *            stage of execution of Detection phase.
 	 */
-	private void triggersEvent(StagesDetect stage) {
-		DetectEvent e = new DetectEvent(this);
+	private void triggersEvent(EventsDetect stage) {
+		triggersEvent(stage, null);
+	}
+
+	/**
+	 * Triggers an event to the listeners of Detect.
+	 * 
+	 * @param stage
+	 *            = the event triggered.
+	 * @param nc
+	 *            = the nonconformance of the event, or null.
+	 */
+	private synchronized void triggersEvent(EventsDetect stage,
+			Nonconformance nc) {
+		DetectEvent e = new DetectEvent(this, nc);
 		for (DetectListener l : detectListeners) {
 			switch (stage) {
 			case CREATED_DIRECTORIES:
@@ -642,6 +1405,12 @@ public class Detect {
 			case EXECUTED_TESTS:
 				l.detectExecutedTests(e);
 				break;
+			case FOUND_NONCONFORMANCE:
+				l.detectFoundNonconformance(e);
+				break;
+			case PROGRESS:
+				l.detectProgress(e);
+				break;
 			case ERROR_ON_DETECTION:
 				l.detectErrorOnGeneratingTests(e);
 				break;
@@ -658,4 +1427,4 @@ public class Detect {
 	public synchronized void removeDetectListener(DetectListener l) {
 		detectListeners.remove(l);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package detect;
+
+/**
+ * Adapter class for receiving events thrown by Detect. The methods of this
+ * class are empty, so only the events of interest need to be overridden.
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public abstract class DetectAdapter implements DetectListener {
+
+	public void detectCreatedDirectories(DetectEvent e) {
+	}
+
+	public void detectCompiledProject(DetectEvent e) {
+	}
+
+	public void detectGeneratedTests(DetectEvent e) {
+	}
+
+	public void detectExecutedTests(DetectEvent e) {
+	}
+
+	public void detectFoundNonconformance(DetectEvent e) {
+	}
+
+	public void detectProgress(DetectEvent e) {
+	}
+
+	public void detectErrorOnGeneratingTests(DetectEvent e) {
+	}
+
+}
@@ -1,5 +1,8 @@
 package detect;
 
+import utils.datastructure.DetectProgress;
+import utils.datastructure.Nonconformance;
+
 /**
  * Event class used to define events thrown by Detect.
  * @author Alysson Milanez and Dennis Sousa.
@@ -11,9 +14,36 @@ public class DetectEvent extends java.util.EventObject {
 	 * Event for Detect monitoring stages.
 	 */
 	private static final long serialVersionUID = 1L;
+	private transient Nonconformance nonconformance;
 
 	public DetectEvent(Detect source) {
 		super(source);
 	}
 
+	/**
+	 * Creates an event about a nonconformance revealed by the tests.
+	 * @param source the Detect that revealed the nonconformance.
+	 * @param nonconformance the nonconformance revealed.
+	 */
+	public DetectEvent(Detect source, Nonconformance nonconformance) {
+		super(source);
+		this.nonconformance = nonconformance;
+	}
+
+	/**
+	 * Get the counters of the work done by Detect until this event.
+	 * @return the counters of the work done by Detect.
+	 */
+	public DetectProgress getProgress() {
+		return ((Detect) getSource()).getProgress();
+	}
+
+	/**
+	 * Get the nonconformance revealed, on detectFoundNonconformance events.
+	 * @return the nonconformance revealed, or null on the other events.
+	 */
+	public Nonconformance getNonconformance() {
+		return nonconformance;
+	}
+
 }
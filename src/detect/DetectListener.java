@@ -12,6 +12,19 @@ public interface DetectListener extends java.util.EventListener{
 	void detectGeneratedTests(DetectEvent e);
 	void detectExecutedTests(DetectEvent e);
 	
+	/**
+	 * Called, while the tests are still running, for each distinct
+	 * nonconformance as soon as it is revealed by a test.
+	 * @param e the event, whose nonconformance is the one revealed.
+	 */
+	void detectFoundNonconformance(DetectEvent e);
+	
+	/**
+	 * Called each second while Detect runs, to inform its progress.
+	 * @param e the event, whose progress has the counters of the work done.
+	 */
+	void detectProgress(DetectEvent e);
+	
 	void detectErrorOnGeneratingTests(DetectEvent e);
 	
 }
@@ -0,0 +1,98 @@
+package detect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that represents one stage of the Detection phase. A stage declares the
+ * stages it depends on, and is executed by the StageScheduler as soon as all
+ * of them have finished.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public abstract class DetectStage {
+	private String name;
+	private String iniMsg;
+	private String finMsg;
+	private List<DetectStage> dependencies;
+
+	/**
+	 * Creates a new stage of the Detection phase.
+	 *
+	 * @param name
+	 *            = the name of the stage, used on the metrics.
+	 * @param iniMsg
+	 *            = message introducing the stage.
+	 * @param finMsg
+	 *            = message advising end of the stage.
+	 * @param dependencies
+	 *            = the stages that must finish before this one starts.
+	 */
+	public DetectStage(String name, String iniMsg, String finMsg,
+			DetectStage... dependencies) {
+		this.name = name;
+		this.iniMsg = iniMsg;
+		this.finMsg = finMsg;
+		this.dependencies = new ArrayList<DetectStage>(
+				Arrays.asList(dependencies));
+	}
+
+	/**
+	 * Work done by this stage.
+	 *
+	 * @throws Exception
+	 *             When the stage shows some error.
+	 */
+	protected abstract void execute() throws Exception;
+
+	/**
+	 * Called after the stage finished with no errors. Used to inform the
+	 * listeners of Detect.
+	 */
+	protected void finished() {
+	}
+
+	/**
+	 * Run the stage, informing on console when it starts and how long it took.
+	 *
+	 * @throws Exception
+	 *             When the stage shows some error.
+	 */
+	public void run() throws Exception {
+		System.out.println(iniMsg + "...");
+		long start = System.nanoTime();
+		execute();
+		System.out.println(finMsg + " "
+				+ ((double) (System.nanoTime() - start) * 1e-9) + " seconds");
+		finished();
+	}
+
+	/**
+	 * Get the stages that must finish before this one starts.
+	 *
+	 * @return the stages that must finish before this one starts.
+	 */
+	public List<DetectStage> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * Get the name of the stage.
+	 *
+	 * @return the name of the stage.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the message introducing the stage.
+	 *
+	 * @return the message introducing the stage.
+	 */
+	public String getIniMsg() {
+		return iniMsg;
+	}
+}
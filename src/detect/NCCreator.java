@@ -1,21 +1,23 @@
 package detect;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import utils.commons.Constants;
+import utils.commons.Workspace;
 import utils.datastructure.Nonconformance;
+import utils.datastructure.NonconformanceRegistry;
+import utils.detect.TestResultListener;
+import utils.detect.TestResultParser;
+import utils.detect.TextTestResultParser;
+import utils.detect.XMLTestResultParser;
 
 /**
  * Class used to creates the file with the distinct nonconformances detected by
@@ -30,13 +32,18 @@ public class NCCreator {
 	 * number of NCs to the user of JMLOK).
 	 */
 	private int ncCount;
+	private Workspace workspace;
 
 	/**
 	 * The constructor of this class, creates a new instance of Result Producer
 	 * class, and initializes the nonconformances counter.
+	 * 
+	 * @param workspace
+	 *            = the workspace of the current execution.
 	 */
-	public NCCreator() {
+	public NCCreator(Workspace workspace) {
 		ncCount = 0;
+		this.workspace = workspace;
 	}
 
 	/**
@@ -51,119 +58,96 @@ public class NCCreator {
 
 	/**
 	 * Method used to list the distinct nonconformances that were detected by
-	 * the JMLOK tool.
+	 * the JMLOK tool. All test result files of the tests directory are read
+	 * in parallel.
 	 * 
 	 * @param compiler
 	 *            = the integer that indicates the JML compiler used.
 	 * @return - the of list the distinct nonconformances that were detected by
 	 *         the JMLOK tool.
 	 */
-	public Set<Nonconformance> listNonconformances(int compiler) {
-		File results;
-		results = new File(Constants.TEST_RESULTS);
-		Set<Nonconformance> result;
-		if (compiler == Constants.JMLC_COMPILER) {
-			result = getErrorsFromXML(results);
-		} else {
-			result = getErrorsFromFile(results);
+	public Set<Nonconformance> listNonconformances(final int compiler) {
+		final NonconformanceRegistry registry = new NonconformanceRegistry();
+		List<File> reports = listReports();
+		int threads = Math.max(1, Math.min(reports.size(), Runtime
+				.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> readings = new ArrayList<Future<?>>();
+		for (final File report : reports) {
+			readings.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					TestResultParser parser;
+					if (compiler == Constants.JMLC_COMPILER) {
+						parser = new XMLTestResultParser();
+					} else {
+						parser = new TextTestResultParser();
+					}
+					getErrors(report, parser, registry);
+				}
+			}));
 		}
-		this.ncCount = result.size();
-		return result;
+		try {
+			for (Future<?> reading : readings)
+				reading.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		} finally {
+			executor.shutdownNow();
+		}
+		this.ncCount = registry.size();
+		return registry.getNonconformances();
 	}
 
 	/**
-	 * Method used to get the nonconformances from the result file of Randoop,
-	 * when the jmlc is used as compiler.
+	 * Method that lists the test result files, one for each test suite run.
 	 * 
-	 * @param file
-	 *            = the path to result file of Randoop.
-	 * @return - the list of nonconformances present in the test result file.
+	 * @return - the test result files of the tests directory.
 	 */
-	private Set<Nonconformance> getErrorsFromXML(File file) {
-		Set<Nonconformance> result = new HashSet<Nonconformance>();
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		dbf.setNamespaceAware(false);
-		DocumentBuilder docBuilder;
-		try {
-			docBuilder = dbf.newDocumentBuilder();
-			Document xml = docBuilder.parse(file);
-			NodeList list = xml.getDocumentElement().getElementsByTagName(
-					"testcase");
-			for (int i = 0; i < list.getLength(); i++) {
-				Element testcase = (Element) list.item(i);
-				if (testcase.hasChildNodes()) {
-					NodeList subNodes = testcase.getChildNodes();
-					for (int j = 0; j < subNodes.getLength(); j++) {
-						if (subNodes.item(j) instanceof Element) {
-							Element problem = (Element) subNodes.item(j);
-							if (problem.getTagName().equals("error")) {
-								String name = testcase.getAttribute("name");
-								String testFile = testcase
-										.getAttribute("classname") + ".java";
-								String errorType = problem.getAttribute("type");
-								String message = problem
-										.getAttribute("message");
-								String detailedErrorMessage = problem
-										.getFirstChild().toString();
-								Nonconformance te = new Nonconformance(name,
-										testFile, message, errorType,
-										detailedErrorMessage);
-								if (te.isNonconformance()) {
-									result.add(te);
-								}
-							}
-						}
-					}
-				}
+	private List<File> listReports() {
+		List<File> reports = new ArrayList<File>();
+		File[] files = new File(workspace.getTestDir()).listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (file.isFile() && name.startsWith("TEST-")
+						&& name.endsWith(".xml"))
+					reports.add(file);
 			}
-		} catch (ParserConfigurationException e) {
-			e.printStackTrace();
-		} catch (SAXException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
-		return result;
+		if (reports.isEmpty())
+			reports.add(new File(workspace.getTestResults()));
+		Collections.sort(reports);
+		return reports;
 	}
 
 	/**
-	 * Method used to get the nonconformances from the result file of Randoop,
-	 * when the OpenJml is used as compiler.
+	 * Method used to get the nonconformances from a result file of Randoop.
+	 * The file is read as a stream, registering only the nonconformances
+	 * found.
 	 * 
 	 * @param file
 	 *            = the path to result file of Randoop.
-	 * @return - the list of nonconformances present in the test result file.
+	 * @param parser
+	 *            = the reader of the format of the result file.
+	 * @param registry
+	 *            = where the nonconformances found are registered.
 	 */
-	private Set<Nonconformance> getErrorsFromFile(File file) {
-		Set<Nonconformance> result = new HashSet<Nonconformance>();
+	private void getErrors(File file, TestResultParser parser,
+			final NonconformanceRegistry registry) {
 		try {
-			FileReader f = new FileReader(file);
-			BufferedReader in = new BufferedReader(f);
-			String line = "";
-			while ((line = in.readLine()) != null) {
-				StringBuilder text = new StringBuilder();
-				if (line.contains("JML ")) {
-					text.append(in.readLine());
-					if (!line.contains(Nonconformance.CategoryType.PRECONDITION
-							.getName())) {
-						in.readLine();
-						text.append(in.readLine());
-						text.append(in.readLine());
-						text.append("\n");
-					}
-					Nonconformance te = new Nonconformance(text.toString(),
-							line, "");
-					if (te.isNonconformance()) {
-						result.add(te);
+			parser.parse(file, new TestResultListener() {
+				@Override
+				public void errorFound(Nonconformance error) {
+					if (error.isNonconformance()) {
+						registry.register(error);
 					}
 				}
-			}
-			in.close();
-		} catch (FileNotFoundException e1) {
-			e1.printStackTrace();
+			});
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
-		return result;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package detect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import utils.commons.MetricsRegistry;
+
+/**
+ * Class used to execute the stages of the Detection phase following their
+ * dependencies, so independent stages (like the JML compilation and the tests
+ * generation) run at the same time.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class StageScheduler {
+	private List<DetectStage> stages;
+	private MetricsRegistry metrics;
+
+	/**
+	 * Creates a new scheduler with no stages.
+	 */
+	public StageScheduler() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new scheduler with no stages, recording the time and memory
+	 * spent by each stage on the metrics received.
+	 *
+	 * @param metrics
+	 *            = the metrics of the execution, or null to record nothing.
+	 */
+	public StageScheduler(MetricsRegistry metrics) {
+		this.stages = new ArrayList<DetectStage>();
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Add a stage to be executed. Its dependencies must be added before it.
+	 *
+	 * @param stage
+	 *            = the stage to be added.
+	 */
+	public void addStage(DetectStage stage) {
+		for (DetectStage dependency : stage.getDependencies()) {
+			if (!stages.contains(dependency))
+				throw new IllegalArgumentException("Stage \""
+						+ stage.getIniMsg()
+						+ "\" depends on a stage not yet scheduled.");
+		}
+		stages.add(stage);
+	}
+
+	/**
+	 * Execute all stages, each one starting as soon as its dependencies have
+	 * finished. When some stage fails, the stages still running are
+	 * interrupted and the error is thrown.
+	 *
+	 * @throws Exception
+	 *             When some stage shows some error.
+	 */
+	public void execute() throws Exception {
+		if (stages.isEmpty())
+			return;
+		ExecutorService executor = Executors.newFixedThreadPool(stages.size());
+		CompletionService<Void> completion = new ExecutorCompletionService<Void>(
+				executor);
+		Map<DetectStage, Future<Void>> futures = new HashMap<DetectStage, Future<Void>>();
+		try {
+			for (final DetectStage stage : stages) {
+				final List<Future<Void>> waitFor = new ArrayList<Future<Void>>();
+				for (DetectStage dependency : stage.getDependencies())
+					waitFor.add(futures.get(dependency));
+				futures.put(stage, completion.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (Future<Void> dependency : waitFor)
+							dependency.get();
+						if (metrics == null) {
+							stage.run();
+							return null;
+						}
+						MetricsRegistry.Timer timer = metrics.start(stage
+								.getName());
+						boolean succeeded = false;
+						try {
+							stage.run();
+							succeeded = true;
+						} finally {
+							timer.stop(succeeded);
+						}
+						return null;
+					}
+				}));
+			}
+			for (int i = 0; i < stages.size(); i++) {
+				try {
+					completion.take().get();
+				} catch (ExecutionException e) {
+					throw causeOf(e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Take the error that originated the failure of a stage, since the stages
+	 * depending on a failed one fail with its error wrapped.
+	 *
+	 * @param e
+	 *            = the error thrown by the stage.
+	 * @return the original error.
+	 */
+	private Exception causeOf(ExecutionException e) {
+		Throwable cause = e;
+		while (cause instanceof ExecutionException && cause.getCause() != null)
+			cause = cause.getCause();
+		if (cause instanceof Exception)
+			return (Exception) cause;
+		return new Exception(cause);
+	}
+}
@@ -262,7 +262,7 @@ public class CategorizationScreenAdvisorFrame extends JFrame {
 			listNonconformances.setSelectedIndex(0);
 			setChangesFromSelectionOnTheList();
 		}
-		Path source = (new File(Constants.RESULTS)).toPath();
+		Path source = (new File(controller.getWorkspace().getResults())).toPath();
 		try {
 			Files.copy(source, source, StandardCopyOption.REPLACE_EXISTING);
 		} catch (IOException e1) {
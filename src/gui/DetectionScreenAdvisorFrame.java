@@ -1,10 +1,13 @@
 package gui;
 
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.util.ArrayList;
 import java.util.List;
 import javax.swing.ImageIcon;
@@ -16,11 +19,13 @@ import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.SpringLayout;
-import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
-import org.apache.commons.io.output.ByteArrayOutputStream;
+import javax.swing.text.BadLocationException;
+import utils.commons.ConsoleChannel;
 import utils.commons.Constants;
 import utils.commons.FileUtil;
+import utils.datastructure.DetectProgress;
 import controller.Controller;
 import detect.Detect;
 import detect.DetectEvent;
@@ -37,17 +42,19 @@ public class DetectionScreenAdvisorFrame extends JFrame {
 	private static final long serialVersionUID = 7840357361061019283L;
 	private static final int WIDTH = 700;
 	private static final int HEIGHT = 400;
+	// Value of the progress bar when the tests start to be executed.
+	private static final int TESTS_PROGRESS = 80;
+	// Interval, in milliseconds, between two updates of the console.
+	private static final int CONSOLE_REFRESH = 100;
 	private JPanel contentPane;
 	private boolean detectionSuceeded;
 	private SpringLayout springLayout;
-	private ByteArrayOutputStream baos;
+	private ConsoleChannel console;
+	private Timer consoleTimer;
 	private JTextArea textArea;
 	private JButton btnNonconformances;
 	private JProgressBar progressBar;
 	private JLabel lblDetectionPhaseIs;
-	private SwingWorker<Object, Object> worker;
-	protected int seconds = 1000;
-	protected double velNumPerSec = 2;
 	private Controller controller;
 	private JButton btnCategorization;
 
@@ -56,7 +63,7 @@ public class DetectionScreenAdvisorFrame extends JFrame {
 	 * 
 	 * @param controller
 	 */
-	public DetectionScreenAdvisorFrame(Detect d, ByteArrayOutputStream caos,
+	public DetectionScreenAdvisorFrame(Detect d, ConsoleChannel console,
 			Controller controller) {
 		this.controller = controller;
 		setDetectionSuceeded(true);
@@ -119,7 +126,7 @@ public class DetectionScreenAdvisorFrame extends JFrame {
 		// Text Area
 		textArea = new JTextArea();
 		scrollPane.setViewportView(textArea);
-		baos = caos;
+		this.console = console;
 		textArea.setEditable(false);
 		// Progress Bar
 		progressBar = new JProgressBar(0, 100);
@@ -149,51 +156,49 @@ public class DetectionScreenAdvisorFrame extends JFrame {
 		contentPane.add(btnCategorization);
 		// Start monitoring progress
 		addListeners(d);
-		startProgressWorker();
+		progressBar.setString("");
+		startConsole();
 	}
 
 	/**
-	 * Restart progress worker. Stop worker, set progressBar value to a point,
-	 * and then start progress worker to increase its value.
-	 * 
-	 * @param progressNumberToSet
-	 *            Value to set progress.
+	 * Start to show the console output on the text area. The lines printed
+	 * are taken in batches from the Event Dispatch Thread, and only the last
+	 * lines are kept on the text area.
 	 */
-	private void restartProgressWorker(int progressNumberToSet) {
-		stopProgress();
-		progressBar.setValue(progressNumberToSet);
-		startProgressWorker();
-	}
-
-	/**
-	 * Stop progress of progress bar, useful when Error surges.
-	 */
-	private void stopProgress() {
-		if (!worker.isDone())
-			worker.cancel(true);
+	private void startConsole() {
+		consoleTimer = new Timer(CONSOLE_REFRESH, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refreshConsole();
+			}
+		});
+		consoleTimer.start();
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentHidden(ComponentEvent e) {
+				consoleTimer.stop();
+			}
+		});
 	}
 
 	/**
-	 * Put progress worker to action. The progress bar then keep increasing
-	 * until the verge of current stage.
+	 * Show the progress of the Detect phase: the counters of the work done,
+	 * and, while the tests are executed, the part of the tests already run.
+	 * 
+	 * @param progress
+	 *            The counters of the work done by Detect.
 	 */
-	private void startProgressWorker() {
-		worker = new SwingWorker<Object, Object>() {
-			double velocity = velNumPerSec;
-
-			@Override
-			protected Void doInBackground() throws Exception {
-				// Simulate doing something useful.
-				for (int i = 0; i < 20; i++) {
-					Thread.sleep((long) (seconds / velocity));
-					int percent = progressBar.getValue();
-					progressBar.setValue(percent + 1);
-					velocity /= 2;
+	private void showProgress(final DetectProgress progress) {
+		EventQueue.invokeLater(new Runnable() {
+			public void run() {
+				progressBar.setString(progress.describe());
+				int total = progress.getTestsTotal();
+				if (total > 0 && progressBar.getValue() >= TESTS_PROGRESS) {
+					int executed = progress.getTestsExecuted();
+					progressBar.setValue(TESTS_PROGRESS
+							+ (100 - TESTS_PROGRESS) * executed / total);
 				}
-				return null;
 			}
-		};
-		worker.execute();
+		});
 	}
 
 	/**
@@ -234,46 +239,78 @@ public class DetectionScreenAdvisorFrame extends JFrame {
 		d.addDetectListener(new DetectListener() {
 			@Override
 			public void detectCreatedDirectories(DetectEvent e) {
-				textArea.setText(baos.toString());
-				restartProgressWorker(20);
+				progressBar.setValue(20);
 				lblDetectionPhaseIs.setText("Current Stage: "
 						+ "Compiling Project");
 			}
 
 			@Override
 			public void detectCompiledProject(DetectEvent e) {
-				textArea.setText(baos.toString());
-				restartProgressWorker(60);
+				progressBar.setValue(60);
 				lblDetectionPhaseIs.setText("Current Stage: "
 						+ "Generating Tests");
 			}
 
 			@Override
 			public void detectGeneratedTests(DetectEvent e) {
-				textArea.setText(baos.toString());
-				restartProgressWorker(80);
+				progressBar.setValue(TESTS_PROGRESS);
 				lblDetectionPhaseIs.setText("Current Stage: "
 						+ "Executing Tests");
 			}
 
 			@Override
 			public void detectExecutedTests(DetectEvent e) {
-				textArea.setText(baos.toString());
 				progressBar.setValue(100);
 				lblDetectionPhaseIs.setText("Detection Phase finished.");
 				modifyButton();
 			}
 
+			@Override
+			public void detectFoundNonconformance(DetectEvent e) {
+				// Shown on the console, by Controller.
+			}
+
+			@Override
+			public void detectProgress(DetectEvent e) {
+				showProgress(e.getProgress());
+			}
+
 			@Override
 			public void detectErrorOnGeneratingTests(DetectEvent e) {
-				textArea.setText(baos.toString());
-				stopProgress();
 				setDetectionSuceeded(false);
 				modifyButton();
 			}
 		});
 	}
 
+	/**
+	 * Append the lines printed since the last refresh to the text area,
+	 * removing the oldest ones when there are more lines than the console
+	 * keeps.
+	 */
+	private void refreshConsole() {
+		List<String> lines = new ArrayList<String>();
+		long dropped = console.drainTo(lines);
+		if (lines.isEmpty() && dropped == 0)
+			return;
+		StringBuilder text = new StringBuilder();
+		if (dropped > 0)
+			text.append("[... ").append(dropped).append(" lines skipped ...]\n");
+		for (String line : lines)
+			text.append(line).append("\n");
+		textArea.append(text.toString());
+		int extra = textArea.getLineCount() - console.getCapacity();
+		if (extra > 0) {
+			try {
+				textArea.getDocument().remove(0,
+						textArea.getLineStartOffset(extra));
+			} catch (BadLocationException e) {
+				e.printStackTrace();
+			}
+		}
+		textArea.setCaretPosition(textArea.getDocument().getLength());
+	}
+
 	/**
 	 * Close the Window.
 	 */
@@ -315,4 +352,4 @@ public class DetectionScreenAdvisorFrame extends JFrame {
 	public void setDetectionSuceeded(boolean detectionSuceeded) {
 		this.detectionSuceeded = detectionSuceeded;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -8,6 +8,8 @@ import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -139,6 +141,13 @@ public class Main extends JFrame {
 		UIManager.put("FileChooser.acceptAllFileFilterText", "All files");
 		setTitle("JmlOk2");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosing(WindowEvent e) {
+				if (controller != null)
+					controller.disposeWorkspace(false);
+			}
+		});
 		setBounds(100, 100, 750, 219);
 		setMinimumSize(new Dimension(this.WIDTH, this.HEIGHT));
 		setMaximumSize(new Dimension(1450, this.HEIGHT));
@@ -291,6 +300,9 @@ public class Main extends JFrame {
 		btnRun.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				try {
+					// The workspace of the previous run is not used anymore.
+					if (controller != null)
+						controller.disposeWorkspace(true);
 					controller = new Controller();
 					controller.checkProblemsWithInput(textFieldSrcFolder.getText(),
 							textFieldTime.getText());
@@ -77,6 +77,8 @@ public class AcessingTestCases {
 	 * Returns copy of line in method to highlight in test cases whom discovered
 	 * specified error.
 	 * 
+	 * @param testDir
+	 *            The directory where the test files are.
 	 * @param testFile
 	 *            The test file where the error was called.
 	 * @param wishedLine
@@ -88,9 +90,10 @@ public class AcessingTestCases {
 	 * @throws IOException
 	 *             When failing to read the file.
 	 */
-	public static String lineSampleWhoOriginatedError(String testFile,
-			int wishedLine, String test, int[] arr) throws IOException {
-		BufferedReader f = new BufferedReader(new FileReader(Constants.TEST_DIR
+	public static String lineSampleWhoOriginatedError(String testDir,
+			String testFile, int wishedLine, String test, int[] arr)
+			throws IOException {
+		BufferedReader f = new BufferedReader(new FileReader(testDir
 				+ Constants.FILE_SEPARATOR + testFile));
 		String line;
 		String testExtract = "";
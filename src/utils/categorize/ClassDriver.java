@@ -4,6 +4,7 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 
 import utils.commons.FileUtil;
+import utils.commons.Workspace;
 
 /**
  * Used on Categorize module to pull info from Class Objects.
@@ -19,12 +20,16 @@ public class ClassDriver {
 	 * 
 	 * @param path
 	 *            = the path for the class that the variables will be got.
+	 * @param workspace
+	 *            = the workspace where the class was compiled.
 	 * @return = the list of all variables from the class received as parameter.
 	 */
-	public static ArrayList<String> getVariablesFromClass(String path) {
+	public static ArrayList<String> getVariablesFromClass(String path,
+			Workspace workspace) {
 		ArrayList<String> variables = new ArrayList<String>();
 		try {
-			Class<?> clazz = Class.forName(path, true, new CustomClassLoader());
+			Class<?> clazz = Class.forName(path, true, new CustomClassLoader(
+					workspace));
 			Field[] fields = clazz.getDeclaredFields();
 			for (Field field : fields) {
 				String aux = field.toString();
@@ -43,13 +48,17 @@ public class ClassDriver {
 	 * 
 	 * @param path
 	 *            The complete class name from the class searched.
+	 * @param workspace
+	 *            The workspace where the class was compiled.
 	 * @return Array containing all complete class names from the interfaces
 	 *         implemented.
 	 */
-	public static ArrayList<String> getInterfacesPathFromClass(String path) {
+	public static ArrayList<String> getInterfacesPathFromClass(String path,
+			Workspace workspace) {
 		ArrayList<String> interfacesPackagePath = new ArrayList<String>();
 		try {
-			Class<?> clazz = Class.forName(path, true, new CustomClassLoader());
+			Class<?> clazz = Class.forName(path, true, new CustomClassLoader(
+					workspace));
 			Class<?>[] interfaces = clazz.getInterfaces();
 			for (Class<?> i : interfaces) {
 				interfacesPackagePath.add(i.getName());
@@ -67,13 +76,17 @@ public class ClassDriver {
 	 *            The complete class name from the class searched.
 	 * @param srcDir
 	 *            The source directory where the project examined are located.
+	 * @param workspace
+	 *            The workspace where the class was compiled.
 	 * @return String representing the complete class name from the Super Class
 	 *         extended.
 	 */
-	public static String getSuperclassPathFromClass(String path, String srcDir) {
+	public static String getSuperclassPathFromClass(String path, String srcDir,
+			Workspace workspace) {
 		String superClassPackagePath = "";
 		try {
-			Class<?> clazz = Class.forName(path, true, new CustomClassLoader());
+			Class<?> clazz = Class.forName(path, true, new CustomClassLoader(
+					workspace));
 			Class<?> superclass = clazz.getSuperclass();
 			if (superclass != null
 					&& FileUtil.listNames(srcDir, "", ".java").contains(
@@ -2,7 +2,9 @@ package utils.categorize;
 
 import java.io.FileInputStream;
 
+import utils.commons.CompiledClasses;
 import utils.commons.Constants;
+import utils.commons.Workspace;
 
 /**
  * Class CustomClassLoader used to load the class file of a given path.
@@ -11,10 +13,26 @@ import utils.commons.Constants;
  */
 public class CustomClassLoader extends ClassLoader {
 	
-	final String basePath = Constants.JML_SOURCE_BIN+Constants.FILE_SEPARATOR;
+	final String basePath;
+	final CompiledClasses compiledClasses;
+	
+	/**
+	 * Creates a class loader for the classes compiled in the workspace received,
+	 * whose parent loads the external libraries of the workspace.
+	 * @param workspace the workspace where the classes were compiled.
+	 */
+	public CustomClassLoader(Workspace workspace) {
+		super(workspace.getLibraries());
+		this.basePath = workspace.getJmlSourceBin() + Constants.FILE_SEPARATOR;
+		this.compiledClasses = workspace.getCompiledClasses();
+	}
 	
 	@Override
     protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        // Classes compiled in memory are served with no disk access.
+        byte[] bytecode = compiledClasses.get(name);
+        if (bytecode != null)
+            return defineClass(name, bytecode, 0, bytecode.length);
         String fullName = name.replace('.', '/');
         fullName += ".class";
 
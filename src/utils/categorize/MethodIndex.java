@@ -0,0 +1,292 @@
+package utils.categorize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
+import org.jmlspecs.openjml.JmlTree.JmlMethodDecl;
+
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+
+/**
+ * Used on Categorize module to find the methods of a parsed class by their
+ * names and parameter types. The index is built once for each class, and a
+ * method is found from the line of its declaration, as read by
+ * Nonconformance.setMethodCalling, comparing the parameter types instead of
+ * printing the code of each method.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class MethodIndex {
+	private static final Pattern DECLARATION = Pattern
+			.compile("^(?:@[\\w.]+(?:\\([^)]*\\))?\\s+)*((?:[\\w$.<>\\[\\]?,]+\\s+)*)(<init>|[\\w$]+)\\s*\\((.*)\\)\\s*(?:throws\\s+[\\w$.,\\s]+)?$");
+	private static final Set<String> MODIFIERS = new HashSet<String>(
+			Arrays.asList("public", "protected", "private", "static",
+					"final", "abstract", "synchronized", "native",
+					"strictfp", "pure", "helper"));
+	private static final Set<String> KEYWORDS = new HashSet<String>(
+			Arrays.asList("if", "else", "for", "while", "do", "switch",
+					"case", "catch", "try", "return", "new", "throw",
+					"synchronized", "assert"));
+	private static final Pattern PARAMETER_NAME = Pattern
+			.compile("([\\w$]+)((?:\\s*\\[\\s*\\])*)$");
+	private Map<String, List<IndexedMethod>> byName = new HashMap<String, List<IndexedMethod>>();
+
+	/**
+	 * The constructor of this class, indexes the methods of a class.
+	 *
+	 * @param clazz
+	 *            = the class declaration indexed.
+	 */
+	public MethodIndex(JmlClassDecl clazz) {
+		com.sun.tools.javac.util.List<JCTree> traverser;
+		for (traverser = clazz.defs; !traverser.isEmpty(); traverser = traverser.tail) {
+			if (!traverser.head.getKind().equals(Tree.Kind.METHOD))
+				continue;
+			JmlMethodDecl method = (JmlMethodDecl) traverser.head;
+			String name = method.name.toString();
+			List<IndexedMethod> methods = byName.get(name);
+			if (methods == null) {
+				methods = new ArrayList<IndexedMethod>();
+				byName.put(name, methods);
+			}
+			methods.add(new IndexedMethod(method));
+		}
+	}
+
+	/**
+	 * Find the methods with a name whose declaration is the line received.
+	 * With no line, all methods with the name are found. When the line is
+	 * not a declaration, as a statement of the method, the methods whose code
+	 * contains the line are found.
+	 *
+	 * @param methodName
+	 *            = the name of the methods.
+	 * @param methodCalling
+	 *            = the line of the declaration of the method, or empty.
+	 * @return = the methods found, in the order they are declared.
+	 */
+	public List<JmlMethodDecl> find(String methodName, String methodCalling) {
+		List<JmlMethodDecl> found = new ArrayList<JmlMethodDecl>();
+		List<IndexedMethod> candidates = byName.get(methodName);
+		for (int ordinal : findOrdinals(methodName, methodCalling))
+			found.add(candidates.get(ordinal).decl);
+		return found;
+	}
+
+	/**
+	 * Find the methods with a name whose declaration is the line received,
+	 * as done by find.
+	 *
+	 * @param methodName
+	 *            = the name of the methods.
+	 * @param methodCalling
+	 *            = the line of the declaration of the method, or empty.
+	 * @return = the positions of the methods found among the methods with
+	 *         the name, from 0.
+	 */
+	public List<Integer> findOrdinals(String methodName, String methodCalling) {
+		List<Integer> found = new ArrayList<Integer>();
+		List<IndexedMethod> candidates = byName.get(methodName);
+		if (candidates == null)
+			return found;
+		List<List<String>> signatures = new ArrayList<List<String>>();
+		for (IndexedMethod method : candidates)
+			signatures.add(method.signature);
+		found = findBySignature(methodName, methodCalling, signatures);
+		if (found != null)
+			return found;
+		found = new ArrayList<Integer>();
+		String line = methodCalling.trim();
+		for (int i = 0; i < candidates.size(); i++) {
+			if (candidates.get(i).text().contains(line))
+				found.add(i);
+		}
+		return found;
+	}
+
+	/**
+	 * Find, among the methods with a name, the ones whose declaration is the
+	 * line received, comparing only the parameter types.
+	 *
+	 * @param methodName
+	 *            = the name of the methods.
+	 * @param methodCalling
+	 *            = the line of the declaration of the method, or empty.
+	 * @param signatures
+	 *            = the normalized parameter types of each method with the
+	 *            name.
+	 * @return = the positions of the methods found, or null if the line must
+	 *         be looked for on the code of the methods.
+	 */
+	static List<Integer> findBySignature(String methodName,
+			String methodCalling, List<List<String>> signatures) {
+		List<Integer> found = new ArrayList<Integer>();
+		String line = methodCalling.trim();
+		if (line.equals("")) {
+			for (int i = 0; i < signatures.size(); i++)
+				found.add(i);
+			return found;
+		}
+		Declaration declaration = parse(line);
+		if (declaration == null)
+			return null;
+		if (!declaration.name.equals(methodName))
+			return found;
+		for (int i = 0; i < signatures.size(); i++) {
+			if (signatures.get(i).equals(declaration.signature))
+				found.add(i);
+		}
+		return found.isEmpty() ? null : found;
+	}
+
+	/**
+	 * Read the name and parameter types of a declaration line.
+	 *
+	 * @return = the declaration, or null if the line is not a declaration.
+	 */
+	private static Declaration parse(String line) {
+		Matcher matcher = DECLARATION.matcher(line);
+		if (!matcher.matches())
+			return null;
+		String name = matcher.group(2);
+		if (KEYWORDS.contains(name))
+			return null;
+		boolean hasType = false;
+		for (String word : matcher.group(1).trim().split("\\s+")) {
+			if (KEYWORDS.contains(word) && !MODIFIERS.contains(word))
+				return null;
+			if (!word.equals("") && !MODIFIERS.contains(word)
+					&& !word.startsWith("<"))
+				hasType = true;
+		}
+		// Only the constructors have no return type.
+		if (!hasType && !name.equals("<init>"))
+			return null;
+		List<String> signature = new ArrayList<String>();
+		for (String parameter : splitParameters(matcher.group(3))) {
+			String type = parameterType(parameter);
+			if (type == null)
+				return null;
+			signature.add(type);
+		}
+		return new Declaration(name, signature);
+	}
+
+	/**
+	 * Split the parameters of a declaration on the commas outside of type
+	 * arguments.
+	 */
+	private static List<String> splitParameters(String parameters) {
+		List<String> split = new ArrayList<String>();
+		if (parameters.trim().equals(""))
+			return split;
+		int depth = 0;
+		int start = 0;
+		for (int i = 0; i < parameters.length(); i++) {
+			char c = parameters.charAt(i);
+			if (c == '<')
+				depth++;
+			else if (c == '>')
+				depth--;
+			else if (c == ',' && depth == 0) {
+				split.add(parameters.substring(start, i));
+				start = i + 1;
+			}
+		}
+		split.add(parameters.substring(start));
+		return split;
+	}
+
+	/**
+	 * The normalized type of a parameter of a declaration line, without its
+	 * modifiers and name.
+	 */
+	private static String parameterType(String parameter) {
+		String text = parameter.replaceAll("@[\\w.]+(\\([^)]*\\))?", " ")
+				.replaceAll("\\bfinal\\b", " ").trim();
+		Matcher name = PARAMETER_NAME.matcher(text);
+		if (!name.find() || name.start() == 0)
+			return null;
+		return normalizeType(text.substring(0, name.start()) + name.group(2));
+	}
+
+	/**
+	 * Normalize a type: no type arguments, no package names, no blank spaces
+	 * and varargs as arrays, so the types written on the code and the types
+	 * printed from the tree are equal.
+	 */
+	static String normalizeType(String type) {
+		StringBuilder plain = new StringBuilder();
+		int depth = 0;
+		for (int i = 0; i < type.length(); i++) {
+			char c = type.charAt(i);
+			if (c == '<')
+				depth++;
+			else if (c == '>')
+				depth--;
+			else if (depth == 0 && !Character.isWhitespace(c))
+				plain.append(c);
+		}
+		String normalized = plain.toString().replace("...", "[]");
+		int dims = normalized.indexOf('[');
+		String base = (dims < 0) ? normalized : normalized.substring(0, dims);
+		String suffix = (dims < 0) ? "" : normalized.substring(dims);
+		return base.substring(base.lastIndexOf('.') + 1) + suffix;
+	}
+
+	/**
+	 * A method indexed, with its normalized parameter types.
+	 */
+	private static class IndexedMethod {
+		private final JmlMethodDecl decl;
+		private final List<String> signature;
+		private volatile String text;
+
+		IndexedMethod(JmlMethodDecl decl) {
+			this.decl = decl;
+			List<String> types = new ArrayList<String>();
+			for (JCVariableDecl parameter : decl.params)
+				types.add(normalizeType(String.valueOf(parameter.vartype)));
+			this.signature = Collections.unmodifiableList(types);
+		}
+
+		/**
+		 * The code of the method, printed only when some line must be found
+		 * on it, and then kept.
+		 */
+		String text() {
+			String printed = text;
+			if (printed == null) {
+				printed = decl.toString();
+				text = printed;
+			}
+			return printed;
+		}
+	}
+
+	/**
+	 * The name and normalized parameter types of a declaration line.
+	 */
+	private static class Declaration {
+		private final String name;
+		private final List<String> signature;
+
+		Declaration(String name, List<String> signature) {
+			this.name = name;
+			this.signature = signature;
+		}
+	}
+}
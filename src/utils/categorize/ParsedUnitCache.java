@@ -0,0 +1,245 @@
+package utils.categorize;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.jmlspecs.openjml.Factory;
+import org.jmlspecs.openjml.IAPI;
+import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
+import org.jmlspecs.openjml.JmlTree.JmlCompilationUnit;
+
+/**
+ * Used on Categorize module to keep the compilation units parsed by OpenJML
+ * during an execution, so each Java and JML file of the SUT is parsed once,
+ * whatever the number of nonconformances examined. A unit is parsed again
+ * when its file is changed, and the units not used for longer are forgotten
+ * when the cache is full. The OpenJML APIs used to parse are kept in a pool,
+ * since each one must be used by one thread at a time, shared by all caches of
+ * the JVM, like the ones of the jobs of the daemon, since an API is expensive
+ * to create.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class ParsedUnitCache {
+	private final int capacity;
+	private final int poolSize;
+	private static final BlockingQueue<IAPI> POOL = new LinkedBlockingQueue<IAPI>();
+	private static int created;
+	private final Map<String, Entry> units;
+	// The classes of the units forgotten are forgotten with their indexes.
+	private final Map<JmlClassDecl, MethodIndex> indexes = new WeakHashMap<JmlClassDecl, MethodIndex>();
+	private long hits;
+	private long misses;
+
+	/**
+	 * The constructor of this class.
+	 *
+	 * @param capacity
+	 *            = the maximum number of units kept.
+	 * @param poolSize
+	 *            = the maximum number of OpenJML APIs, and so of files parsed
+	 *            at the same time.
+	 */
+	public ParsedUnitCache(int capacity, int poolSize) {
+		this.capacity = Math.max(1, capacity);
+		this.poolSize = Math.max(1, poolSize);
+		// Ordered by access, so the eldest entry is the least recently used.
+		this.units = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > ParsedUnitCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Get the compilation unit of a file, parsing it only if it was not
+	 * parsed before or was changed since. When many threads ask for the same
+	 * file, it is parsed by the first and the others wait for its unit.
+	 *
+	 * @param file
+	 *            = the Java or JML file.
+	 * @return = the compilation unit of the file.
+	 * @throws Exception
+	 *             When the file does not exist or cannot be parsed.
+	 */
+	public JmlCompilationUnit get(final File file) throws Exception {
+		if (!file.exists())
+			throw new Exception("The File acessed " + file.getName()
+					+ " does not exist.");
+		String key = file.getAbsolutePath();
+		String stamp = file.lastModified() + ":" + file.length();
+		FutureTask<JmlCompilationUnit> task;
+		boolean parse = false;
+		synchronized (this) {
+			Entry entry = units.get(key);
+			if (entry != null && entry.stamp.equals(stamp)) {
+				hits++;
+				task = entry.unit;
+			} else {
+				misses++;
+				task = new FutureTask<JmlCompilationUnit>(
+						new Callable<JmlCompilationUnit>() {
+							@Override
+							public JmlCompilationUnit call() throws Exception {
+								return parse(file);
+							}
+						});
+				units.put(key, new Entry(stamp, task));
+				parse = true;
+			}
+		}
+		if (parse)
+			task.run();
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the index of the methods of a class parsed, building it on the
+	 * first time it is asked.
+	 *
+	 * @param clazz
+	 *            = the class declaration of some unit parsed.
+	 * @return = the index of the methods of the class.
+	 */
+	public MethodIndex getMethodIndex(JmlClassDecl clazz) {
+		synchronized (indexes) {
+			MethodIndex index = indexes.get(clazz);
+			if (index == null) {
+				index = new MethodIndex(clazz);
+				indexes.put(clazz, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Parse files at the same time, up to the capacity of the cache, so their
+	 * units are ready when they are examined.
+	 *
+	 * @param files
+	 *            = the Java and JML files to be parsed.
+	 */
+	public void preload(Collection<File> files) {
+		if (files.isEmpty())
+			return;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				poolSize, Math.max(1, files.size())));
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+		int count = 0;
+		for (final File file : files) {
+			if (count++ >= capacity)
+				break;
+			tasks.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					get(file);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<?> task : tasks) {
+				try {
+					task.get();
+				} catch (ExecutionException e) {
+					// The error is kept and given again when the file is
+					// examined.
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Get the number of units found already parsed.
+	 *
+	 * @return = the number of units found already parsed.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of files parsed.
+	 *
+	 * @return = the number of files parsed.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Parse a file with an OpenJML API of the pool.
+	 */
+	private JmlCompilationUnit parse(File file) throws Exception {
+		IAPI api = borrow();
+		try {
+			List<JmlCompilationUnit> parsed = api.parseFiles(file);
+			if (parsed == null || parsed.isEmpty())
+				throw new Exception("The File acessed " + file.getName()
+						+ " has no compilation unit.");
+			return parsed.get(0);
+		} finally {
+			POOL.offer(api);
+		}
+	}
+
+	/**
+	 * Take an idle OpenJML API, creating one while the pool has less APIs than
+	 * the pool size of this cache, or waiting for one otherwise.
+	 */
+	private IAPI borrow() throws Exception {
+		IAPI api = POOL.poll();
+		if (api != null)
+			return api;
+		synchronized (POOL) {
+			if (created < poolSize) {
+				api = Factory.makeAPI();
+				created++;
+				return api;
+			}
+		}
+		return POOL.take();
+	}
+
+	/**
+	 * A unit kept, with the modification time and size of its file when it
+	 * was parsed.
+	 */
+	private static class Entry {
+		private final String stamp;
+		private final FutureTask<JmlCompilationUnit> unit;
+
+		Entry(String stamp, FutureTask<JmlCompilationUnit> unit) {
+			this.stamp = stamp;
+			this.unit = unit;
+		}
+	}
+}
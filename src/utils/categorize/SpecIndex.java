@@ -0,0 +1,769 @@
+package utils.categorize;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.jmlspecs.openjml.JmlToken;
+import org.jmlspecs.openjml.JmlTree.JmlClassDecl;
+import org.jmlspecs.openjml.JmlTree.JmlCompilationUnit;
+import org.jmlspecs.openjml.JmlTree.JmlMethodClause;
+import org.jmlspecs.openjml.JmlTree.JmlMethodClauseExpr;
+import org.jmlspecs.openjml.JmlTree.JmlMethodDecl;
+import org.jmlspecs.openjml.JmlTree.JmlSingleton;
+
+import utils.commons.Constants;
+import utils.commons.Workspace;
+
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCBinary;
+import com.sun.tools.javac.tree.JCTree.JCIdent;
+import com.sun.tools.javac.tree.JCTree.JCLiteral;
+import com.sun.tools.javac.tree.JCTree.JCParens;
+import com.sun.tools.javac.tree.JCTree.JCVariableDecl;
+
+/**
+ * Used on Categorize module to keep, for each class of the SUT, the JML
+ * specifications of its Java and JML files: the requires and ensures clauses
+ * of each method, the identifiers each clause refers to and the value of the
+ * clauses that are constant. The files are indexed in one pass, and the index is kept between
+ * executions over the same source folder, so only the files changed since are
+ * parsed again. An index kept by another version of the indexer is built
+ * again.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class SpecIndex {
+	// Changed whenever the format of the index or what is indexed changes.
+	private static final String VERSION = "2";
+	// The value of a clause whose constant literals are not all boolean or
+	// integer, written on the index.
+	private static final String UNKNOWN_VALUE = "unknown";
+	private static final int INF = Integer.MAX_VALUE;
+	// The value given to the variables, which are unknown.
+	public static final int VAR_FALSE_VALUE = -INF;
+	private static final Set<JmlToken> METHOD_CLAUSES = Collections
+			.unmodifiableSet(new HashSet<JmlToken>(Arrays.asList(
+					JmlToken.REQUIRES, JmlToken.ENSURES)));
+	private String sourceFolder;
+	private Workspace workspace;
+	private File store;
+	// Keyed by the path of the file, relative to the source folder.
+	private Map<String, TypeSpec> types = new TreeMap<String, TypeSpec>();
+	private int reindexed;
+
+	/**
+	 * The constructor of this class, loads the index kept by the previous
+	 * executions over the source folder.
+	 *
+	 * @param sourceFolder
+	 *            = the source folder of the SUT.
+	 * @param workspace
+	 *            = the workspace where the SUT was compiled.
+	 */
+	public SpecIndex(String sourceFolder, Workspace workspace) {
+		this.sourceFolder = sourceFolder;
+		this.workspace = workspace;
+		this.store = new File(Constants.SPECS_DIR, hash(new File(sourceFolder)
+				.getAbsolutePath()) + ".xml");
+		load();
+	}
+
+	/**
+	 * Index again the Java and JML files of the source folder changed since
+	 * they were indexed, and forget the files removed.
+	 *
+	 * @param units
+	 *            = the cache used to parse the files.
+	 * @param preload
+	 *            = if the files changed are parsed at the same time before
+	 *            being indexed.
+	 */
+	public void update(ParsedUnitCache units, boolean preload) {
+		File root = new File(sourceFolder);
+		if (!root.isDirectory())
+			return;
+		Map<String, File> files = new HashMap<String, File>();
+		List<File> changed = new ArrayList<File>();
+		for (File file : FileUtils.listFiles(root,
+				new String[] { "java", "jml" }, true)) {
+			String path = root.toURI().relativize(file.toURI()).getPath();
+			files.put(path, file);
+			TypeSpec known = getType(path);
+			if (known == null || !known.stamp.equals(stampOf(file)))
+				changed.add(file);
+		}
+		synchronized (this) {
+			Iterator<String> it = types.keySet().iterator();
+			while (it.hasNext()) {
+				if (!files.containsKey(it.next()))
+					it.remove();
+			}
+		}
+		if (preload)
+			units.preload(changed);
+		for (File file : changed) {
+			String path = root.toURI().relativize(file.toURI()).getPath();
+			String stamp = stampOf(file);
+			try {
+				TypeSpec type = index(path, units.get(file));
+				type.stamp = stamp;
+				synchronized (this) {
+					types.put(path, type);
+					reindexed++;
+				}
+			} catch (Exception e) {
+				System.err.println("Error in method SpecIndex.update(): "
+						+ file.getName());
+			}
+		}
+	}
+
+	/**
+	 * Get the specifications of a class, from its Java or JML file.
+	 *
+	 * @param className
+	 *            = the complete name of the class.
+	 * @param isJMLFile
+	 *            = if the specifications of the JML file are wanted.
+	 * @return = the specifications of the class, or null if the file does not
+	 *         have the class.
+	 */
+	public TypeSpec getType(String className, boolean isJMLFile) {
+		TypeSpec type = getType(className.replace('.', '/')
+				+ (isJMLFile ? ".jml" : ".java"));
+		return (type == null || !type.found) ? null : type;
+	}
+
+	private synchronized TypeSpec getType(String path) {
+		return types.get(path);
+	}
+
+	/**
+	 * Get the interfaces implemented by a class, resolved on the first time
+	 * they are asked.
+	 *
+	 * @param type
+	 *            = the specifications of the class.
+	 * @return = the complete names of the interfaces.
+	 */
+	public List<String> getInterfaces(TypeSpec type) {
+		synchronized (type) {
+			if (type.interfaces == null)
+				type.interfaces = ClassDriver.getInterfacesPathFromClass(
+						type.name, workspace);
+			return type.interfaces;
+		}
+	}
+
+	/**
+	 * Get the superclass of a class that is part of the SUT, resolved on the
+	 * first time it is asked.
+	 *
+	 * @param type
+	 *            = the specifications of the class.
+	 * @return = the complete name of the superclass, or empty if it is not
+	 *         part of the SUT.
+	 */
+	public String getSuperclass(TypeSpec type) {
+		synchronized (type) {
+			if (type.superclass == null)
+				type.superclass = ClassDriver.getSuperclassPathFromClass(
+						type.name, sourceFolder, workspace);
+			return type.superclass;
+		}
+	}
+
+	/**
+	 * Get the number of files indexed again by the last updates.
+	 *
+	 * @return = the number of files indexed again.
+	 */
+	public synchronized int getReindexed() {
+		return reindexed;
+	}
+
+	/**
+	 * Keep the index, to be used by the next executions over the same source
+	 * folder.
+	 */
+	public void save() {
+		File dir = store.getParentFile();
+		while (!dir.exists()) {
+			dir.mkdirs();
+		}
+		try {
+			File temp = File.createTempFile("specs", ".xml", dir);
+			try (OutputStream out = new FileOutputStream(temp)) {
+				XMLStreamWriter xml = XMLOutputFactory.newInstance()
+						.createXMLStreamWriter(out, "UTF-8");
+				xml.writeStartDocument("UTF-8", "1.0");
+				xml.writeCharacters("\n");
+				xml.writeStartElement("SpecIndex");
+				xml.writeAttribute("version", VERSION);
+				xml.writeAttribute("source",
+						new File(sourceFolder).getAbsolutePath());
+				xml.writeCharacters("\n");
+				synchronized (this) {
+					for (Map.Entry<String, TypeSpec> entry : types.entrySet())
+						write(xml, entry.getKey(), entry.getValue());
+				}
+				xml.writeEndElement();
+				xml.writeEndDocument();
+				xml.close();
+			}
+			Files.move(temp.toPath(), store.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | XMLStreamException e) {
+			System.err.println("Error in method SpecIndex.save()");
+		}
+	}
+
+	/**
+	 * Index the class of a file: the class whose name is the name of the
+	 * file, as looked for by the Examinator.
+	 */
+	private static TypeSpec index(String path, JmlCompilationUnit unit) {
+		String name = path.substring(0, path.lastIndexOf('.')).replace('/',
+				'.');
+		TypeSpec type = new TypeSpec(name);
+		String simpleName = name.substring(name.lastIndexOf('.') + 1);
+		for (com.sun.tools.javac.util.List<JCTree> acesser = unit.defs; !acesser
+				.isEmpty(); acesser = acesser.tail) {
+			if ((acesser.head.getKind().equals(Tree.Kind.CLASS) || acesser.head
+					.getKind().equals(Tree.Kind.INTERFACE))
+					&& ((JmlClassDecl) acesser.head).name.toString().equals(
+							simpleName)) {
+				index(type, (JmlClassDecl) acesser.head);
+				break;
+			}
+		}
+		return type;
+	}
+
+	private static void index(TypeSpec type, JmlClassDecl clazz) {
+		type.found = true;
+		Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		for (com.sun.tools.javac.util.List<JCTree> traverser = clazz.defs; !traverser
+				.isEmpty(); traverser = traverser.tail) {
+			if (traverser.head.getKind().equals(Tree.Kind.METHOD)) {
+				JmlMethodDecl method = (JmlMethodDecl) traverser.head;
+				String name = method.name.toString();
+				Integer ordinal = ordinals.get(name);
+				ordinal = (ordinal == null) ? 0 : ordinal + 1;
+				ordinals.put(name, ordinal);
+				type.methods.add(index(method, ordinal));
+			}
+		}
+	}
+
+	/**
+	 * Index a method: its parameters and the clauses of its first
+	 * specification case, the only one examined.
+	 */
+	private static MethodSpec index(JmlMethodDecl method, int ordinal) {
+		MethodSpec spec = new MethodSpec(method.name.toString(), ordinal);
+		for (com.sun.tools.javac.util.List<JCVariableDecl> acessing = method.params; !acessing
+				.isEmpty(); acessing = acessing.tail) {
+			spec.parameters.add(acessing.head.name.toString());
+			spec.signature.add(MethodIndex.normalizeType(String
+					.valueOf(acessing.head.vartype)));
+		}
+		spec.specified = method.cases != null;
+		if (spec.specified && !method.cases.cases.isEmpty()) {
+			for (com.sun.tools.javac.util.List<JmlMethodClause> traversing = method.cases.cases.head.clauses; !traversing
+					.isEmpty(); traversing = traversing.tail) {
+				if (METHOD_CLAUSES.contains(traversing.head.token)
+						&& traversing.head instanceof JmlMethodClauseExpr)
+					spec.clauses.add(new ClauseSpec(traversing.head.token
+							.toString(),
+							((JmlMethodClauseExpr) traversing.head).expression));
+			}
+		}
+		return spec;
+	}
+
+	/**
+	 * Collect the identifiers of an expression made of parentheses and binary
+	 * operations.
+	 */
+	private static void collectIdentifiers(JCTree expression,
+			Set<String> identifiers) {
+		if (expression instanceof JCParens) {
+			collectIdentifiers(((JCParens) expression).expr, identifiers);
+		} else if (expression instanceof JCIdent) {
+			identifiers.add(((JCIdent) expression).name.toString());
+		} else if (expression instanceof JCBinary) {
+			collectIdentifiers(((JCBinary) expression).rhs, identifiers);
+			collectIdentifiers(((JCBinary) expression).lhs, identifiers);
+		}
+	}
+
+	/**
+	 * Verify if the boolean expression have a true value despite of any
+	 * variable values.
+	 *
+	 * @param expression
+	 *            = the boolean expression examined.
+	 * @return = 1 when the expression is always true.
+	 */
+	private static int hasTrueValue(JCTree expression) {
+		if (expression instanceof JCParens) {
+			if (hasTrueValue(((JCParens) expression).expr) != 0)
+				return 1;
+		} else if (expression instanceof JCLiteral) {
+			if (((JCLiteral) expression).value == null)
+				return VAR_FALSE_VALUE;
+			return (int) ((JCLiteral) expression).value;
+		} else if (expression instanceof JmlSingleton) {
+			return 1;
+		} else if (expression instanceof JCBinary) {
+			return resolveBooleanOperations(expression);
+		}
+		return VAR_FALSE_VALUE;
+	}
+
+	/**
+	 * Calculate the value from binary expression, always considering
+	 * variables with false value.
+	 *
+	 * @param expression
+	 *            = the binary boolean expression examined.
+	 * @return = 1 when the expression has value true.
+	 */
+	private static int resolveBooleanOperations(JCTree expression) {
+		int rexp = hasTrueValue(((JCBinary) expression).rhs);
+		int lexp = hasTrueValue(((JCBinary) expression).lhs);
+		switch (((JCBinary) expression).getTag()) {
+		case JCTree.OR:
+			if ((rexp != 0) && (rexp != VAR_FALSE_VALUE) || (lexp != 0)
+					&& (lexp != VAR_FALSE_VALUE))
+				return 1;
+			return 0;
+		case JCTree.AND:
+			if ((rexp == 0) || (rexp == VAR_FALSE_VALUE) || (lexp == 0)
+					|| (lexp == VAR_FALSE_VALUE))
+				return 0;
+			return 1;
+		case JCTree.EQ:
+			if (rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
+				return VAR_FALSE_VALUE;
+			return ((rexp != 0) == (lexp != 0)) ? 1 : 0;
+		case JCTree.NE:
+			if (rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
+				return VAR_FALSE_VALUE;
+			return ((rexp != 0) != (lexp != 0)) ? 1 : 0;
+		case JCTree.LT:
+			if (rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
+				return VAR_FALSE_VALUE;
+			return (rexp < lexp) ? 1 : 0;
+		case JCTree.GT:
+			if (rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
+				return VAR_FALSE_VALUE;
+			return (rexp > lexp) ? 1 : 0;
+		case JCTree.LE:
+			if (rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
+				return VAR_FALSE_VALUE;
+			return (rexp <= lexp) ? 1 : 0;
+		case JCTree.GE:
+			if (rexp == VAR_FALSE_VALUE || lexp == VAR_FALSE_VALUE)
+				return VAR_FALSE_VALUE;
+			return (rexp >= lexp) ? 1 : 0;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * The SHA-256 of a text, in hexadecimal, used to name the index of a
+	 * source folder.
+	 */
+	private static String hash(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest(text.getBytes("UTF-8")))
+				hex.append(String.format("%02x", b & 0xff));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String stampOf(File file) {
+		return file.lastModified() + ":" + file.length();
+	}
+
+	/**
+	 * Read the index kept by the previous executions, if any.
+	 */
+	private void load() {
+		if (!store.isFile())
+			return;
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		Map<String, TypeSpec> loaded = new TreeMap<String, TypeSpec>();
+		try (InputStream in = new FileInputStream(store)) {
+			XMLStreamReader xml = factory.createXMLStreamReader(in);
+			try {
+				TypeSpec type = null;
+				MethodSpec method = null;
+				while (xml.hasNext()) {
+					int event = xml.next();
+					if (event == XMLStreamConstants.END_ELEMENT
+							&& xml.getLocalName().equals("Method")) {
+						method = null;
+					}
+					if (event != XMLStreamConstants.START_ELEMENT)
+						continue;
+					String element = xml.getLocalName();
+					if (element.equals("SpecIndex")
+							&& !VERSION.equals(xml.getAttributeValue(null,
+									"version"))) {
+						System.out.println("Index of the specifications of"
+								+ " another version, indexing all files again.");
+						return;
+					} else if (element.equals("Type")) {
+						type = new TypeSpec(xml.getAttributeValue(null, "name"));
+						type.stamp = xml.getAttributeValue(null, "stamp");
+						type.found = Boolean.parseBoolean(xml
+								.getAttributeValue(null, "found"));
+						loaded.put(xml.getAttributeValue(null, "file"), type);
+					} else if (element.equals("Method") && type != null) {
+						method = new MethodSpec(xml.getAttributeValue(null,
+								"name"), Integer.parseInt(xml
+								.getAttributeValue(null, "ordinal")));
+						method.specified = Boolean.parseBoolean(xml
+								.getAttributeValue(null, "specified"));
+						method.parameters.addAll(words(xml.getAttributeValue(
+								null, "parameters")));
+						method.signature.addAll(words(xml.getAttributeValue(
+								null, "signature")));
+						type.methods.add(method);
+					} else if (element.equals("Clause") && method != null) {
+						String value = xml.getAttributeValue(null, "value");
+						ClauseSpec clause = new ClauseSpec(
+								xml.getAttributeValue(null, "token"),
+								UNKNOWN_VALUE.equals(value) ? 0 : Integer
+										.parseInt(value),
+								xml.getAttributeValue(null, "expression"));
+						clause.unknown = UNKNOWN_VALUE.equals(value);
+						clause.identifiers.addAll(words(xml.getAttributeValue(
+								null, "identifiers")));
+						method.clauses.add(clause);
+					}
+				}
+			} finally {
+				xml.close();
+			}
+			synchronized (this) {
+				types = loaded;
+			}
+		} catch (IOException | XMLStreamException | RuntimeException e) {
+			// An index that cannot be read is built again.
+			System.err.println("Error in method SpecIndex.load()");
+		}
+	}
+
+	private static void write(XMLStreamWriter xml, String path, TypeSpec type)
+			throws XMLStreamException {
+		xml.writeCharacters("  ");
+		xml.writeStartElement("Type");
+		xml.writeAttribute("file", path);
+		xml.writeAttribute("name", type.name);
+		xml.writeAttribute("stamp", type.stamp);
+		xml.writeAttribute("found", String.valueOf(type.found));
+		xml.writeCharacters("\n");
+		for (MethodSpec method : type.methods) {
+			xml.writeCharacters("    ");
+			xml.writeStartElement("Method");
+			xml.writeAttribute("name", method.name);
+			xml.writeAttribute("ordinal", String.valueOf(method.ordinal));
+			xml.writeAttribute("specified", String.valueOf(method.specified));
+			xml.writeAttribute("parameters", join(method.parameters));
+			xml.writeAttribute("signature", join(method.signature));
+			xml.writeCharacters("\n");
+			for (ClauseSpec clause : method.clauses)
+				write(xml, clause, "      ");
+			xml.writeCharacters("    ");
+			xml.writeEndElement();
+			xml.writeCharacters("\n");
+		}
+		xml.writeCharacters("  ");
+		xml.writeEndElement();
+		xml.writeCharacters("\n");
+	}
+
+	private static void write(XMLStreamWriter xml, ClauseSpec clause,
+			String indent) throws XMLStreamException {
+		xml.writeCharacters(indent);
+		xml.writeEmptyElement("Clause");
+		xml.writeAttribute("token", clause.token);
+		xml.writeAttribute("value", clause.unknown ? UNKNOWN_VALUE : String
+				.valueOf(clause.value));
+		xml.writeAttribute("identifiers", join(clause.identifiers));
+		xml.writeAttribute("expression", clause.expression);
+		xml.writeCharacters("\n");
+	}
+
+	private static String join(Collection<String> words) {
+		StringBuilder joined = new StringBuilder();
+		for (String word : words) {
+			if (joined.length() > 0)
+				joined.append(' ');
+			joined.append(word);
+		}
+		return joined.toString();
+	}
+
+	private static List<String> words(String joined) {
+		if (joined == null || joined.equals(""))
+			return new ArrayList<String>();
+		return Arrays.asList(joined.split(" "));
+	}
+
+	/**
+	 * The specifications of a class, from its Java or JML file.
+	 */
+	public static class TypeSpec {
+		private String name;
+		private String stamp = "";
+		private boolean found;
+		private List<MethodSpec> methods = new ArrayList<MethodSpec>();
+		private List<String> interfaces;
+		private String superclass;
+
+		TypeSpec(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Get the complete name of the class.
+		 *
+		 * @return = the complete name of the class.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Get the methods of the class with a name, in the order they are
+		 * declared.
+		 *
+		 * @param methodName
+		 *            = the name of the methods.
+		 * @return = the methods with the name.
+		 */
+		public List<MethodSpec> getMethods(String methodName) {
+			List<MethodSpec> found = new ArrayList<MethodSpec>();
+			for (MethodSpec method : methods) {
+				if (method.name.equals(methodName))
+					found.add(method);
+			}
+			return found;
+		}
+
+		/**
+		 * Find the methods with a name whose declaration is the line read by
+		 * Nonconformance.setMethodCalling, comparing the parameter types.
+		 *
+		 * @param methodName
+		 *            = the name of the methods.
+		 * @param methodCalling
+		 *            = the line of the declaration of the method, or empty.
+		 * @return = the methods found, or null if the line is not a
+		 *         declaration and must be looked for on the code of the
+		 *         methods.
+		 */
+		public List<MethodSpec> findMethods(String methodName,
+				String methodCalling) {
+			List<MethodSpec> candidates = getMethods(methodName);
+			List<List<String>> signatures = new ArrayList<List<String>>();
+			for (MethodSpec method : candidates)
+				signatures.add(method.signature);
+			List<Integer> ordinals = MethodIndex.findBySignature(methodName,
+					methodCalling, signatures);
+			if (ordinals == null)
+				return null;
+			List<MethodSpec> found = new ArrayList<MethodSpec>();
+			for (int ordinal : ordinals)
+				found.add(candidates.get(ordinal));
+			return found;
+		}
+
+		/**
+		 * Get the names of all methods of the class, in the order they are
+		 * declared.
+		 *
+		 * @return = the names of the methods.
+		 */
+		public List<String> getMethodNames() {
+			List<String> names = new ArrayList<String>();
+			for (MethodSpec method : methods)
+				names.add(method.name);
+			return names;
+		}
+	}
+
+	/**
+	 * The specifications of a method.
+	 */
+	public static class MethodSpec {
+		private String name;
+		private int ordinal;
+		private boolean specified;
+		private List<String> parameters = new ArrayList<String>();
+		private List<String> signature = new ArrayList<String>();
+		private List<ClauseSpec> clauses = new ArrayList<ClauseSpec>();
+
+		MethodSpec(String name, int ordinal) {
+			this.name = name;
+			this.ordinal = ordinal;
+		}
+
+		/**
+		 * Get the position of the method among the methods with its name.
+		 *
+		 * @return = the position of the method, from 0.
+		 */
+		public int getOrdinal() {
+			return ordinal;
+		}
+
+		/**
+		 * Verify if the method has some specification case.
+		 *
+		 * @return = true if the method is specified.
+		 */
+		public boolean isSpecified() {
+			return specified;
+		}
+
+		/**
+		 * Get the names of the parameters of the method.
+		 *
+		 * @return = the names of the parameters.
+		 */
+		public List<String> getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * Get the normalized types of the parameters of the method.
+		 *
+		 * @return = the normalized types of the parameters.
+		 */
+		public List<String> getSignature() {
+			return signature;
+		}
+
+		/**
+		 * Get the requires and ensures clauses of the first specification
+		 * case of the method.
+		 *
+		 * @return = the clauses of the method.
+		 */
+		public List<ClauseSpec> getClauses() {
+			return clauses;
+		}
+	}
+
+	/**
+	 * A clause of a specification.
+	 */
+	public static class ClauseSpec {
+		private String token;
+		private int value;
+		private boolean unknown;
+		private String expression;
+		private Set<String> identifiers = new LinkedHashSet<String>();
+
+		ClauseSpec(String token, JCTree expression) {
+			this.token = token;
+			this.expression = String.valueOf(expression);
+			collectIdentifiers(expression, identifiers);
+			try {
+				this.value = hasTrueValue(expression);
+			} catch (ClassCastException e) {
+				// A literal that is not boolean nor integer, the clause fails
+				// when its value is asked, as its examination did.
+				this.unknown = true;
+			}
+		}
+
+		ClauseSpec(String token, int value, String expression) {
+			this.token = token;
+			this.value = value;
+			this.expression = expression;
+		}
+
+		/**
+		 * Verify if the clause is of a kind.
+		 *
+		 * @param kind
+		 *            = the token of the kind of clause.
+		 * @return = true if the clause is of the kind.
+		 */
+		public boolean is(JmlToken kind) {
+			return token.equals(kind.toString());
+		}
+
+		/**
+		 * Verify if the clause is true despite of any variable values.
+		 *
+		 * @return = true if the clause is always true.
+		 * @throws ClassCastException
+		 *             When the clause has a literal that is not boolean nor
+		 *             integer.
+		 */
+		public boolean isTrue() {
+			if (unknown)
+				throw new ClassCastException("Literal that is not boolean nor"
+						+ " integer in the clause " + expression);
+			return value != 0 && value != VAR_FALSE_VALUE;
+		}
+
+		/**
+		 * Verify if the clause refers to an identifier, outside of method
+		 * calls and field accesses.
+		 *
+		 * @param identifier
+		 *            = the name of the identifier.
+		 * @return = true if the clause refers to the identifier.
+		 */
+		public boolean mentions(String identifier) {
+			return identifiers.contains(identifier);
+		}
+	}
+}
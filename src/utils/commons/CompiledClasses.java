@@ -0,0 +1,104 @@
+package utils.commons;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class that keeps in memory the bytecode of the classes of the SUT compiled
+ * by the tool. The classes are only written to disk when some stage needs them
+ * as files.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class CompiledClasses {
+	private Map<String, byte[]> classes;
+	private File dir;
+	private boolean materialized;
+
+	/**
+	 * The constructor of this class, receives the directory where the classes
+	 * are written when needed as files.
+	 *
+	 * @param dir
+	 *            = the directory where the classes are written.
+	 */
+	public CompiledClasses(File dir) {
+		this.classes = new ConcurrentHashMap<String, byte[]>();
+		this.dir = dir;
+	}
+
+	/**
+	 * Keep the bytecode of a class.
+	 *
+	 * @param className
+	 *            = the complete name of the class.
+	 * @param bytecode
+	 *            = the bytecode of the class.
+	 */
+	public void put(String className, byte[] bytecode) {
+		classes.put(className, bytecode);
+	}
+
+	/**
+	 * Get the bytecode of a class.
+	 *
+	 * @param className
+	 *            = the complete name of the class.
+	 * @return the bytecode of the class, or null if it was not compiled in
+	 *         memory.
+	 */
+	public byte[] get(String className) {
+		return classes.get(className);
+	}
+
+	/**
+	 * Get the number of classes kept.
+	 *
+	 * @return the number of classes kept.
+	 */
+	public int size() {
+		return classes.size();
+	}
+
+	/**
+	 * Write the classes to their directory, if it was not done before.
+	 *
+	 * @throws IOException
+	 *             When some class cannot be written.
+	 */
+	public synchronized void materialize() throws IOException {
+		if (materialized)
+			return;
+		writeTo(dir);
+		materialized = true;
+	}
+
+	/**
+	 * Write the classes kept to a directory, following the packages
+	 * structure.
+	 *
+	 * @param target
+	 *            = the directory where the classes are written.
+	 * @throws IOException
+	 *             When some class cannot be written.
+	 */
+	public void writeTo(File target) throws IOException {
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			File file = new File(target, entry.getKey().replace('.',
+					File.separatorChar)
+					+ ".class");
+			File parent = file.getParentFile();
+			while (!parent.exists()) {
+				parent.mkdirs();
+			}
+			try (OutputStream out = new FileOutputStream(file)) {
+				out.write(entry.getValue());
+			}
+		}
+	}
+}
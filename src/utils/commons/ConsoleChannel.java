@@ -0,0 +1,109 @@
+package utils.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that carries the console output of the tool, line by line, from the
+ * threads that print it to the screen that shows it. At most a fixed number of
+ * lines is kept: when the screen does not take them fast enough, the oldest
+ * lines are dropped, so the threads printing never wait and the memory used
+ * does not grow with the length of the execution.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class ConsoleChannel extends OutputStream {
+	private static final int MAX_LINE_LENGTH = 4096;
+	private int capacity;
+	private Charset charset;
+	private Queue<String> lines = new ConcurrentLinkedQueue<String>();
+	private AtomicInteger size = new AtomicInteger();
+	private AtomicLong dropped = new AtomicLong();
+	private ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+	/**
+	 * The constructor of this class, receives how many lines are kept until
+	 * they are taken.
+	 *
+	 * @param capacity
+	 *            = the maximum number of lines kept.
+	 */
+	public ConsoleChannel(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.charset = Charset.defaultCharset();
+	}
+
+	@Override
+	public synchronized void write(int b) {
+		if (b == '\n') {
+			endLine();
+		} else if (b != '\r' && line.size() < MAX_LINE_LENGTH) {
+			line.write(b);
+		}
+	}
+
+	@Override
+	public synchronized void write(byte[] bytes, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			write(bytes[i]);
+		}
+	}
+
+	/**
+	 * Put a complete line on the channel, dropping the oldest line when the
+	 * channel is full.
+	 *
+	 * @param text
+	 *            = the line to be put.
+	 */
+	public void offer(String text) {
+		lines.offer(text);
+		if (size.incrementAndGet() > capacity) {
+			if (lines.poll() != null) {
+				size.decrementAndGet();
+				dropped.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Take all lines kept on the channel, the older first.
+	 *
+	 * @param target
+	 *            = the list that receives the lines.
+	 * @return the number of lines dropped since the last time the lines were
+	 *         taken.
+	 */
+	public long drainTo(List<String> target) {
+		String text;
+		while ((text = lines.poll()) != null) {
+			size.decrementAndGet();
+			target.add(text);
+		}
+		return dropped.getAndSet(0);
+	}
+
+	/**
+	 * Get the maximum number of lines kept.
+	 *
+	 * @return the maximum number of lines kept.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Decode the bytes of the current line and put it on the channel.
+	 */
+	private void endLine() {
+		offer(new String(line.toByteArray(), charset));
+		line.reset();
+	}
+}
@@ -13,21 +13,44 @@ import java.awt.Font;
 public class Constants {
 	//Constant to get the file separator of the System.
 	public static final String FILE_SEPARATOR = System.getProperty("file.separator");
-	//Constants to folders created path.
+	//Constant to the folder where the workspace of each execution is created.
 	public static final String TEMP_DIR = System.getProperty("java.io.tmpdir") + FILE_SEPARATOR + "jmlok";
-	public static final String JML_SOURCE_BIN = TEMP_DIR + FILE_SEPARATOR + "bin";
-	public static final String RANDOOP_OUTPUT_FOLDER = TEMP_DIR + FILE_SEPARATOR + "RandoopTests";
-	public static final String JML_BIN = TEMP_DIR + FILE_SEPARATOR + "jmlBin";
-	public static final String TESTS = TEMP_DIR + FILE_SEPARATOR + "tests";
-	public static final String TEST_DIR = TESTS + FILE_SEPARATOR + "src";
-	public static final String TEST_BIN = TESTS + FILE_SEPARATOR + "bin";
-	//Constant to file that has the class names. 
-	public static final String CLASSES = TEMP_DIR + FILE_SEPARATOR  + "classes.txt";
-	//Constants to result of Randoop execution under SUT.
-	public static final String TEST_RESULTS = TEST_DIR + FILE_SEPARATOR + "TEST-RandoopTest.xml";
-	public static final String TEST_ERRORS = RANDOOP_OUTPUT_FOLDER + FILE_SEPARATOR + "TEST-RandoopTest.txt";
-	//Constant to file that contains the result more cleaned. The nonconformances detected by the tool.
-	public static final String RESULTS = TEMP_DIR+FILE_SEPARATOR+"results.xml";
+	//Constant to the folder where compilation outputs are kept between executions.
+	public static final String CACHE_DIR = TEMP_DIR + FILE_SEPARATOR + "cache";
+	//Constant to the folder where the results of previous executions are kept, to plan the tests generation.
+	public static final String HISTORY_DIR = TEMP_DIR + FILE_SEPARATOR + "history";
+	//Constant to the folder where the index of the specifications of each SUT is kept between executions.
+	public static final String SPECS_DIR = TEMP_DIR + FILE_SEPARATOR + "specs";
+	//Constant to the folder where the metrics and results of the jobs of the daemon are kept after their workspaces are removed.
+	public static final String JOBS_DIR = TEMP_DIR + FILE_SEPARATOR + "jobs";
+	//Constant that indicates if Randoop runs inside the JVM of the tool (-Djmlok.randoop.inprocess=true).
+	public static final boolean RANDOOP_IN_PROCESS = Boolean.getBoolean("jmlok.randoop.inprocess");
+	//Constant to the number of Randoop workers run in parallel, each one over a part of the classes (-Djmlok.randoop.workers=N).
+	public static final int RANDOOP_WORKERS = Integer.getInteger("jmlok.randoop.workers", Runtime.getRuntime().availableProcessors());
+	//Constant to the number of workers that run the tests in parallel (-Djmlok.tests.workers=N).
+	public static final int TEST_WORKERS = Integer.getInteger("jmlok.tests.workers", Runtime.getRuntime().availableProcessors());
+	//Constant to the time, in seconds, after which a test run inside the JVM of the tool is given up; 0 disables it (-Djmlok.tests.timeout=N).
+	public static final int TEST_TIMEOUT = Integer.getInteger("jmlok.tests.timeout", 60);
+	//Constant to the number of last lines of each stage log shown on the console (-Djmlok.log.tail=N).
+	public static final int LOG_TAIL_LINES = Integer.getInteger("jmlok.log.tail", 200);
+	//Constant to the number of last lines kept on the console of the Detection screen (-Djmlok.console.lines=N).
+	public static final int CONSOLE_LINES = Integer.getInteger("jmlok.console.lines", 2000);
+	//Constant to the time, in seconds, of each round of the saturation mode; 0 disables it (-Djmlok.saturation.round=N).
+	public static final int SATURATION_ROUND = Integer.getInteger("jmlok.saturation.round", 0);
+	//Constant to the number of rounds with no new nonconformance after which the saturation mode stops (-Djmlok.saturation.patience=N).
+	public static final int SATURATION_PATIENCE = Integer.getInteger("jmlok.saturation.patience", 2);
+	//Constant that indicates if the duplicated tests generated are removed before their compilation (-Djmlok.tests.dedupe=false disables it).
+	public static final boolean DEDUPLICATE_TESTS = Boolean.parseBoolean(System.getProperty("jmlok.tests.dedupe", "true"));
+	//Constant to the size, in characters, of the test methods of a test class above which the class is split (-Djmlok.tests.classSize=N).
+	public static final int TEST_CLASS_SIZE = Integer.getInteger("jmlok.tests.classSize", 65536);
+	//Constant to the number of compiler tasks that compile the tests in parallel (-Djmlok.tests.compileWorkers=N).
+	public static final int TEST_COMPILE_WORKERS = Integer.getInteger("jmlok.tests.compileWorkers", Runtime.getRuntime().availableProcessors());
+	//Constant to the number of threads that parse and examine the SUT on the Categorize phase (-Djmlok.categorize.workers=N).
+	public static final int CATEGORIZE_WORKERS = Integer.getInteger("jmlok.categorize.workers", Runtime.getRuntime().availableProcessors());
+	//Constant to the maximum number of OpenJML compilation units kept during the Categorize phase (-Djmlok.categorize.units=N).
+	public static final int PARSED_UNITS = Integer.getInteger("jmlok.categorize.units", 1024);
+	//Constant that indicates if all files of the SUT are parsed before the first nonconformance is examined (-Djmlok.categorize.preload=false disables it).
+	public static final boolean PRELOAD_UNITS = Boolean.parseBoolean(System.getProperty("jmlok.categorize.preload", "true"));
 	//Constants to choose the jml compiler to be used.
 	public static final int JMLC_COMPILER = 0;
 	public static final int WINDOWS_OS = 0;
@@ -4,6 +4,9 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 
@@ -43,6 +46,7 @@ public class GenerateResult {
 		nonconformance.setAttribute("method", n.getMethodName());
 		nonconformance.setAttribute("type", n.getType().getName());
 		nonconformance.setAttribute("likelyCause", n.getCause());
+		nonconformance.setAttribute("occurrences", String.valueOf(n.getOccurrences()));
 		nonconformance.setAttribute("stackTrace", getStackTraceString(n.getStackTraceOrder()));
 		
 		Element error = doc.createElement("Error");
@@ -69,15 +73,44 @@ public class GenerateResult {
 		return toShow;
 	}
 	
+	/**
+	 * Method that gives the nonconformances in the order they are written into the file, by 
+	 * identifier, test file and test, so the file is the same whatever the order of the set.
+	 * @param nonconformances = the set of nonconformances.
+	 * @return - the list of nonconformances ordered.
+	 */
+	private static List<Nonconformance> inResultOrder(Set<Nonconformance> nonconformances){
+		List<Nonconformance> ordered = new ArrayList<Nonconformance>(nonconformances);
+		Collections.sort(ordered, new Comparator<Nonconformance>() {
+			@Override
+			public int compare(Nonconformance a, Nonconformance b) {
+				int order = compareText(a.getIdentifier(), b.getIdentifier());
+				if(order == 0)
+					order = compareText(a.getTestFile(), b.getTestFile());
+				if(order == 0)
+					order = compareText(a.getNumberedTest(), b.getNumberedTest());
+				return order;
+			}
+		});
+		return ordered;
+	}
+	
+	private static int compareText(String a, String b){
+		if(a == null || b == null)
+			return (a == null) ? ((b == null) ? 0 : -1) : 1;
+		return a.compareTo(b);
+	}
+	
 	/**
 	 * Method that generates the file containing the nonconformances that were detected.
 	 * @param nonconformances = the set of nonconformances to go extracting info. 
+	 * @param workspace = the workspace where the file will be generated.
 	 * @return - the list of nonconformances detected by the JMLOK tool.
 	 */
-	public static Set<Nonconformance> generateResult(Set<Nonconformance> nonconformances){
-		Document doc = createXMLFile(Constants.RESULTS);
+	public static Set<Nonconformance> generateResult(Set<Nonconformance> nonconformances, Workspace workspace){
+		Document doc = createXMLFile(workspace.getResults());
 		Element raiz = doc.getDocumentElement();
-		for (Nonconformance nc : nonconformances) {
+		for (Nonconformance nc : inResultOrder(nonconformances)) {
 			Element e = createsElement(doc, nc);
 			raiz.appendChild(e);
 		}
@@ -86,7 +119,7 @@ public class GenerateResult {
 		TransformerFactory transFactory = TransformerFactory.newInstance();
 		Transformer transformer;
 		try {
-			result = new StreamResult(new FileOutputStream(Constants.RESULTS));
+			result = new StreamResult(new FileOutputStream(workspace.getResults()));
 			transformer = transFactory.newTransformer();
 			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
 			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
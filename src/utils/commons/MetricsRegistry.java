@@ -0,0 +1,377 @@
+package utils.commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Class that keeps the performance metrics of one execution of the tool: the
+ * wall time of each stage, the CPU time of the whole process while it ran and
+ * the bytes allocated by the thread that coordinated it, the peak of the heap,
+ * the exit codes of the processes run, some counts (tests, nonconformances)
+ * and the time spent to categorize each category of nonconformance. The
+ * metrics are written as a JSON summary and as a file in the Prometheus text
+ * format, inside the workspace of the execution. The work of a stage is
+ * mostly done by pools of threads, so its CPU time is taken from the whole
+ * process, shared by the stages run at the same time, and the allocations
+ * measured are only the ones of its coordinating thread.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class MetricsRegistry {
+	private static final String PREFIX = "jmlok_";
+	private Map<String, StageMetrics> stages = new TreeMap<String, StageMetrics>();
+	private Map<String, Integer> exitCodes = new TreeMap<String, Integer>();
+	private Map<String, Long> counts = new TreeMap<String, Long>();
+	private Map<String, Latency> latencies = new TreeMap<String, Latency>();
+	private Map<String, HeapPool> heapPools = new TreeMap<String, HeapPool>();
+
+	/**
+	 * The constructor of this class, takes the baseline of the heap, so the
+	 * peak recorded is the one of this execution. The peaks of the JVM are
+	 * left as they are, since other executions in the same JVM use them too.
+	 */
+	public MetricsRegistry() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				HeapPool heapPool = new HeapPool();
+				heapPool.baseline = pool.getPeakUsage().getUsed();
+				heapPool.max = pool.getUsage().getUsed();
+				heapPools.put(pool.getName(), heapPool);
+			}
+		}
+	}
+
+	/**
+	 * Start to measure a stage, on the current thread. The measure ends when
+	 * the stop method of the timer returned is called, by the same thread.
+	 *
+	 * @param stage
+	 *            = the name of the stage.
+	 * @return the timer of the stage.
+	 */
+	public Timer start(String stage) {
+		return new Timer(stage);
+	}
+
+	/**
+	 * Record the exit code of a process run by the tool.
+	 *
+	 * @param process
+	 *            = the name of the process.
+	 * @param exitCode
+	 *            = the exit code of the process.
+	 */
+	public synchronized void recordExitCode(String process, int exitCode) {
+		exitCodes.put(process, exitCode);
+	}
+
+	/**
+	 * Set a count, like the number of tests executed.
+	 *
+	 * @param name
+	 *            = the name of the count.
+	 * @param value
+	 *            = the value of the count.
+	 */
+	public synchronized void setCount(String name, long value) {
+		counts.put(name, value);
+	}
+
+	/**
+	 * Record the time spent to categorize one nonconformance.
+	 *
+	 * @param category
+	 *            = the category of the nonconformance.
+	 * @param nanos
+	 *            = the time spent, in nanoseconds.
+	 */
+	public synchronized void recordLatency(String category, long nanos) {
+		Latency latency = latencies.get(category);
+		if (latency == null) {
+			latency = new Latency();
+			latencies.put(category, latency);
+		}
+		latency.count++;
+		latency.total += nanos;
+		latency.max = Math.max(latency.max, nanos);
+	}
+
+	/**
+	 * Get the peak of the heap since the creation of this registry, the sum
+	 * of the peaks of the heap memory pools. The peak of a pool is the one of
+	 * the JVM when it was passed after the baseline, otherwise the highest
+	 * usage seen by this registry.
+	 *
+	 * @return the peak of the heap, in bytes.
+	 */
+	public synchronized long getPeakHeap() {
+		sampleHeap();
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			HeapPool heapPool = heapPools.get(pool.getName());
+			if (heapPool == null || !pool.isValid())
+				continue;
+			long jvmPeak = pool.getPeakUsage().getUsed();
+			peak += jvmPeak > heapPool.baseline ? jvmPeak : heapPool.max;
+		}
+		return peak;
+	}
+
+	/**
+	 * Keep the highest usage of each heap memory pool seen so far.
+	 */
+	private synchronized void sampleHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP || !pool.isValid())
+				continue;
+			HeapPool heapPool = heapPools.get(pool.getName());
+			if (heapPool == null) {
+				heapPool = new HeapPool();
+				heapPools.put(pool.getName(), heapPool);
+			}
+			heapPool.max = Math.max(heapPool.max, pool.getUsage().getUsed());
+		}
+	}
+
+	/**
+	 * Write the metrics into the workspace, as JSON and as Prometheus text.
+	 *
+	 * @param workspace
+	 *            = the workspace of the execution.
+	 */
+	public synchronized void write(Workspace workspace) {
+		Charset utf8 = Charset.forName("UTF-8");
+		try {
+			FileUtils.write(new File(workspace.getMetricsJson()), toJson(),
+					utf8);
+			FileUtils.write(new File(workspace.getMetricsText()),
+					toPrometheus(), utf8);
+		} catch (IOException e) {
+			System.err.println("Error in method MetricsRegistry.write()");
+		}
+	}
+
+	/**
+	 * Get the metrics as a JSON document.
+	 *
+	 * @return the JSON document.
+	 */
+	public synchronized String toJson() {
+		StringBuilder json = new StringBuilder("{\n  \"stages\": {");
+		String separator = "\n";
+		for (Map.Entry<String, StageMetrics> stage : stages.entrySet()) {
+			StageMetrics m = stage.getValue();
+			json.append(separator).append("    ").append(quote(stage.getKey()))
+					.append(": {\"wallSeconds\": ").append(seconds(m.wall))
+					.append(", \"processCpuSeconds\": ").append(seconds(m.cpu))
+					.append(", \"coordinatorAllocatedBytes\": ")
+					.append(m.allocated)
+					.append(", \"succeeded\": ").append(m.succeeded)
+					.append("}");
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"peakHeapBytes\": ").append(getPeakHeap());
+		json.append(",\n  \"exitCodes\": {");
+		separator = "";
+		for (Map.Entry<String, Integer> code : exitCodes.entrySet()) {
+			json.append(separator).append(quote(code.getKey())).append(": ")
+					.append(code.getValue());
+			separator = ", ";
+		}
+		json.append("},\n  \"counts\": {");
+		separator = "";
+		for (Map.Entry<String, Long> count : counts.entrySet()) {
+			json.append(separator).append(quote(count.getKey())).append(": ")
+					.append(count.getValue());
+			separator = ", ";
+		}
+		json.append("},\n  \"categorizationLatency\": {");
+		separator = "\n";
+		for (Map.Entry<String, Latency> latency : latencies.entrySet()) {
+			Latency l = latency.getValue();
+			json.append(separator).append("    ")
+					.append(quote(latency.getKey())).append(": {\"count\": ")
+					.append(l.count).append(", \"totalSeconds\": ")
+					.append(seconds(l.total)).append(", \"maxSeconds\": ")
+					.append(seconds(l.max)).append("}");
+			separator = ",\n";
+		}
+		json.append(latencies.isEmpty() ? "}\n}\n" : "\n  }\n}\n");
+		return json.toString();
+	}
+
+	/**
+	 * Get the metrics in the Prometheus text format.
+	 *
+	 * @return the metrics in the Prometheus text format.
+	 */
+	public synchronized String toPrometheus() {
+		StringBuilder text = new StringBuilder();
+		type(text, "stage_wall_seconds", "gauge");
+		for (Map.Entry<String, StageMetrics> stage : stages.entrySet())
+			sample(text, "stage_wall_seconds", "stage", stage.getKey(),
+					seconds(stage.getValue().wall));
+		type(text, "stage_process_cpu_seconds", "gauge");
+		for (Map.Entry<String, StageMetrics> stage : stages.entrySet())
+			sample(text, "stage_process_cpu_seconds", "stage",
+					stage.getKey(), seconds(stage.getValue().cpu));
+		type(text, "stage_coordinator_allocated_bytes", "gauge");
+		for (Map.Entry<String, StageMetrics> stage : stages.entrySet())
+			sample(text, "stage_coordinator_allocated_bytes", "stage",
+					stage.getKey(),
+					String.valueOf(stage.getValue().allocated));
+		type(text, "peak_heap_bytes", "gauge");
+		text.append(PREFIX).append("peak_heap_bytes ").append(getPeakHeap())
+				.append("\n");
+		type(text, "process_exit_code", "gauge");
+		for (Map.Entry<String, Integer> code : exitCodes.entrySet())
+			sample(text, "process_exit_code", "process", code.getKey(),
+					String.valueOf(code.getValue()));
+		type(text, "count", "gauge");
+		for (Map.Entry<String, Long> count : counts.entrySet())
+			sample(text, "count", "name", count.getKey(),
+					String.valueOf(count.getValue()));
+		type(text, "categorization_seconds", "summary");
+		for (Map.Entry<String, Latency> latency : latencies.entrySet()) {
+			sample(text, "categorization_seconds_sum", "category",
+					latency.getKey(), seconds(latency.getValue().total));
+			sample(text, "categorization_seconds_count", "category",
+					latency.getKey(), String.valueOf(latency.getValue().count));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Record the metrics of a stage finished.
+	 */
+	private synchronized void record(String stage, StageMetrics metrics) {
+		stages.put(stage, metrics);
+	}
+
+	private static void type(StringBuilder text, String name, String type) {
+		text.append("# TYPE ").append(PREFIX).append(name).append(" ")
+				.append(type).append("\n");
+	}
+
+	private static void sample(StringBuilder text, String name, String label,
+			String labelValue, String value) {
+		text.append(PREFIX).append(name).append("{").append(label)
+				.append("=\"").append(escape(labelValue)).append("\"} ")
+				.append(value).append("\n");
+	}
+
+	private static String seconds(long nanos) {
+		return String.format(java.util.Locale.ROOT, "%.6f", nanos / 1e9);
+	}
+
+	private static String quote(String text) {
+		return "\"" + escape(text) + "\"";
+	}
+
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\"", "\\\"")
+				.replace("\n", "\\n");
+	}
+
+	/**
+	 * The metrics of a stage.
+	 */
+	private static class StageMetrics {
+		private long wall;
+		private long cpu;
+		private long allocated;
+		private boolean succeeded;
+	}
+
+	/**
+	 * The time spent to categorize the nonconformances of a category.
+	 */
+	private static class Latency {
+		private long count;
+		private long total;
+		private long max;
+	}
+
+	/**
+	 * The heap memory pool as seen by this registry: the peak of the JVM when
+	 * the registry was created and the highest usage seen since.
+	 */
+	private static class HeapPool {
+		private long baseline;
+		private long max;
+	}
+
+	/**
+	 * Measure of a stage, started when created.
+	 */
+	public class Timer {
+		private String stage;
+		private long wallStart;
+		private long cpuStart;
+		private long allocatedStart;
+
+		private Timer(String stage) {
+			this.stage = stage;
+			this.wallStart = System.nanoTime();
+			this.cpuStart = cpuTime();
+			this.allocatedStart = allocatedBytes();
+			sampleHeap();
+		}
+
+		/**
+		 * End the measure of the stage, recording it.
+		 *
+		 * @param succeeded
+		 *            = if the stage finished with no errors.
+		 */
+		public void stop(boolean succeeded) {
+			StageMetrics metrics = new StageMetrics();
+			metrics.wall = System.nanoTime() - wallStart;
+			metrics.cpu = Math.max(0, cpuTime() - cpuStart);
+			metrics.allocated = Math.max(0, allocatedBytes() - allocatedStart);
+			metrics.succeeded = succeeded;
+			sampleHeap();
+			record(stage, metrics);
+		}
+	}
+
+	/**
+	 * The CPU time of the whole process, all of its threads, or 0 when the JVM
+	 * cannot measure it.
+	 */
+	private static long cpuTime() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (!(os instanceof com.sun.management.OperatingSystemMXBean))
+			return 0;
+		long time = ((com.sun.management.OperatingSystemMXBean) os)
+				.getProcessCpuTime();
+		return Math.max(0, time);
+	}
+
+	/**
+	 * The bytes allocated by the current thread, or 0 when the JVM cannot
+	 * measure it.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+			if (hotspot.isThreadAllocatedMemorySupported()
+					&& hotspot.isThreadAllocatedMemoryEnabled())
+				return hotspot.getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,189 @@
+package utils.commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class that receives the log of one stage of the tool (like the output of an
+ * ANT project or of the JML compiler). The whole log is written to a file,
+ * through a buffered channel, and only its last lines are kept in memory, to
+ * be shown on the console.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class StageLog extends OutputStream {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_LINE_LENGTH = 4096;
+	private File file;
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private CharsetDecoder decoder;
+	private ByteBuffer undecoded = ByteBuffer.allocate(BUFFER_SIZE);
+	private CharBuffer decoded = CharBuffer.allocate(BUFFER_SIZE);
+	private StringBuilder line = new StringBuilder();
+	private String[] tail;
+	private long lines;
+	private boolean closed;
+
+	/**
+	 * The constructor of this class, creates the file of the log.
+	 *
+	 * @param file
+	 *            = the file where the log is written.
+	 * @param tailLines
+	 *            = how many of the last lines are kept in memory.
+	 * @param charset
+	 *            = the charset of the bytes received.
+	 * @throws IOException
+	 *             When the file cannot be created.
+	 */
+	public StageLog(File file, int tailLines, Charset charset)
+			throws IOException {
+		this.file = file;
+		File dir = file.getAbsoluteFile().getParentFile();
+		while (!dir.exists()) {
+			dir.mkdirs();
+		}
+		this.channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.tail = new String[Math.max(1, tailLines)];
+	}
+
+	@Override
+	public synchronized void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] bytes, int offset, int length)
+			throws IOException {
+		if (closed)
+			throw new IOException("Log already closed: " + file);
+		int end = offset + length;
+		while (offset < end) {
+			int chunk = Math.min(end - offset,
+					Math.min(buffer.remaining(), undecoded.remaining()));
+			buffer.put(bytes, offset, chunk);
+			undecoded.put(bytes, offset, chunk);
+			offset += chunk;
+			if (!buffer.hasRemaining())
+				flushBuffer();
+			if (!undecoded.hasRemaining())
+				decode(false);
+		}
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		if (closed)
+			return;
+		flushBuffer();
+		decode(false);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			flushBuffer();
+			decode(true);
+			if (line.length() > 0)
+				endLine();
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+
+	/**
+	 * Get the last lines of the log, the older first.
+	 *
+	 * @return the last lines of the log, one per line.
+	 */
+	public synchronized String getTail() {
+		StringBuilder text = new StringBuilder();
+		if (lines > tail.length)
+			text.append("[... ").append(lines - tail.length)
+					.append(" earlier lines in ").append(file.getAbsolutePath())
+					.append(" ...]\n");
+		int kept = (int) Math.min(lines, tail.length);
+		for (int i = 0; i < kept; i++) {
+			int index = (int) ((lines - kept + i) % tail.length);
+			text.append(tail[index]).append("\n");
+		}
+		if (line.length() > 0)
+			text.append(line).append("\n");
+		return text.toString();
+	}
+
+	/**
+	 * Get the file where the log is written.
+	 *
+	 * @return the file where the log is written.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Write the bytes received until now to the file.
+	 */
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Decode the bytes received until now into lines. An incomplete character
+	 * is left to be decoded with the next bytes, unless it is the end of the
+	 * log.
+	 */
+	private void decode(boolean endOfInput) {
+		undecoded.flip();
+		while (true) {
+			decoder.decode(undecoded, decoded, endOfInput);
+			if (endOfInput)
+				decoder.flush(decoded);
+			decoded.flip();
+			boolean full = decoded.remaining() == decoded.capacity();
+			while (decoded.hasRemaining()) {
+				char c = decoded.get();
+				if (c == '\n')
+					endLine();
+				else if (c != '\r' && line.length() < MAX_LINE_LENGTH)
+					line.append(c);
+			}
+			decoded.clear();
+			if (!full)
+				break;
+		}
+		undecoded.compact();
+		if (endOfInput)
+			decoder.reset();
+	}
+
+	/**
+	 * Keep the current line on the tail, discarding the oldest one.
+	 */
+	private void endLine() {
+		tail[(int) (lines % tail.length)] = line.toString();
+		lines++;
+		line.setLength(0);
+	}
+}
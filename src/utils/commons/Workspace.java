@@ -0,0 +1,441 @@
+package utils.commons;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Class that represents the directories used by one execution of the JMLOK
+ * tool. Each execution has its own directory inside the jmlok temporary
+ * directory, so several executions can run at the same time on one machine.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class Workspace {
+	private static final String RUN_PREFIX = "run-";
+	private static final String LOCK_FILE = ".lock";
+	// Time a new workspace has to lock itself before it may be removed.
+	private static final long LOCK_GRACE = 10 * 60 * 1000L;
+	// Names of the directories and files of the old global jmlok tree.
+	private static final String[] LEGACY_NAMES = { "bin", "jmlBin", "tests",
+			"RandoopTests", "classes.txt", "results.xml" };
+	// Workspaces locked by this JVM. A lock of this JVM is never checked by
+	// opening the lock file again, since closing any channel of the file
+	// releases the lock of the whole process.
+	private static final Set<String> HELD = new HashSet<String>();
+
+	private String tempDir;
+	private String jmlSourceBin;
+	private String randoopOutputFolder;
+	private String jmlBin;
+	private String tests;
+	private String testDir;
+	private String testBin;
+	private String classes;
+	private String testResults;
+	private String testErrors;
+	private String results;
+	private String logs;
+	private String metricsJson;
+	private String metricsText;
+	private CompiledClasses compiledClasses;
+	private MetricsRegistry metrics;
+	private FileChannel lockChannel;
+	private FileLock lock;
+	private URLClassLoader libraries;
+
+	/**
+	 * Creates a new workspace, in a new directory inside the jmlok temporary
+	 * directory. Workspaces left by finished executions, and the old global
+	 * jmlok tree, are removed in background.
+	 *
+	 * @return the new workspace.
+	 * @throws IOException
+	 *             When the directory of the workspace cannot be created.
+	 */
+	public static Workspace create() throws IOException {
+		File root = new File(Constants.TEMP_DIR);
+		while (!root.exists()) {
+			root.mkdirs();
+		}
+		Workspace workspace = new Workspace(Files.createTempDirectory(
+				root.toPath(), RUN_PREFIX).toFile());
+		cleanOldWorkspaces(root);
+		return workspace;
+	}
+
+	/**
+	 * The constructor of this class, uses the directory received as the root
+	 * of the workspace, and locks it while the workspace is in use.
+	 *
+	 * @param dir
+	 *            = the root directory of the workspace.
+	 * @throws IOException
+	 *             When the workspace cannot be locked.
+	 */
+	public Workspace(File dir) throws IOException {
+		String separator = Constants.FILE_SEPARATOR;
+		tempDir = dir.getAbsolutePath();
+		jmlSourceBin = tempDir + separator + "bin";
+		randoopOutputFolder = tempDir + separator + "RandoopTests";
+		jmlBin = tempDir + separator + "jmlBin";
+		tests = tempDir + separator + "tests";
+		testDir = tests + separator + "src";
+		testBin = tests + separator + "bin";
+		classes = tempDir + separator + "classes.txt";
+		testResults = testDir + separator + "TEST-RandoopTest.xml";
+		testErrors = randoopOutputFolder + separator + "TEST-RandoopTest.txt";
+		results = tempDir + separator + "results.xml";
+		logs = tempDir + separator + "logs";
+		metricsJson = tempDir + separator + "metrics.json";
+		metricsText = tempDir + separator + "metrics.prom";
+		compiledClasses = new CompiledClasses(new File(jmlSourceBin));
+		metrics = new MetricsRegistry();
+		while (!dir.exists()) {
+			dir.mkdirs();
+		}
+		synchronized (HELD) {
+			HELD.add(tempDir);
+			try {
+				lockChannel = new RandomAccessFile(new File(dir, LOCK_FILE),
+						"rw").getChannel();
+				lock = lockChannel.lock();
+			} catch (IOException e) {
+				HELD.remove(tempDir);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Release the workspace and remove its directory in background.
+	 */
+	public void dispose() {
+		dispose(true);
+	}
+
+	/**
+	 * Release the workspace and remove its directory.
+	 *
+	 * @param background
+	 *            = if the directory is removed in background, false when the
+	 *            JVM is about to exit.
+	 */
+	public void dispose(boolean background) {
+		release();
+		if (background)
+			deleteInBackground(new File(tempDir));
+		else
+			FileUtils.deleteQuietly(new File(tempDir));
+	}
+
+	/**
+	 * Set the external libraries of the SUT, loaded by a class loader of this
+	 * workspace only, so the executions run in the same JVM never see the
+	 * libraries of each other.
+	 *
+	 * @param libFolder
+	 *            = the folder of the external libraries, or "" for none.
+	 * @throws IOException
+	 *             When the libraries cannot be listed.
+	 */
+	public synchronized void setLibraries(String libFolder) throws IOException {
+		List<URL> urls = new ArrayList<URL>();
+		// ClassLoader must know the current directory
+		urls.add(new File(".").toURI().toURL());
+		if (libFolder != null) {
+			String separator = System.getProperty("os.name").contains(
+					"Windows") ? ";" : ":";
+			for (String jar : FileUtil.getListPathPrinted(libFolder,
+					FileUtil.JAR_FILES).split(separator)) {
+				if (!jar.equals(""))
+					urls.add(new File(jar).toURI().toURL());
+			}
+		}
+		closeLibraries();
+		libraries = new URLClassLoader(urls.toArray(new URL[urls.size()]),
+				ClassLoader.getSystemClassLoader());
+	}
+
+	/**
+	 * Get the class loader of the external libraries of the SUT, the parent
+	 * of the class loaders of the classes compiled in this workspace.
+	 *
+	 * @return the class loader of the external libraries, or the system class
+	 *         loader when they were not set.
+	 */
+	public synchronized ClassLoader getLibraries() {
+		return (libraries == null) ? ClassLoader.getSystemClassLoader()
+				: libraries;
+	}
+
+	/**
+	 * Close the class loader of the external libraries, if any.
+	 */
+	private synchronized void closeLibraries() {
+		if (libraries == null)
+			return;
+		try {
+			libraries.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		libraries = null;
+	}
+
+	/**
+	 * Release the lock of the workspace, so it can be removed.
+	 */
+	private synchronized void release() {
+		closeLibraries();
+		synchronized (HELD) {
+			try {
+				if (lock != null && lock.isValid())
+					lock.release();
+				if (lockChannel != null)
+					lockChannel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			HELD.remove(tempDir);
+		}
+	}
+
+	/**
+	 * Remove in background the workspaces not in use anymore and the old
+	 * global jmlok tree.
+	 *
+	 * @param root
+	 *            = the jmlok temporary directory.
+	 */
+	private static void cleanOldWorkspaces(final File root) {
+		Thread cleaner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (String name : LEGACY_NAMES)
+					FileUtils.deleteQuietly(new File(root, name));
+				File[] runs = root.listFiles();
+				if (runs == null)
+					return;
+				for (File run : runs) {
+					if (run.isDirectory() && run.getName().startsWith(RUN_PREFIX)
+							&& !isInUse(run))
+						FileUtils.deleteQuietly(run);
+				}
+			}
+		}, "jmlok-workspace-cleaner");
+		cleaner.setDaemon(true);
+		cleaner.start();
+	}
+
+	/**
+	 * Remove a directory in background.
+	 *
+	 * @param dir
+	 *            = the directory to be removed.
+	 */
+	private static void deleteInBackground(final File dir) {
+		Thread cleaner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				FileUtils.deleteQuietly(dir);
+			}
+		}, "jmlok-workspace-cleaner");
+		cleaner.setDaemon(true);
+		cleaner.start();
+	}
+
+	/**
+	 * Verify if some execution, of this or of another JVM, still holds the
+	 * lock of a workspace. The workspaces of this JVM are known without
+	 * opening their lock files. A workspace is created before its lock, so a
+	 * workspace without a lock held is only taken as not in use when it is
+	 * older than the grace period.
+	 *
+	 * @param dir
+	 *            = the root directory of the workspace.
+	 * @return true if the workspace is in use.
+	 */
+	private static boolean isInUse(File dir) {
+		boolean recent = System.currentTimeMillis() - dir.lastModified()
+				< LOCK_GRACE;
+		File lockFile = new File(dir, LOCK_FILE);
+		synchronized (HELD) {
+			if (HELD.contains(dir.getAbsolutePath()))
+				return true;
+			if (!lockFile.exists())
+				return recent;
+			try (FileChannel channel = new RandomAccessFile(lockFile, "rw")
+					.getChannel()) {
+				FileLock free = channel.tryLock();
+				if (free == null)
+					return true;
+				free.release();
+				return recent;
+			} catch (OverlappingFileLockException e) {
+				return true;
+			} catch (IOException e) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Get the root directory of the workspace.
+	 *
+	 * @return the root directory of the workspace.
+	 */
+	public String getTempDir() {
+		return tempDir;
+	}
+
+	/**
+	 * Get the directory of the Java compiled classes of the SUT.
+	 *
+	 * @return the directory of the Java compiled classes of the SUT.
+	 */
+	public String getJmlSourceBin() {
+		return jmlSourceBin;
+	}
+
+	/**
+	 * Get the Java compiled classes of the SUT kept in memory. They are
+	 * written to the directory of the Java compiled classes when materialized.
+	 *
+	 * @return the Java compiled classes of the SUT kept in memory.
+	 */
+	public CompiledClasses getCompiledClasses() {
+		return compiledClasses;
+	}
+
+	/**
+	 * Get the performance metrics of the execution.
+	 *
+	 * @return the performance metrics of the execution.
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Get the directory of the Randoop output.
+	 *
+	 * @return the directory of the Randoop output.
+	 */
+	public String getRandoopOutputFolder() {
+		return randoopOutputFolder;
+	}
+
+	/**
+	 * Get the directory of the JML compiled classes of the SUT.
+	 *
+	 * @return the directory of the JML compiled classes of the SUT.
+	 */
+	public String getJmlBin() {
+		return jmlBin;
+	}
+
+	/**
+	 * Get the directory of the tests.
+	 *
+	 * @return the directory of the tests.
+	 */
+	public String getTests() {
+		return tests;
+	}
+
+	/**
+	 * Get the directory of the generated tests sources.
+	 *
+	 * @return the directory of the generated tests sources.
+	 */
+	public String getTestDir() {
+		return testDir;
+	}
+
+	/**
+	 * Get the directory of the compiled tests.
+	 *
+	 * @return the directory of the compiled tests.
+	 */
+	public String getTestBin() {
+		return testBin;
+	}
+
+	/**
+	 * Get the file that has the class names.
+	 *
+	 * @return the file that has the class names.
+	 */
+	public String getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Get the result of tests execution under SUT.
+	 *
+	 * @return the result of tests execution under SUT.
+	 */
+	public String getTestResults() {
+		return testResults;
+	}
+
+	/**
+	 * Get the errors of Randoop execution under SUT.
+	 *
+	 * @return the errors of Randoop execution under SUT.
+	 */
+	public String getTestErrors() {
+		return testErrors;
+	}
+
+	/**
+	 * Get the file that contains the nonconformances detected by the tool.
+	 *
+	 * @return the file that contains the nonconformances detected.
+	 */
+	public String getResults() {
+		return results;
+	}
+
+	/**
+	 * Get the directory where the log of each stage is written.
+	 *
+	 * @return the directory of the logs of the stages.
+	 */
+	public String getLogs() {
+		return logs;
+	}
+
+	/**
+	 * Get the file where the performance metrics are written as JSON.
+	 *
+	 * @return the file of the performance metrics as JSON.
+	 */
+	public String getMetricsJson() {
+		return metricsJson;
+	}
+
+	/**
+	 * Get the file where the performance metrics are written in the
+	 * Prometheus text format.
+	 *
+	 * @return the file of the performance metrics as Prometheus text.
+	 */
+	public String getMetricsText() {
+		return metricsText;
+	}
+}
@@ -0,0 +1,171 @@
+package utils.datastructure;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class that keeps the counters of the work done by the Detect phase, updated
+ * by the stages while they run, so the progress can be shown to the user.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class DetectProgress {
+	private AtomicInteger filesCompiled = new AtomicInteger();
+	private Map<String, Long> sequencesByWorker = new ConcurrentHashMap<String, Long>();
+	private AtomicLong generationStart = new AtomicLong();
+	private AtomicInteger testsCompiled = new AtomicInteger();
+	private AtomicInteger testsExecuted = new AtomicInteger();
+	private AtomicInteger testsTotal = new AtomicInteger();
+	private AtomicInteger failures = new AtomicInteger();
+
+	/**
+	 * Add files to the number of files of the SUT compiled.
+	 *
+	 * @param files
+	 *            = the number of files compiled.
+	 */
+	public void addFilesCompiled(int files) {
+		filesCompiled.addAndGet(files);
+	}
+
+	/**
+	 * Get the number of files of the SUT compiled.
+	 *
+	 * @return the number of files compiled.
+	 */
+	public int getFilesCompiled() {
+		return filesCompiled.get();
+	}
+
+	/**
+	 * Mark the start of the tests generation, used to compute the number of
+	 * sequences generated per second.
+	 */
+	public void startGeneration() {
+		generationStart.compareAndSet(0, System.currentTimeMillis());
+	}
+
+	/**
+	 * Set the number of sequences generated by a Randoop worker so far.
+	 *
+	 * @param worker
+	 *            = the name of the worker.
+	 * @param sequences
+	 *            = the number of sequences generated by the worker.
+	 */
+	public void setSequencesGenerated(String worker, long sequences) {
+		sequencesByWorker.put(worker, sequences);
+	}
+
+	/**
+	 * Get the number of sequences generated by all Randoop workers.
+	 *
+	 * @return the number of sequences generated.
+	 */
+	public long getSequencesGenerated() {
+		long total = 0;
+		for (Long sequences : sequencesByWorker.values())
+			total += sequences;
+		return total;
+	}
+
+	/**
+	 * Get the number of sequences generated per second since the start of
+	 * the tests generation.
+	 *
+	 * @return the number of sequences generated per second.
+	 */
+	public double getSequencesPerSecond() {
+		long start = generationStart.get();
+		if (start == 0)
+			return 0;
+		long elapsed = System.currentTimeMillis() - start;
+		return elapsed <= 0 ? 0 : getSequencesGenerated() * 1000.0 / elapsed;
+	}
+
+	/**
+	 * Count more test classes compiled, the tests of each round of
+	 * generation being added to the ones of the previous rounds.
+	 *
+	 * @param tests
+	 *            = the number of test classes compiled.
+	 */
+	public void addTestsCompiled(int tests) {
+		testsCompiled.addAndGet(tests);
+	}
+
+	/**
+	 * Get the number of test classes compiled.
+	 *
+	 * @return the number of test classes compiled.
+	 */
+	public int getTestsCompiled() {
+		return testsCompiled.get();
+	}
+
+	/**
+	 * Count more tests to be executed, the tests of each round of generation
+	 * being added to the ones of the previous rounds.
+	 *
+	 * @param tests
+	 *            = the number of tests to be executed.
+	 */
+	public void addTestsTotal(int tests) {
+		testsTotal.addAndGet(tests);
+	}
+
+	/**
+	 * Get the number of tests to be executed.
+	 *
+	 * @return the number of tests to be executed.
+	 */
+	public int getTestsTotal() {
+		return testsTotal.get();
+	}
+
+	/**
+	 * Count one more test executed.
+	 *
+	 * @param failed
+	 *            = if the test failed.
+	 */
+	public void testExecuted(boolean failed) {
+		testsExecuted.incrementAndGet();
+		if (failed)
+			failures.incrementAndGet();
+	}
+
+	/**
+	 * Get the number of tests executed.
+	 *
+	 * @return the number of tests executed.
+	 */
+	public int getTestsExecuted() {
+		return testsExecuted.get();
+	}
+
+	/**
+	 * Get the number of tests that failed.
+	 *
+	 * @return the number of tests that failed.
+	 */
+	public int getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Get a short description of the counters, to be shown to the user.
+	 *
+	 * @return the description of the counters.
+	 */
+	public String describe() {
+		return String.format("Files compiled: %d | Sequences: %d (%.1f/s) | "
+				+ "Tests compiled: %d | Tests executed: %d/%d | Failures: %d",
+				getFilesCompiled(), getSequencesGenerated(),
+				getSequencesPerSecond(), getTestsCompiled(),
+				getTestsExecuted(), getTestsTotal(), getFailures());
+	}
+}
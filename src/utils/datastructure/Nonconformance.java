@@ -8,6 +8,7 @@ import java.util.List;
 
 import utils.categorize.AcessingTestCases;
 import utils.commons.Constants;
+import utils.commons.Workspace;
 
 /**
  * Class that represents a nonconformance.
@@ -28,6 +29,7 @@ public class Nonconformance {
 	private String className = "";
 	private String methodName = "";
 	private String packageName = "";
+	private int occurrences = 1;
 	// For analysis purpose only.
 	private String methodCalling = "";
 	private String packageAndClassCalling = "";
@@ -312,12 +314,16 @@ public class Nonconformance {
 
 	/**
 	 * Set copy of line from the test file which generate the nonconformance.
+	 * 
+	 * @param workspace
+	 *            The workspace where the test file was generated.
 	 */
-	public void setSampleLineOfError() {
+	public void setSampleLineOfError(Workspace workspace) {
 		int[] arr = {0};
 		try {
 			this.sampleLineOfError = AcessingTestCases
-					.lineSampleWhoOriginatedError(this.testFile, this.lineNumberOnTestThatRevealsNC,
+					.lineSampleWhoOriginatedError(workspace.getTestDir(),
+							this.testFile, this.lineNumberOnTestThatRevealsNC,
 							this.numberedTest, arr);
 			this.setCountOcurrencesLineOfError(arr[0]);
 		} catch (IOException e) {
@@ -529,6 +535,55 @@ public class Nonconformance {
 		}
 	}
 	
+	/**
+	 * Get the number of times the nonconformance occurred on the tests.
+	 * 
+	 * @return the number of times the nonconformance occurred.
+	 */
+	public int getOccurrences() {
+		return occurrences;
+	}
+
+	/**
+	 * Set the number of times the nonconformance occurred on the tests.
+	 * 
+	 * @param occurrences
+	 *            The number of times the nonconformance occurred.
+	 */
+	public void setOccurrences(int occurrences) {
+		this.occurrences = occurrences;
+	}
+
+	/**
+	 * Take the data of another occurrence of the same nonconformance, revealed
+	 * by another test, forgetting the categorization done before. The number
+	 * of occurrences is kept.
+	 * 
+	 * @param other
+	 *            The other occurrence of the nonconformance, not categorized.
+	 */
+	public void copyOccurrence(Nonconformance other) {
+		this.type = other.type;
+		this.jmlRac = other.jmlRac;
+		this.meaningless = other.meaningless;
+		this.testFile = other.testFile;
+		this.numberedTest = other.numberedTest;
+		this.errorMessage = other.errorMessage;
+		this.className = other.className;
+		this.methodName = other.methodName;
+		this.packageName = other.packageName;
+		this.methodCalling = other.methodCalling;
+		this.packageAndClassCalling = other.packageAndClassCalling;
+		this.lineNumberOnJavaThatRevealsNC = other.lineNumberOnJavaThatRevealsNC;
+		this.cause = other.cause;
+		this.lineNumberOnTestThatRevealsNC = other.lineNumberOnTestThatRevealsNC;
+		this.sampleLineOfError = other.sampleLineOfError;
+		this.countOcurrencesLineOfError = other.countOcurrencesLineOfError;
+		this.testCaseCode = other.testCaseCode;
+		this.stackTraceOrder = (other.stackTraceOrder == null) ? null
+				: new ArrayList<String>(other.stackTraceOrder);
+	}
+
 	public String getIdentifier(){
 		return this.type.getName() + "." + this.packageName + "." + this.className + "." + this.methodName;
 	}
@@ -590,4 +645,4 @@ public class Nonconformance {
 	public boolean isNonconformance(){
 		return (isJmlRac() && !isMeaningless());
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
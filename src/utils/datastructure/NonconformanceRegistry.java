@@ -0,0 +1,122 @@
+package utils.datastructure;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Class that keeps the distinct nonconformances detected, counting how many
+ * times each one occurred. Nonconformances can be registered by several
+ * threads at the same time.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ */
+public class NonconformanceRegistry {
+	private ConcurrentMap<String, Entry> entries;
+
+	/**
+	 * The constructor of this class, creates an empty registry.
+	 */
+	public NonconformanceRegistry() {
+		entries = new ConcurrentHashMap<String, Entry>();
+	}
+
+	/**
+	 * Register an occurrence of a nonconformance. Two nonconformances are the
+	 * same when their identifiers are equal ignoring case, as in
+	 * Nonconformance.equals. The object kept is the first one registered,
+	 * since it may already be streamed and categorized; the occurrence of the
+	 * first test, in the order of test file and test name, is only remembered
+	 * here, and copied onto the object kept by getNonconformances, so the
+	 * result does not depend on the order of registering.
+	 *
+	 * @param nc
+	 *            = the nonconformance that occurred.
+	 * @return true if it is the first occurrence of the nonconformance.
+	 */
+	public boolean register(Nonconformance nc) {
+		String key = nc.getIdentifier().toLowerCase();
+		Entry entry = entries.get(key);
+		boolean first = false;
+		if (entry == null) {
+			Entry created = new Entry(nc);
+			entry = entries.putIfAbsent(key, created);
+			if (entry == null) {
+				entry = created;
+				first = true;
+			}
+		}
+		synchronized (entry) {
+			if (!first) {
+				entry.occurrences++;
+				if (comesBefore(nc, entry.earliest))
+					entry.earliest = nc;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Get the number of distinct nonconformances registered.
+	 *
+	 * @return the number of distinct nonconformances.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the distinct nonconformances registered, each one with its number
+	 * of occurrences and the data of the first test that revealed it. Must be
+	 * called after the detection, before the final categorization, which
+	 * categorizes again the nonconformances whose test changed.
+	 *
+	 * @return the distinct nonconformances registered.
+	 */
+	public Set<Nonconformance> getNonconformances() {
+		Set<Nonconformance> result = new HashSet<Nonconformance>();
+		for (Entry entry : entries.values()) {
+			synchronized (entry) {
+				if (entry.earliest != entry.nonconformance) {
+					// Not while it is categorized in background.
+					synchronized (entry.nonconformance) {
+						entry.nonconformance.copyOccurrence(entry.earliest);
+					}
+					entry.earliest = entry.nonconformance;
+				}
+				entry.nonconformance.setOccurrences(entry.occurrences);
+				result.add(entry.nonconformance);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Verify if a nonconformance was revealed by a test that comes before the
+	 * test of another one.
+	 */
+	private boolean comesBefore(Nonconformance a, Nonconformance b) {
+		int order = a.getTestFile().compareTo(b.getTestFile());
+		if (order == 0)
+			order = a.getNumberedTest().compareTo(b.getNumberedTest());
+		return order < 0;
+	}
+
+	/**
+	 * A distinct nonconformance, its occurrence revealed by the first test and
+	 * its number of occurrences.
+	 */
+	private static class Entry {
+		private final Nonconformance nonconformance;
+		private Nonconformance earliest;
+		private int occurrences;
+
+		Entry(Nonconformance nonconformance) {
+			this.nonconformance = nonconformance;
+			this.earliest = nonconformance;
+			this.occurrences = 1;
+		}
+	}
+}
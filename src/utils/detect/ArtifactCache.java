@@ -0,0 +1,332 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import utils.commons.CompiledClasses;
+
+/**
+ * Class used to keep the outputs of the compilations done by the tool, indexed
+ * by a hash of everything that was used to produce them (sources, libraries,
+ * compiler and options). When nothing of that changed between two executions,
+ * the output is restored from the cache instead of compiled again. The outputs
+ * are restored under a shared lock of the cache, and removed only under its
+ * exclusive lock, so no output is removed while another execution copies it.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class ArtifactCache {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int MAX_ENTRIES = 32;
+	private static final String TEMP_PREFIX = "tmp-";
+	private static final String LOCK_FILE = "cache.lock";
+	// A file lock is held by the whole JVM, so its threads take it one at a
+	// time.
+	private static final Object JVM_LOCK = new Object();
+	private File cacheDir;
+
+	/**
+	 * The constructor of this class, uses the directory received to store the
+	 * cached outputs.
+	 *
+	 * @param cacheDir
+	 *            - the directory where the outputs are stored.
+	 */
+	public ArtifactCache(String cacheDir) {
+		this.cacheDir = new File(cacheDir);
+		while (!this.cacheDir.exists()) {
+			this.cacheDir.mkdirs();
+		}
+	}
+
+	/**
+	 * Copy the output stored with the key received into the directory
+	 * received.
+	 *
+	 * @param key
+	 *            - the key of the output.
+	 * @param target
+	 *            - the directory where the output will be copied.
+	 * @return - true if the output was in the cache, false otherwise.
+	 */
+	public boolean restore(String key, File target) {
+		File entry = new File(cacheDir, key);
+		if (!entry.isDirectory())
+			return false;
+		synchronized (JVM_LOCK) {
+			try (FileChannel channel = openLock();
+					FileLock lock = channel.lock(0L, Long.MAX_VALUE, true)) {
+				// It may have been removed while the lock was awaited.
+				if (!entry.isDirectory())
+					return false;
+				FileUtils.copyDirectory(entry, target);
+				entry.setLastModified(System.currentTimeMillis());
+				return true;
+			} catch (IOException e) {
+				System.err.println("Error in method ArtifactCache.restore()");
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Store a copy of the directory received with the key received. The copy
+	 * is made apart and then moved to its place, so other executions never see
+	 * an incomplete output.
+	 *
+	 * @param key
+	 *            - the key of the output.
+	 * @param source
+	 *            - the directory that contains the output.
+	 */
+	public void store(String key, File source) {
+		File entry = new File(cacheDir, key);
+		if (entry.exists())
+			return;
+		File temp = newTempEntry(key);
+		try {
+			FileUtils.copyDirectory(source, temp);
+			publish(temp, entry);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(temp);
+		}
+	}
+
+	/**
+	 * Store the classes kept in memory with the key received.
+	 *
+	 * @param key
+	 *            - the key of the output.
+	 * @param classes
+	 *            - the classes compiled in memory.
+	 */
+	public void store(String key, CompiledClasses classes) {
+		File entry = new File(cacheDir, key);
+		if (entry.exists())
+			return;
+		File temp = newTempEntry(key);
+		try {
+			classes.writeTo(temp);
+			publish(temp, entry);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(temp);
+		}
+	}
+
+	/**
+	 * Creates the directory where an output is copied before being moved to
+	 * its place.
+	 *
+	 * @param key
+	 *            - the key of the output.
+	 * @return - the directory created.
+	 */
+	private File newTempEntry(String key) {
+		File temp = new File(cacheDir, TEMP_PREFIX + key + "-"
+				+ System.nanoTime());
+		temp.mkdirs();
+		return temp;
+	}
+
+	/**
+	 * Move a complete output to its place in the cache.
+	 *
+	 * @param temp
+	 *            - the directory where the output was copied.
+	 * @param entry
+	 *            - the place of the output in the cache.
+	 */
+	private void publish(File temp, File entry) {
+		try {
+			Files.move(temp.toPath(), entry.toPath(),
+					StandardCopyOption.ATOMIC_MOVE);
+			// The copy keeps the date of the output, not of its use.
+			entry.setLastModified(System.currentTimeMillis());
+		} catch (IOException e) {
+			// Another execution stored the same output first.
+			FileUtils.deleteQuietly(temp);
+		}
+		evictOldEntries();
+	}
+
+	/**
+	 * Remove the entries least recently used, keeping at most MAX_ENTRIES
+	 * outputs in the cache. Nothing is removed while some output is restored;
+	 * the entries are removed by a later store then.
+	 */
+	private void evictOldEntries() {
+		File[] entries = cacheDir.listFiles();
+		if (entries == null)
+			return;
+		List<File> ordered = new ArrayList<File>();
+		for (File entry : entries) {
+			if (entry.isDirectory() && !entry.getName().startsWith(TEMP_PREFIX))
+				ordered.add(entry);
+		}
+		if (ordered.size() <= MAX_ENTRIES)
+			return;
+		Collections.sort(ordered, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		synchronized (JVM_LOCK) {
+			try (FileChannel channel = openLock()) {
+				FileLock lock = channel.tryLock();
+				if (lock == null)
+					return;
+				try {
+					for (int i = 0; i < ordered.size() - MAX_ENTRIES; i++) {
+						FileUtils.deleteQuietly(ordered.get(i));
+					}
+				} finally {
+					lock.release();
+				}
+			} catch (IOException e) {
+				System.err
+						.println("Error in method ArtifactCache.evictOldEntries()");
+			}
+		}
+	}
+
+	/**
+	 * Open the file locked while the outputs are restored or removed.
+	 *
+	 * @return - the channel of the lock file.
+	 * @throws IOException
+	 *             When the lock file cannot be opened.
+	 */
+	private FileChannel openLock() throws IOException {
+		return new RandomAccessFile(new File(cacheDir, LOCK_FILE), "rw")
+				.getChannel();
+	}
+
+	/**
+	 * Creates a new key, to be fed with everything that was used to produce an
+	 * output.
+	 *
+	 * @return - the new key.
+	 */
+	public static Key newKey() {
+		return new Key();
+	}
+
+	/**
+	 * Class used to compute the key of an output, a SHA-256 hash of the names
+	 * and contents of the files, and of the texts, used to produce it.
+	 */
+	public static class Key {
+		private MessageDigest digest;
+
+		/**
+		 * Creates a new empty key.
+		 */
+		private Key() {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/**
+		 * Add a text to the key, like a compiler identity or an option.
+		 *
+		 * @param text
+		 *            - the text to be added.
+		 * @return - this key.
+		 */
+		public Key add(String text) {
+			byte[] bytes = String.valueOf(text).getBytes(UTF_8);
+			digest.update(bytes);
+			digest.update((byte) 0);
+			return this;
+		}
+
+		/**
+		 * Add the name and content of a file to the key. When the file is a
+		 * directory, all files inside it ending with the extension received
+		 * are added, in alphabetical order.
+		 *
+		 * @param file
+		 *            - the file or directory to be added.
+		 * @param extension
+		 *            - the extension of the files added, or "" for all files.
+		 * @param recursive
+		 *            - if the sub directories will be added too.
+		 * @return - this key.
+		 * @throws IOException
+		 *             When some file cannot be read.
+		 */
+		public Key addFiles(File file, String extension, boolean recursive)
+				throws IOException {
+			return addFiles(file, "", extension, recursive);
+		}
+
+		/**
+		 * Add the file received to the key, naming it by its path relative to
+		 * the first file added.
+		 */
+		private Key addFiles(File file, String relativeName, String extension,
+				boolean recursive) throws IOException {
+			if (file.isDirectory()) {
+				File[] files = file.listFiles();
+				if (files == null)
+					return this;
+				Arrays.sort(files);
+				for (File child : files) {
+					if (child.isDirectory() && !recursive)
+						continue;
+					if (child.isFile() && !child.getName().endsWith(extension))
+						continue;
+					addFiles(child, relativeName + "/" + child.getName(),
+							extension, recursive);
+				}
+			} else if (file.isFile()) {
+				add(relativeName);
+				byte[] buffer = new byte[64 * 1024];
+				try (InputStream in = new FileInputStream(file)) {
+					int read;
+					while ((read = in.read(buffer)) != -1) {
+						digest.update(buffer, 0, read);
+					}
+				}
+				digest.update((byte) 0);
+			}
+			return this;
+		}
+
+		/**
+		 * Finish the key, returning its hexadecimal representation.
+		 *
+		 * @return - the hexadecimal representation of the key.
+		 */
+		public String toHex() {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+	}
+}
@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
-import utils.commons.Constants;
+import utils.commons.Workspace;
 
 /**
  * Class used for Detect module to manipulate files.
@@ -61,25 +61,107 @@ public class DetectUtil {
 	}
 
 	/**
-	 * Return the ideal command to execute Randoop and generate tests.
+	 * Return the command to execute Randoop with the arguments received.
 	 * 
-	 * @param timeout
-	 *            The time used to generate Tests.
+	 * @param workspace
+	 *            The workspace of the current execution.
 	 * @param pathToRandoop
 	 *            The path where randoop.jar will be located.
+	 * @param liblist
+	 *            The libraries of the SUT.
+	 * @param arguments
+	 *            The arguments of the Randoop entry point.
 	 * @return The String to be executed in Runtime execution.
 	 */
-	public static String getCommandToUseRandoop(String timeout,
-			String pathToRandoop, String liblist) {
+	public static String getCommandToUseRandoop(Workspace workspace,
+			String pathToRandoop, String liblist, String[] arguments) {
 		String bruteCommand = "java -cp \"" + pathToRandoop + ";"
-				+ Constants.JML_SOURCE_BIN
+				+ workspace.getJmlSourceBin()
 				+ ((liblist.equals("")) ? ("") : (";" + liblist))
-				+ "\" randoop.main.Main gentests --classlist="
-				+ Constants.CLASSES + " --timelimit=" + timeout
-				+ " --junit-output-dir=" + Constants.TEST_DIR;
+				+ "\" randoop.main.Main";
+		for (String argument : arguments)
+			bruteCommand += " " + argument;
 		if (System.getProperty("os.name").contains("Windows"))
 			return bruteCommand;
 		else
 			return bruteCommand.replaceAll(";", ":");
 	}
+
+	/**
+	 * Return the arguments given to Randoop to generate tests.
+	 * 
+	 * @param workspace
+	 *            The workspace of the current execution.
+	 * @param timeout
+	 *            The time used to generate Tests.
+	 * @return The arguments of the Randoop entry point.
+	 */
+	public static String[] getRandoopArguments(Workspace workspace,
+			String timeout) {
+		return new String[] { "gentests",
+				"--classlist=" + workspace.getClasses(),
+				"--timelimit=" + timeout,
+				"--junit-output-dir=" + workspace.getTestDir() };
+	}
+
+	/**
+	 * Return the arguments given to Randoop to generate tests with the test
+	 * class name and the random seed received.
+	 * 
+	 * @param workspace
+	 *            The workspace of the current execution.
+	 * @param timeout
+	 *            The time used to generate Tests.
+	 * @param className
+	 *            The name of the test suite generated.
+	 * @param seed
+	 *            The random seed of Randoop.
+	 * @return The arguments of the Randoop entry point.
+	 */
+	public static String[] getRandoopArguments(Workspace workspace,
+			String timeout, String className, int seed) {
+		return getRandoopArguments(workspace.getClasses(), timeout,
+				workspace.getTestDir(), className, seed);
+	}
+
+	/**
+	 * Return the arguments given to a Randoop worker, that generates tests
+	 * for a part of the classes with its own seed and test class name.
+	 * 
+	 * @param classList
+	 *            The file that has the class names of the part.
+	 * @param timeout
+	 *            The time used to generate Tests.
+	 * @param outputDir
+	 *            The directory where the tests of the worker are written.
+	 * @param className
+	 *            The name of the test suite of the worker.
+	 * @param seed
+	 *            The random seed of the worker.
+	 * @return The arguments of the Randoop entry point.
+	 */
+	public static String[] getRandoopArguments(String classList,
+			String timeout, String outputDir, String className, int seed) {
+		return new String[] { "gentests", "--classlist=" + classList,
+				"--timelimit=" + timeout, "--junit-output-dir=" + outputDir,
+				"--junit-classname=" + className, "--randomseed=" + seed };
+	}
+
+	/**
+	 * Return the classpath used to run Randoop inside the JVM of the tool.
+	 * 
+	 * @param workspace
+	 *            The workspace of the current execution.
+	 * @param pathToRandoop
+	 *            The path where randoop.jar will be located.
+	 * @param liblist
+	 *            The libraries of the SUT, separated by ';' or ':'.
+	 * @return The classpath, separated by the path separator of the System.
+	 */
+	public static String getClasspathToUseRandoop(Workspace workspace,
+			String pathToRandoop, String liblist) {
+		return pathToRandoop + File.pathSeparator
+				+ workspace.getJmlSourceBin()
+				+ ((liblist.equals("")) ? ("") : (File.pathSeparator + liblist));
+	}
 }
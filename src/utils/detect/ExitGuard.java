@@ -0,0 +1,145 @@
+package utils.detect;
+
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class used for Detect module to keep the code run inside the JVM of the
+ * tool, like the tests and Randoop, from finishing the JVM. While a group of
+ * threads is guarded, a call of System.exit by one of its threads throws a
+ * SecurityException instead. A group released while some of its threads are
+ * still running, like the ones given up, stays guarded until they end. The
+ * other permissions are checked by the security manager installed before, if
+ * any. The JVMs that do not allow a security manager, as Java 18 or later
+ * without -Djava.security.manager=allow, cannot be guarded, and the code is
+ * run on new JVMs instead.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+// The security manager is deprecated for removal, but it is still the only
+// way to stop a System.exit of the code run inside the JVM of the tool.
+@SuppressWarnings("removal")
+public class ExitGuard extends SecurityManager {
+	private static final Object LOCK = new Object();
+	private static final List<ThreadGroup> GROUPS = new ArrayList<ThreadGroup>();
+	private static final List<ThreadGroup> RELEASED = new ArrayList<ThreadGroup>();
+	private static ExitGuard installed;
+	private static boolean warned;
+
+	private final SecurityManager previous;
+
+	/**
+	 * The constructor of this class.
+	 *
+	 * @param previous
+	 *            - the security manager installed before, or null.
+	 */
+	private ExitGuard(SecurityManager previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Guard the threads of a group, installing the guard if it is not
+	 * installed yet.
+	 *
+	 * @param group
+	 *            - the group of threads guarded.
+	 * @return - false if the JVM does not allow the guard to be installed, so
+	 *         the code must be run on a new JVM, true otherwise.
+	 */
+	public static boolean guard(ThreadGroup group) {
+		synchronized (LOCK) {
+			if (installed == null) {
+				ExitGuard guard = new ExitGuard(System.getSecurityManager());
+				try {
+					System.setSecurityManager(guard);
+				} catch (UnsupportedOperationException e) {
+					warnUnavailable();
+					return false;
+				} catch (SecurityException e) {
+					warnUnavailable();
+					return false;
+				}
+				installed = guard;
+			}
+			GROUPS.add(group);
+			return true;
+		}
+	}
+
+	/**
+	 * Tell once what is turned off when the guard cannot be installed.
+	 */
+	private static void warnUnavailable() {
+		if (warned)
+			return;
+		warned = true;
+		System.out.println("System.exit cannot be guarded on this JVM (Java 18"
+				+ " or later needs -Djava.security.manager=allow), so the tests"
+				+ " and Randoop run on new JVMs: the nonconformances are only"
+				+ " categorized after all tests run, and the saturation mode"
+				+ " stops after its first round.");
+	}
+
+	/**
+	 * Stop guarding the threads of a group, removing the guard when no group
+	 * is guarded anymore.
+	 *
+	 * @param group
+	 *            - the group of threads guarded.
+	 */
+	public static void release(ThreadGroup group) {
+		synchronized (LOCK) {
+			if (GROUPS.contains(group))
+				RELEASED.add(group);
+			for (int i = RELEASED.size() - 1; i >= 0; i--) {
+				if (RELEASED.get(i).activeCount() == 0)
+					GROUPS.remove(RELEASED.remove(i));
+			}
+			if (!GROUPS.isEmpty() || installed == null)
+				return;
+			// Left as it is if another security manager replaced the guard.
+			if (System.getSecurityManager() == installed)
+				System.setSecurityManager(installed.previous);
+			installed = null;
+		}
+	}
+
+	/**
+	 * Verify if a thread belongs to some group guarded.
+	 */
+	private static boolean isGuarded(Thread thread) {
+		ThreadGroup current = thread.getThreadGroup();
+		synchronized (LOCK) {
+			for (ThreadGroup group : GROUPS) {
+				if (group == current || group.parentOf(current))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void checkExit(int status) {
+		if (isGuarded(Thread.currentThread()))
+			throw new SecurityException("System.exit(" + status
+					+ ") is not allowed inside the JVM of the tool.");
+		if (previous != null)
+			previous.checkExit(status);
+	}
+
+	@Override
+	public void checkPermission(Permission perm) {
+		if (previous != null)
+			previous.checkPermission(perm);
+	}
+
+	@Override
+	public void checkPermission(Permission perm, Object context) {
+		if (previous != null)
+			previous.checkPermission(perm, context);
+	}
+}
@@ -0,0 +1,268 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+
+import utils.commons.Constants;
+import utils.commons.Workspace;
+
+/**
+ * Class used for Detect module to plan the tests generation. Each class under
+ * test receives a score from the JML clauses and public methods of its source
+ * and from the nonconformances found on it by previous executions over the
+ * same source folder. The scores order the classes and balance them among
+ * the batches of generation, one for each worker, so a class with a higher
+ * score shares its Randoop execution with fewer classes. All batches run at
+ * the same time, each one with the whole time of generation.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class GenerationPlanner {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final double CLAUSE_WEIGHT = 1.0;
+	private static final double METHOD_WEIGHT = 0.5;
+	private static final double NONCONFORMANCE_WEIGHT = 5.0;
+	private static final Pattern JML_ANNOTATION = Pattern.compile(
+			"//@[^\\n]*|/\\*@.*?\\*/", Pattern.DOTALL);
+	private static final Pattern JML_CLAUSE = Pattern
+			.compile("\\b(requires|ensures|signals|signals_only|invariant|constraint|assignable|modifies|pre|post)\\b");
+	private static final Pattern PUBLIC_METHOD = Pattern
+			.compile("\\bpublic\\s+(?!class\\b|interface\\b|enum\\b)[\\w<>\\[\\],.?\\s]*?(\\w+)\\s*\\(");
+	private String sourceFolder;
+
+	/**
+	 * The constructor of this class, receives the source folder of the SUT.
+	 *
+	 * @param sourceFolder
+	 *            - the source folder of the SUT.
+	 */
+	public GenerationPlanner(String sourceFolder) {
+		this.sourceFolder = sourceFolder;
+	}
+
+	/**
+	 * Plan the tests generation of the classes received. There is at most one
+	 * batch for each worker, each batch being one Randoop execution with the
+	 * whole time of generation, so the batches together spend the time of all
+	 * workers and end within the time of generation. The classes are put, in
+	 * decreasing order of score, into the batch with the lowest score so far.
+	 *
+	 * @param classes
+	 *            - the names of the classes under test.
+	 * @param workers
+	 *            - the number of workers that run at the same time.
+	 * @return - the batches, the ones with higher scores first.
+	 */
+	public List<Batch> plan(List<String> classes, int workers) {
+		final Map<String, Double> scores = score(classes);
+		List<String> ordered = new ArrayList<String>(classes);
+		Collections.sort(ordered, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				int byScore = Double.compare(scores.get(b), scores.get(a));
+				return (byScore != 0) ? byScore : a.compareTo(b);
+			}
+		});
+		workers = Math.max(1, workers);
+		List<Batch> batches = new ArrayList<Batch>();
+		for (int i = Math.min(workers, ordered.size()); i > 0; i--)
+			batches.add(new Batch());
+		for (String name : ordered) {
+			Batch lightest = batches.get(0);
+			for (Batch batch : batches) {
+				if (batch.score < lightest.score)
+					lightest = batch;
+			}
+			lightest.classes.add(name);
+			lightest.score += scores.get(name);
+		}
+		Collections.sort(batches, new Comparator<Batch>() {
+			@Override
+			public int compare(Batch a, Batch b) {
+				return Double.compare(b.score, a.score);
+			}
+		});
+		return batches;
+	}
+
+	/**
+	 * Give a score to each class: its JML clauses, its public methods and the
+	 * nonconformances found on it before.
+	 *
+	 * @param classes
+	 *            - the names of the classes under test.
+	 * @return - the score of each class.
+	 */
+	public Map<String, Double> score(List<String> classes) {
+		Map<String, Integer> history = readHistory(historyFile(sourceFolder));
+		Map<String, Double> scores = new HashMap<String, Double>();
+		for (String name : classes) {
+			double score = 1.0;
+			File source = sourceOf(name);
+			if (source.isFile()) {
+				try {
+					String code = FileUtils.readFileToString(source, UTF_8);
+					score += CLAUSE_WEIGHT * countClauses(code);
+					score += METHOD_WEIGHT * count(PUBLIC_METHOD, code);
+				} catch (IOException e) {
+					System.err.println("Error in method GenerationPlanner.score()");
+				}
+			}
+			Integer found = history.get(name);
+			if (found != null)
+				score += NONCONFORMANCE_WEIGHT * found;
+			scores.put(name, score);
+		}
+		return scores;
+	}
+
+	/**
+	 * Keep the results of the categorization of an execution, to be used by
+	 * the next executions over the same source folder.
+	 *
+	 * @param workspace
+	 *            - the workspace of the execution.
+	 * @param sourceFolder
+	 *            - the source folder of the SUT.
+	 */
+	public static void recordResults(Workspace workspace, String sourceFolder) {
+		File results = new File(workspace.getResults());
+		if (!results.isFile())
+			return;
+		File history = historyFile(sourceFolder);
+		File dir = history.getParentFile();
+		while (!dir.exists()) {
+			dir.mkdirs();
+		}
+		try {
+			File temp = File.createTempFile("results", ".xml", dir);
+			FileUtils.copyFile(results, temp);
+			Files.move(temp.toPath(), history.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Error in method GenerationPlanner.recordResults()");
+		}
+	}
+
+	/**
+	 * The file where the results of the executions over a source folder are
+	 * kept.
+	 */
+	private static File historyFile(String sourceFolder) {
+		String key = ArtifactCache.newKey()
+				.add(new File(sourceFolder).getAbsolutePath()).toHex();
+		return new File(Constants.HISTORY_DIR, key + ".xml");
+	}
+
+	/**
+	 * Read the number of distinct nonconformances found on each class by the
+	 * last execution.
+	 */
+	private static Map<String, Integer> readHistory(File history) {
+		Map<String, Integer> found = new HashMap<String, Integer>();
+		if (!history.isFile())
+			return found;
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		try (InputStream in = new FileInputStream(history)) {
+			XMLStreamReader xml = factory.createXMLStreamReader(in);
+			try {
+				while (xml.hasNext()) {
+					if (xml.next() == XMLStreamConstants.START_ELEMENT
+							&& xml.getLocalName().equals("Nonconformance")) {
+						String pack = xml.getAttributeValue(null, "package");
+						String name = xml.getAttributeValue(null, "class");
+						if (pack != null && !pack.equals(""))
+							name = pack + "." + name;
+						Integer count = found.get(name);
+						found.put(name, (count == null) ? 1 : count + 1);
+					}
+				}
+			} finally {
+				xml.close();
+			}
+		} catch (IOException | XMLStreamException e) {
+			System.err.println("Error in method GenerationPlanner.readHistory()");
+		}
+		return found;
+	}
+
+	/**
+	 * The source file of a class under test.
+	 */
+	private File sourceOf(String className) {
+		int inner = className.indexOf('$');
+		if (inner >= 0)
+			className = className.substring(0, inner);
+		return new File(sourceFolder, className.replace('.',
+				File.separatorChar) + ".java");
+	}
+
+	/**
+	 * Count the JML clauses inside the annotations of a source.
+	 */
+	private static int countClauses(String code) {
+		int clauses = 0;
+		Matcher annotation = JML_ANNOTATION.matcher(code);
+		while (annotation.find())
+			clauses += count(JML_CLAUSE, annotation.group());
+		return clauses;
+	}
+
+	private static int count(Pattern pattern, String text) {
+		int count = 0;
+		Matcher matcher = pattern.matcher(text);
+		while (matcher.find())
+			count++;
+		return count;
+	}
+
+	/**
+	 * A group of classes generated by one Randoop execution.
+	 */
+	public static class Batch {
+		private List<String> classes = new ArrayList<String>();
+		private double score;
+
+		/**
+		 * Get the names of the classes of the batch.
+		 *
+		 * @return - the names of the classes of the batch.
+		 */
+		public List<String> getClasses() {
+			return classes;
+		}
+
+		/**
+		 * Get the sum of the scores of the classes of the batch.
+		 *
+		 * @return - the score of the batch.
+		 */
+		public double getScore() {
+			return score;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package utils.detect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import utils.commons.CompiledClasses;
+
+/**
+ * Class used for Detect module to compile Java files inside the JVM of the
+ * tool, using the compiler of the running JDK, instead of forking a new javac.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class InProcessCompiler {
+
+	/**
+	 * Method that returns if the running JVM has a Java compiler (the tool
+	 * runs on a JDK and not on a JRE).
+	 *
+	 * @return - true if the Java compiler is available.
+	 */
+	public static boolean isAvailable() {
+		return ToolProvider.getSystemJavaCompiler() != null;
+	}
+
+	/**
+	 * Method to compile Java files keeping the bytecode in memory.
+	 *
+	 * @param sources
+	 *            - the files to be compiled.
+	 * @param sourcepath
+	 *            - the path where other sources needed are searched.
+	 * @param classpath
+	 *            - the classpath used on compilation.
+	 * @param output
+	 *            - where the bytecode will be kept.
+	 * @return - true if the files were compiled with no errors.
+	 * @throws IOException
+	 *             When some file cannot be read.
+	 */
+	public static boolean compileToMemory(List<File> sources,
+			String sourcepath, String classpath, final CompiledClasses output)
+			throws IOException {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager standard = javac.getStandardFileManager(
+				diagnostics, null, null);
+		JavaFileManager memory = new ForwardingJavaFileManager<StandardJavaFileManager>(
+				standard) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location,
+					String className, Kind kind, FileObject sibling)
+					throws IOException {
+				if (kind != Kind.CLASS)
+					return super.getJavaFileForOutput(location, className,
+							kind, sibling);
+				return new ClassFile(className, output);
+			}
+		};
+		try {
+			return compile(javac, memory, standard, diagnostics, sources,
+					options(sourcepath, classpath, null));
+		} finally {
+			memory.close();
+		}
+	}
+
+	/**
+	 * Method to compile Java files writing the bytecode to a directory.
+	 *
+	 * @param sources
+	 *            - the files to be compiled.
+	 * @param sourcepath
+	 *            - the path where other sources needed are searched.
+	 * @param classpath
+	 *            - the classpath used on compilation.
+	 * @param destination
+	 *            - the directory where the bytecode will be written.
+	 * @return - true if the files were compiled with no errors.
+	 * @throws IOException
+	 *             When some file cannot be read.
+	 */
+	public static boolean compileToDirectory(List<File> sources,
+			String sourcepath, String classpath, File destination)
+			throws IOException {
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager standard = javac.getStandardFileManager(
+				diagnostics, null, null);
+		try {
+			return compile(javac, standard, standard, diagnostics, sources,
+					options(sourcepath, classpath, destination));
+		} finally {
+			standard.close();
+		}
+	}
+
+	/**
+	 * Method to compile Java files writing the bytecode to a directory, the
+	 * independent files split into shards compiled at the same time by
+	 * several compiler tasks. The files that depend on the other ones, as the
+	 * test suites, are compiled after all shards, against the bytecode
+	 * written.
+	 *
+	 * @param sources
+	 *            - the files to be compiled, that do not depend on each other.
+	 * @param dependents
+	 *            - the files to be compiled that depend on the other ones.
+	 * @param classpath
+	 *            - the classpath used on compilation.
+	 * @param destination
+	 *            - the directory where the bytecode will be written.
+	 * @param shards
+	 *            - the maximum number of shards compiled at the same time.
+	 * @return - true if the files were compiled with no errors.
+	 * @throws Exception
+	 *             When some file cannot be read or a compiler task fails.
+	 */
+	public static boolean compileInShards(List<File> sources,
+			List<File> dependents, final String classpath,
+			final File destination, int shards) throws Exception {
+		List<List<File>> parts = shards(sources, shards);
+		boolean success = true;
+		if (parts.size() == 1) {
+			success = compileToDirectory(parts.get(0), null, classpath,
+					destination);
+		} else if (parts.size() > 1) {
+			ExecutorService executor = Executors.newFixedThreadPool(parts
+					.size());
+			try {
+				List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+				for (final List<File> part : parts) {
+					results.add(executor.submit(new Callable<Boolean>() {
+						@Override
+						public Boolean call() throws Exception {
+							return compileToDirectory(part, null, classpath,
+									destination);
+						}
+					}));
+				}
+				for (Future<Boolean> result : results) {
+					try {
+						success &= result.get();
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof Exception)
+							throw (Exception) e.getCause();
+						throw e;
+					}
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		if (!success)
+			return false;
+		return compileToDirectory(dependents, null, classpath
+				+ File.pathSeparator + destination.getAbsolutePath(),
+				destination);
+	}
+
+	/**
+	 * Split the files into shards of about the same size: the larger files
+	 * first, each one to the shard with less code.
+	 */
+	private static List<List<File>> shards(List<File> sources, int count) {
+		List<File> ordered = new ArrayList<File>(sources);
+		Collections.sort(ordered, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				int bySize = Long.compare(b.length(), a.length());
+				return (bySize != 0) ? bySize : a.compareTo(b);
+			}
+		});
+		count = Math.max(1, Math.min(count, ordered.size()));
+		List<List<File>> shards = new ArrayList<List<File>>();
+		long[] sizes = new long[count];
+		for (int i = 0; i < count; i++)
+			shards.add(new ArrayList<File>());
+		for (File source : ordered) {
+			int smallest = 0;
+			for (int i = 1; i < count; i++) {
+				if (sizes[i] < sizes[smallest])
+					smallest = i;
+			}
+			shards.get(smallest).add(source);
+			sizes[smallest] += source.length();
+		}
+		return shards;
+	}
+
+	/**
+	 * Run the compiler and print its errors.
+	 */
+	private static boolean compile(JavaCompiler javac,
+			JavaFileManager fileManager, StandardJavaFileManager standard,
+			DiagnosticCollector<JavaFileObject> diagnostics,
+			List<File> sources, List<String> options) {
+		if (sources.isEmpty())
+			return true;
+		Iterable<? extends JavaFileObject> units = standard
+				.getJavaFileObjectsFromFiles(sources);
+		boolean success = javac.getTask(null, fileManager, diagnostics,
+				options, null, units).call();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics
+				.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR)
+				System.out.println(diagnostic.toString());
+		}
+		return success;
+	}
+
+	/**
+	 * The options used on compilation, the same used by the ANT javac task.
+	 */
+	private static List<String> options(String sourcepath, String classpath,
+			File destination) {
+		List<String> options = new ArrayList<String>();
+		options.add("-g");
+		options.add("-nowarn");
+		if (sourcepath != null) {
+			options.add("-sourcepath");
+			options.add(sourcepath);
+		}
+		options.add("-classpath");
+		options.add(classpath);
+		if (destination != null) {
+			options.add("-d");
+			options.add(destination.getAbsolutePath());
+		}
+		return options;
+	}
+
+	/**
+	 * A class file produced by the compiler, kept in memory when closed.
+	 */
+	private static class ClassFile extends SimpleJavaFileObject {
+		private String className;
+		private CompiledClasses output;
+
+		ClassFile(String className, CompiledClasses output) {
+			super(URI.create("mem:///" + className.replace('.', '/')
+					+ Kind.CLASS.extension), Kind.CLASS);
+			this.className = className;
+			this.output = output;
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return new ByteArrayOutputStream() {
+				@Override
+				public void close() throws IOException {
+					super.close();
+					output.put(className, toByteArray());
+				}
+			};
+		}
+	}
+}
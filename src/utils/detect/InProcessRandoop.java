@@ -0,0 +1,294 @@
+package utils.detect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class used for Detect module to run Randoop inside the JVM of the tool, in
+ * its own class loader, instead of forking a new JVM for each generation. The
+ * output of Randoop is delivered line by line to an OutputListener. Randoop
+ * is guarded against System.exit, and given up after a deadline.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class InProcessRandoop {
+	private static final String MAIN_CLASS = "randoop.main.Main";
+	private static final String MAIN_METHOD = "nonStaticMain";
+	private static final Object STREAMS_LOCK = new Object();
+	private static final List<Route> ROUTES = new ArrayList<Route>();
+	private static PrintStream originalOut;
+	private static PrintStream originalErr;
+
+	private List<URL> classpath;
+	private OutputListener listener;
+
+	/**
+	 * The constructor of this class, receives the classpath where Randoop and
+	 * the classes under test are found, and the listener of its output.
+	 *
+	 * @param classpath
+	 *            - the Randoop jar, the classes under test and their
+	 *            libraries, separated by the path separator of the System.
+	 * @param listener
+	 *            - the listener of the output of Randoop.
+	 * @throws MalformedURLException
+	 *             When some path cannot be converted to URL.
+	 */
+	public InProcessRandoop(String classpath, OutputListener listener)
+			throws MalformedURLException {
+		this.classpath = new ArrayList<URL>();
+		for (String path : classpath.split(File.pathSeparator)) {
+			if (!path.equals(""))
+				this.classpath.add(new File(path).toURI().toURL());
+		}
+		this.listener = listener;
+	}
+
+	/**
+	 * Run Randoop with the arguments received, waiting for its end until the
+	 * deadline.
+	 *
+	 * @param args
+	 *            - the arguments of Randoop, like "gentests".
+	 * @param timeout
+	 *            - the time, in milliseconds, Randoop is waited for, or 0 for
+	 *            no limit.
+	 * @return - false if the Randoop entry point was not found, or the JVM
+	 *         does not allow Randoop to be guarded against System.exit, so
+	 *         Randoop must be run on a new JVM, true otherwise.
+	 * @throws TimeoutException
+	 *             When Randoop does not finish until the deadline.
+	 * @throws Exception
+	 *             When Randoop shows some error.
+	 */
+	public boolean run(final String[] args, long timeout) throws Exception {
+		// The parent is the bootstrap class loader, so Randoop and the classes
+		// under test never see the classes of the tool.
+		final URLClassLoader loader = new URLClassLoader(
+				classpath.toArray(new URL[classpath.size()]), null);
+		final Method entry = findEntry(loader);
+		if (entry == null) {
+			loader.close();
+			return false;
+		}
+		final ThreadGroup group = new ThreadGroup("jmlok-randoop");
+		if (!ExitGuard.guard(group)) {
+			loader.close();
+			return false;
+		}
+		final Throwable[] error = new Throwable[1];
+		Thread randoop = new Thread(group, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Object target = Modifier.isStatic(entry.getModifiers()) ? null
+							: entry.getDeclaringClass()
+							.getConstructor().newInstance();
+					entry.invoke(target, new Object[] { args });
+				} catch (InvocationTargetException e) {
+					error[0] = e.getCause();
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		}, "jmlok-randoop-main");
+		randoop.setContextClassLoader(loader);
+		randoop.setDaemon(true);
+		redirectStreams(group);
+		try {
+			randoop.start();
+			try {
+				randoop.join(Math.max(0, timeout));
+			} catch (InterruptedException e) {
+				// Another stage failed, Randoop must not keep running.
+				group.interrupt();
+				throw e;
+			}
+			if (randoop.isAlive()) {
+				group.interrupt();
+				throw new TimeoutException("Randoop did not finish in "
+						+ (timeout / 1000) + " seconds.");
+			}
+		} finally {
+			restoreStreams(group);
+			ExitGuard.release(group);
+			loader.close();
+		}
+		if (error[0] != null)
+			throw new Exception("Randoop failed: " + error[0], error[0]);
+		return true;
+	}
+
+	/**
+	 * Find the method of Randoop that generates tests without finishing the
+	 * JVM.
+	 *
+	 * @param loader
+	 *            - the class loader of Randoop.
+	 * @return - the method found, or null if Randoop has no such method.
+	 */
+	private Method findEntry(ClassLoader loader) {
+		try {
+			Class<?> main = Class.forName(MAIN_CLASS, true, loader);
+			return main.getMethod(MAIN_METHOD, String[].class);
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Redirect the outputs of the System, so the lines written by threads of
+	 * the group received go to the listener, and the others keep their way.
+	 */
+	private void redirectStreams(ThreadGroup group) {
+		synchronized (STREAMS_LOCK) {
+			if (ROUTES.isEmpty()) {
+				originalOut = System.out;
+				originalErr = System.err;
+				System.setOut(new PrintStream(new RoutingStream(false), true));
+				System.setErr(new PrintStream(new RoutingStream(true), true));
+			}
+			ROUTES.add(new Route(group, listener));
+		}
+	}
+
+	/**
+	 * Restore the outputs of the System when no Randoop is running.
+	 */
+	private void restoreStreams(ThreadGroup group) {
+		synchronized (STREAMS_LOCK) {
+			for (int i = 0; i < ROUTES.size(); i++) {
+				if (ROUTES.get(i).group == group) {
+					ROUTES.remove(i);
+					break;
+				}
+			}
+			if (ROUTES.isEmpty()) {
+				System.out.flush();
+				System.err.flush();
+				System.setOut(originalOut);
+				System.setErr(originalErr);
+			}
+		}
+	}
+
+	/**
+	 * The listener of the output of the threads of a group.
+	 */
+	private static class Route {
+		private ThreadGroup group;
+		private OutputListener listener;
+
+		Route(ThreadGroup group, OutputListener listener) {
+			this.group = group;
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * Find the listener of the output of the current thread.
+	 */
+	private static OutputListener currentListener() {
+		ThreadGroup current = Thread.currentThread().getThreadGroup();
+		synchronized (STREAMS_LOCK) {
+			for (Route route : ROUTES) {
+				if (route.group == current || route.group.parentOf(current))
+					return route.listener;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stream that splits in lines the output of the threads of Randoop,
+	 * sending them to their listener, and forwards the output of the other
+	 * threads to the original stream.
+	 */
+	private static class RoutingStream extends OutputStream {
+		private boolean error;
+		private ThreadLocal<ByteArrayOutputStream> lines = new ThreadLocal<ByteArrayOutputStream>() {
+			@Override
+			protected ByteArrayOutputStream initialValue() {
+				return new ByteArrayOutputStream();
+			}
+		};
+
+		// Set while a line is delivered, so a listener printing on the
+		// outputs of the System writes on the original streams.
+		private static final ThreadLocal<Boolean> DELIVERING = new ThreadLocal<Boolean>() {
+			@Override
+			protected Boolean initialValue() {
+				return Boolean.FALSE;
+			}
+		};
+
+		RoutingStream(boolean error) {
+			this.error = error;
+		}
+
+		private PrintStream original() {
+			return error ? originalErr : originalOut;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			OutputListener target = DELIVERING.get() ? null
+					: currentListener();
+			if (target == null) {
+				original().write(b, off, len);
+				return;
+			}
+			ByteArrayOutputStream line = lines.get();
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n') {
+					deliver(target, line);
+				} else if (b[i] != '\r') {
+					line.write(b[i]);
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (DELIVERING.get() || currentListener() == null)
+				original().flush();
+		}
+
+		private void deliver(OutputListener target, ByteArrayOutputStream line) {
+			String text = line.toString();
+			line.reset();
+			DELIVERING.set(Boolean.TRUE);
+			try {
+				if (error)
+					target.errorLine(text);
+				else
+					target.outputLine(text);
+			} finally {
+				DELIVERING.set(Boolean.FALSE);
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package utils.detect;
+
+/**
+ * Interface used to receive, line by line, the output of the tools run by the
+ * Detect module.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public interface OutputListener {
+
+	/**
+	 * Receives a line written on the standard output.
+	 *
+	 * @param line
+	 *            - the line written, without its line terminator.
+	 */
+	public void outputLine(String line);
+
+	/**
+	 * Receives a line written on the error output.
+	 *
+	 * @param line
+	 *            - the line written, without its line terminator.
+	 */
+	public void errorLine(String line);
+}
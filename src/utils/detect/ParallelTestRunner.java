@@ -0,0 +1,526 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import utils.datastructure.DetectProgress;
+import utils.datastructure.Nonconformance;
+
+/**
+ * Class used for Detect module to run the tests inside the JVM of the tool,
+ * spreading the test methods among several workers. Each worker loads the
+ * tests and the classes under test through its own class loader, so the
+ * static state of the classes is never shared between workers. Each test runs
+ * on its own thread, given up after the timeout of the tests, and guarded
+ * against System.exit. The results are written in the same XML format of the
+ * ANT junit task, one file per test suite, with the stack traces filtered as
+ * the filtertrace option of that task does.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class ParallelTestRunner {
+	private static final String SUITE_SUFFIX = "Test.class";
+	// The same message of the ANT junit task.
+	private static final String TIMEOUT_MESSAGE = "Timeout occurred. Please note the time in the report does not reflect the time until the timeout.";
+	// The lines removed from the stack traces by the ANT junit task.
+	private static final String[] TRACE_FILTERS = { "junit.framework.TestCase",
+			"junit.framework.TestResult", "junit.framework.TestSuite",
+			"junit.framework.Assert.", "junit.swingui.TestRunner",
+			"junit.awtui.TestRunner", "junit.textui.TestRunner",
+			"java.lang.reflect.Method.invoke(", "sun.reflect.",
+			"jdk.internal.reflect.", "org.apache.tools.ant.", "org.junit.",
+			"junit.framework.JUnit4TestAdapter", " more" };
+	private List<File> classpath;
+	private File testBin;
+	private File reportDir;
+	private int workers;
+	private long timeout;
+	private ThreadGroup group;
+	private TestResultListener listener;
+	private DetectProgress progress;
+
+	/**
+	 * The constructor of this class.
+	 *
+	 * @param classpath
+	 *            - the classes under test, the tests and their libraries,
+	 *            including JUnit.
+	 * @param testBin
+	 *            - the directory of the compiled tests, where the suites
+	 *            (classes ending with Test) are found.
+	 * @param reportDir
+	 *            - the directory where the results are written.
+	 * @param workers
+	 *            - the number of workers.
+	 * @param timeout
+	 *            - the time, in seconds, after which a test is given up, or 0
+	 *            for no limit.
+	 */
+	public ParallelTestRunner(List<File> classpath, File testBin,
+			File reportDir, int workers, int timeout) {
+		this.classpath = classpath;
+		this.testBin = testBin;
+		this.reportDir = reportDir;
+		this.workers = Math.max(1, workers);
+		this.timeout = Math.max(0, timeout) * 1000L;
+	}
+
+	/**
+	 * Set the listener that receives the errors of the tests as soon as each
+	 * test finishes, before the results are written.
+	 *
+	 * @param listener
+	 *            - the listener of the errors of the tests.
+	 */
+	public void setTestResultListener(TestResultListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Set the counters updated as the tests are executed.
+	 *
+	 * @param progress
+	 *            - the counters of the Detect phase.
+	 */
+	public void setProgress(DetectProgress progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Run all test suites and write their results.
+	 *
+	 * @return - false if JUnit was not found on the classpath, or the JVM
+	 *         does not allow the tests to be guarded against System.exit, so
+	 *         the tests must be run by ANT, true otherwise.
+	 * @throws Exception
+	 *             When the tests cannot be loaded or the results cannot be
+	 *             written.
+	 */
+	public boolean run() throws Exception {
+		Map<String, List<TestCase>> suites = new LinkedHashMap<String, List<TestCase>>();
+		URLClassLoader discovery = newLoader();
+		try {
+			if (!hasJUnit(discovery))
+				return false;
+			group = new ThreadGroup("jmlok-tests");
+			if (!ExitGuard.guard(group))
+				return false;
+			for (String suite : listSuites()) {
+				List<TestCase> tests = new ArrayList<TestCase>();
+				Object runner = invoke(requestFor(discovery, suite, null),
+						"getRunner");
+				Object description = invoke(runner, "getDescription");
+				collectLeaves(description, suite, tests);
+				suites.put(suite, tests);
+			}
+		} catch (Exception e) {
+			ExitGuard.release(group);
+			throw e;
+		} finally {
+			discovery.close();
+		}
+		List<List<TestCase>> parts = new ArrayList<List<TestCase>>();
+		for (int i = 0; i < workers; i++)
+			parts.add(new ArrayList<TestCase>());
+		int next = 0;
+		for (List<TestCase> tests : suites.values()) {
+			for (TestCase test : tests)
+				parts.get(next++ % workers).add(test);
+		}
+		if (progress != null)
+			progress.addTestsTotal(next);
+		try {
+			runParts(parts);
+		} finally {
+			ExitGuard.release(group);
+		}
+		for (Map.Entry<String, List<TestCase>> suite : suites.entrySet())
+			writeReport(suite.getKey(), suite.getValue());
+		return true;
+	}
+
+	/**
+	 * Run each part of the tests on its own worker, waiting for all of them.
+	 */
+	private void runParts(List<List<TestCase>> parts) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(parts.size());
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (final List<TestCase> part : parts) {
+			if (part.isEmpty())
+				continue;
+			results.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					runPart(part);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Run the tests of one worker, on a new class loader. After a test is
+	 * given up, its thread may still be running over the classes loaded, so
+	 * the next tests are run on another class loader.
+	 */
+	private void runPart(List<TestCase> part) throws Exception {
+		List<URLClassLoader> loaders = new ArrayList<URLClassLoader>();
+		URLClassLoader loader = null;
+		try {
+			for (TestCase test : part) {
+				if (Thread.currentThread().isInterrupted())
+					throw new InterruptedException();
+				if (loader == null) {
+					loader = newLoader();
+					loaders.add(loader);
+				}
+				long start = System.nanoTime();
+				Object result = runTest(loader, test);
+				test.time = (System.nanoTime() - start) / 1e9;
+				if (result == null) {
+					test.problem = new TimeoutException(TIMEOUT_MESSAGE);
+					test.trace = TimeoutException.class.getName() + ": "
+							+ TIMEOUT_MESSAGE;
+					loader = null;
+				}
+				for (Object failure : result == null ? Collections
+						.emptyList() : (List<?>) invoke(result, "getFailures")) {
+					test.problem = (Throwable) invoke(failure, "getException");
+					test.trace = filterTrace((String) invoke(failure,
+							"getTrace"));
+					break;
+				}
+				if (progress != null)
+					progress.testExecuted(test.problem != null);
+				if (test.problem != null && !test.isFailure())
+					deliver(test);
+			}
+		} finally {
+			for (URLClassLoader used : loaders)
+				used.close();
+		}
+	}
+
+	/**
+	 * Run a test method on its own thread, of the group guarded against
+	 * System.exit, waiting for it until the timeout of the tests.
+	 *
+	 * @return - the JUnit result, or null if the test was given up.
+	 */
+	private Object runTest(final ClassLoader loader, final TestCase test)
+			throws Exception {
+		final Object[] result = new Object[1];
+		final Exception[] error = new Exception[1];
+		Thread thread = new Thread(group, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Object core = loader
+							.loadClass("org.junit.runner.JUnitCore")
+							.getConstructor().newInstance();
+					Method run = core.getClass().getMethod("run",
+							loader.loadClass("org.junit.runner.Request"));
+					result[0] = run.invoke(core, requestFor(loader,
+							test.className, test.methodName));
+				} catch (InvocationTargetException e) {
+					error[0] = e.getCause() instanceof Exception ? (Exception) e
+							.getCause() : e;
+				} catch (Exception e) {
+					error[0] = e;
+				}
+			}
+		}, "jmlok-test " + test.className + "." + test.methodName);
+		thread.setDaemon(true);
+		thread.setContextClassLoader(loader);
+		thread.start();
+		try {
+			thread.join(timeout);
+		} catch (InterruptedException e) {
+			thread.interrupt();
+			throw e;
+		}
+		if (thread.isAlive()) {
+			thread.interrupt();
+			return null;
+		}
+		if (error[0] != null)
+			throw error[0];
+		return result[0];
+	}
+
+	/**
+	 * Remove from a stack trace the lines of JUnit, ANT and reflection, as
+	 * the filtertrace option of the ANT junit task does.
+	 */
+	static String filterTrace(String trace) {
+		if (trace == null)
+			return null;
+		StringBuilder result = new StringBuilder(trace.length());
+		for (String line : trace.split("\r?\n")) {
+			boolean filtered = false;
+			for (String filter : TRACE_FILTERS) {
+				if (line.contains(filter)) {
+					filtered = true;
+					break;
+				}
+			}
+			if (!filtered)
+				result.append(line).append('\n');
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Deliver the error of a test to the listener, as it would be read from
+	 * the result file.
+	 */
+	private void deliver(TestCase test) {
+		if (listener == null)
+			return;
+		String message = test.problem.getMessage() == null ? "" : clean(test.problem
+				.getMessage());
+		try {
+			listener.errorFound(new Nonconformance(String
+					.valueOf(test.methodName), test.className + ".java",
+					message, test.problem.getClass().getName(),
+					clean(test.trace)));
+		} catch (RuntimeException e) {
+			// The error is still written on the result file.
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Verify if JUnit 4 can be loaded from the classpath of the tests.
+	 */
+	private boolean hasJUnit(ClassLoader loader) {
+		try {
+			loader.loadClass("org.junit.runner.JUnitCore");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * List the names of the test suites, the compiled tests ending with Test.
+	 */
+	private List<String> listSuites() {
+		List<String> suites = new ArrayList<String>();
+		File[] files = testBin.listFiles();
+		if (files == null)
+			return suites;
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isFile() && name.endsWith(SUITE_SUFFIX)
+					&& !name.contains("$"))
+				suites.add(name.substring(0, name.length() - 6));
+		}
+		Collections.sort(suites);
+		return suites;
+	}
+
+	/**
+	 * Creates the JUnit request for a test method, or for a whole class when
+	 * the method name is null.
+	 */
+	private Object requestFor(ClassLoader loader, String className,
+			String methodName) throws Exception {
+		Class<?> requestClass = loader.loadClass("org.junit.runner.Request");
+		Class<?> testClass = Class.forName(className, false, loader);
+		if (methodName == null)
+			return requestClass.getMethod("aClass", Class.class).invoke(null,
+					testClass);
+		return requestClass.getMethod("method", Class.class, String.class)
+				.invoke(null, testClass, methodName);
+	}
+
+	/**
+	 * Collect the test methods of a JUnit description tree.
+	 */
+	private void collectLeaves(Object description, String suite,
+			List<TestCase> tests) throws Exception {
+		List<?> children = (List<?>) invoke(description, "getChildren");
+		if (children.isEmpty()) {
+			if (!((Boolean) invoke(description, "isTest")))
+				return;
+			String className = (String) invoke(description, "getClassName");
+			String methodName = (String) invoke(description, "getMethodName");
+			tests.add(new TestCase(className == null ? suite : className,
+					methodName));
+			return;
+		}
+		for (Object child : children)
+			collectLeaves(child, suite, tests);
+	}
+
+	/**
+	 * Invoke a public method with no arguments, looked up on the first public
+	 * class of the hierarchy of the target, since JUnit runners may be
+	 * private classes.
+	 */
+	private static Object invoke(Object target, String method)
+			throws Exception {
+		Class<?> type = target.getClass();
+		while (!Modifier.isPublic(type.getModifiers()))
+			type = type.getSuperclass();
+		try {
+			return type.getMethod(method).invoke(target);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a class loader over the classpath of the tests, isolated from
+	 * the classes of the tool.
+	 */
+	private URLClassLoader newLoader() throws IOException {
+		URL[] urls = new URL[classpath.size()];
+		for (int i = 0; i < urls.length; i++)
+			urls[i] = classpath.get(i).toURI().toURL();
+		return new URLClassLoader(urls, null);
+	}
+
+	/**
+	 * Write the results of a suite in the format of the ANT junit task.
+	 */
+	private void writeReport(String suite, List<TestCase> tests)
+			throws IOException, XMLStreamException {
+		int errors = 0;
+		int failures = 0;
+		double time = 0;
+		for (TestCase test : tests) {
+			time += test.time;
+			if (test.isFailure())
+				failures++;
+			else if (test.problem != null)
+				errors++;
+		}
+		File report = new File(reportDir, "TEST-" + suite + ".xml");
+		try (OutputStream out = new FileOutputStream(report)) {
+			XMLStreamWriter xml = XMLOutputFactory.newInstance()
+					.createXMLStreamWriter(out, "UTF-8");
+			xml.writeStartDocument("UTF-8", "1.0");
+			xml.writeCharacters("\n");
+			xml.writeStartElement("testsuite");
+			xml.writeAttribute("errors", String.valueOf(errors));
+			xml.writeAttribute("failures", String.valueOf(failures));
+			xml.writeAttribute("hostname", "localhost");
+			xml.writeAttribute("name", suite);
+			xml.writeAttribute("tests", String.valueOf(tests.size()));
+			xml.writeAttribute("time", String.format("%.3f", time));
+			xml.writeAttribute("timestamp", new SimpleDateFormat(
+					"yyyy-MM-dd'T'HH:mm:ss").format(new Date()));
+			xml.writeCharacters("\n");
+			for (TestCase test : tests) {
+				xml.writeCharacters("  ");
+				xml.writeStartElement("testcase");
+				xml.writeAttribute("classname", test.className);
+				xml.writeAttribute("name", String.valueOf(test.methodName));
+				xml.writeAttribute("time", String.format("%.3f", test.time));
+				if (test.problem != null) {
+					xml.writeStartElement(test.isFailure() ? "failure"
+							: "error");
+					if (test.problem.getMessage() != null)
+						xml.writeAttribute("message",
+								clean(test.problem.getMessage()));
+					xml.writeAttribute("type", test.problem.getClass()
+							.getName());
+					xml.writeCharacters(clean(test.trace));
+					xml.writeEndElement();
+				}
+				xml.writeEndElement();
+				xml.writeCharacters("\n");
+			}
+			xml.writeEmptyElement("system-out");
+			xml.writeCharacters("\n");
+			xml.writeEmptyElement("system-err");
+			xml.writeCharacters("\n");
+			xml.writeEndElement();
+			xml.writeEndDocument();
+			xml.close();
+		}
+	}
+
+	/**
+	 * Remove the characters not allowed on XML documents.
+	 */
+	private static String clean(String text) {
+		if (text == null)
+			return "";
+		StringBuilder result = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\t' || c == '\n' || c == '\r' || c >= 0x20
+					&& c != 0xFFFE && c != 0xFFFF)
+				result.append(c);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * A test method and the result of its execution.
+	 */
+	private static class TestCase {
+		private String className;
+		private String methodName;
+		private double time;
+		private Throwable problem;
+		private String trace;
+
+		TestCase(String className, String methodName) {
+			this.className = className;
+			this.methodName = methodName;
+		}
+
+		/**
+		 * Assertion errors are failures of the test, the other errors (like
+		 * the JML ones) are errors, as in the ANT junit task.
+		 */
+		boolean isFailure() {
+			return problem instanceof AssertionError;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Class used for Detect module to remove the redundant tests generated by
+ * Randoop before they are compiled. The body of each test method is
+ * normalized (comments, blank spaces, debug prints and the names of the local
+ * variables do not matter) and hashed, and a test whose body was already seen,
+ * in the same or in another test class, is removed from its class.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class TestDeduplicator {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Pattern TEST_METHOD = Pattern
+			.compile("(?m)^([ \\t]*@Test[^\\n]*\\n)?[ \\t]*public void (test\\w*)\\s*\\(\\s*\\)[^{;]*\\{");
+	private static final Pattern DEBUG_PRINT = Pattern
+			.compile("if \\( ?debug ?\\) ?\\{?[^;{}]*;\\s?\\}? ?");
+	private static final Pattern LOCAL_VARIABLE = Pattern
+			.compile("(?<![.\\w])[a-z][A-Za-z_]*[0-9]+\\b");
+	private int tests;
+	private int removed;
+	private long charactersRemoved;
+
+	/**
+	 * Remove the duplicated test methods of the test classes of a directory.
+	 * The classes are visited in the order of their names, so the first of
+	 * the equal tests is kept. A class never loses all of its tests, since an
+	 * empty test class fails on JUnit.
+	 *
+	 * @param testDir
+	 *            - the directory of the tests generated.
+	 * @return - the number of test methods removed.
+	 * @throws IOException
+	 *             When some test class cannot be read or written.
+	 */
+	public int prune(File testDir) throws IOException {
+		File[] files = testDir.listFiles();
+		if (files == null)
+			return 0;
+		Arrays.sort(files);
+		Set<String> seen = new HashSet<String>();
+		for (File file : files) {
+			if (file.isFile() && file.getName().endsWith(".java"))
+				prune(file, seen);
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove from a test class the tests already seen.
+	 */
+	private void prune(File file, Set<String> seen) throws IOException {
+		String code = FileUtils.readFileToString(file, UTF_8);
+		List<int[]> duplicates = new ArrayList<int[]>();
+		int kept = 0;
+		List<int[]> methods = testMethods(code);
+		for (int[] method : methods) {
+			String key = ArtifactCache.newKey()
+					.add(normalize(code.substring(method[1], method[2] - 1)))
+					.toHex();
+			if (seen.add(key))
+				kept++;
+			else
+				duplicates.add(new int[] { method[0], method[3] });
+		}
+		tests += methods.size();
+		if (duplicates.isEmpty())
+			return;
+		if (kept == 0)
+			duplicates.remove(0);
+		StringBuilder pruned = new StringBuilder(code.length());
+		int last = 0;
+		for (int[] range : duplicates) {
+			pruned.append(code, last, range[0]);
+			charactersRemoved += range[1] - range[0];
+			last = range[1];
+		}
+		pruned.append(code, last, code.length());
+		removed += duplicates.size();
+		FileUtils.writeStringToFile(file, pruned.toString(), UTF_8);
+	}
+
+	/**
+	 * Verify if a class has test methods, and so it is a test class and not
+	 * a suite of test classes.
+	 *
+	 * @param file
+	 *            - the source of the class.
+	 * @return - true if the class has some test method.
+	 * @throws IOException
+	 *             When the class cannot be read.
+	 */
+	public static boolean hasTests(File file) throws IOException {
+		return TEST_METHOD.matcher(FileUtils.readFileToString(file, UTF_8))
+				.find();
+	}
+
+	/**
+	 * Find the test methods of a test class.
+	 *
+	 * @param code
+	 *            - the code of the test class.
+	 * @return - for each test method, in order: the position where it starts,
+	 *         the position after the brace that opens its body, the position
+	 *         after the brace that closes its body and the position after the
+	 *         line break that follows it.
+	 */
+	static List<int[]> testMethods(String code) {
+		List<int[]> methods = new ArrayList<int[]>();
+		Matcher method = TEST_METHOD.matcher(code);
+		int from = 0;
+		while (method.find(from)) {
+			int end = closingBrace(code, method.end());
+			if (end < 0)
+				break;
+			int stop = (end + 1 < code.length() && code.charAt(end + 1) == '\n') ? end + 2
+					: end + 1;
+			methods.add(new int[] { method.start(), method.end(), end + 1, stop });
+			from = end + 1;
+		}
+		return methods;
+	}
+
+	/**
+	 * Find the brace that closes a block, skipping the literals and comments.
+	 *
+	 * @param code
+	 *            - the code of the class.
+	 * @param from
+	 *            - the position just after the brace that opens the block.
+	 * @return - the position of the closing brace, or -1 when not found.
+	 */
+	private static int closingBrace(String code, int from) {
+		int depth = 1;
+		for (int i = from; i < code.length(); i++) {
+			char c = code.charAt(i);
+			if (c == '"' || c == '\'') {
+				i = endOfLiteral(code, i);
+			} else if (c == '/' && i + 1 < code.length()
+					&& code.charAt(i + 1) == '/') {
+				i = code.indexOf('\n', i);
+				if (i < 0)
+					return -1;
+			} else if (c == '/' && i + 1 < code.length()
+					&& code.charAt(i + 1) == '*') {
+				i = code.indexOf("*/", i + 2);
+				if (i < 0)
+					return -1;
+				i++;
+			} else if (c == '{') {
+				depth++;
+			} else if (c == '}' && --depth == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The position of the quote that closes a string or char literal.
+	 */
+	private static int endOfLiteral(String code, int start) {
+		char quote = code.charAt(start);
+		for (int i = start + 1; i < code.length(); i++) {
+			char c = code.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == quote || c == '\n')
+				return i;
+		}
+		return code.length() - 1;
+	}
+
+	/**
+	 * Normalize the body of a test: comments are removed, blank spaces
+	 * collapsed, debug prints removed and local variables renamed by their
+	 * order of appearance. The literals are kept as they are.
+	 *
+	 * @param body
+	 *            - the body of the test.
+	 * @return - the body normalized.
+	 */
+	static String normalize(String body) {
+		StringBuilder code = new StringBuilder(body.length());
+		List<String> literals = new ArrayList<String>();
+		boolean space = false;
+		for (int i = 0; i < body.length(); i++) {
+			char c = body.charAt(i);
+			if (c == '"' || c == '\'') {
+				int end = endOfLiteral(body, i);
+				literals.add(body.substring(i, end + 1));
+				// Literals are kept apart so they are not renamed.
+				code.append('\u0000').append(literals.size() - 1)
+						.append('\u0000');
+				i = end;
+				space = false;
+			} else if (c == '/' && i + 1 < body.length()
+					&& body.charAt(i + 1) == '/') {
+				int end = body.indexOf('\n', i);
+				i = (end < 0) ? body.length() : end;
+				space = true;
+			} else if (c == '/' && i + 1 < body.length()
+					&& body.charAt(i + 1) == '*') {
+				int end = body.indexOf("*/", i + 2);
+				i = (end < 0) ? body.length() : end + 1;
+				space = true;
+			} else if (Character.isWhitespace(c)) {
+				space = true;
+			} else {
+				if (space && code.length() > 0)
+					code.append(' ');
+				code.append(c);
+				space = false;
+			}
+		}
+		String normalized = DEBUG_PRINT.matcher(code).replaceAll("");
+		Map<String, String> names = new HashMap<String, String>();
+		Matcher variable = LOCAL_VARIABLE.matcher(normalized);
+		StringBuffer renamed = new StringBuffer();
+		while (variable.find()) {
+			String name = names.get(variable.group());
+			if (name == null) {
+				name = "v" + names.size();
+				names.put(variable.group(), name);
+			}
+			variable.appendReplacement(renamed, name);
+		}
+		variable.appendTail(renamed);
+		StringBuilder result = new StringBuilder(renamed.length());
+		String[] parts = renamed.toString().split("\u0000", -1);
+		for (int i = 0; i < parts.length; i++) {
+			if (i % 2 == 0)
+				result.append(parts[i]);
+			else
+				result.append(literals.get(Integer.parseInt(parts[i])));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Get the number of test methods visited by the last prunes.
+	 *
+	 * @return - the number of test methods visited.
+	 */
+	public int getTests() {
+		return tests;
+	}
+
+	/**
+	 * Get the number of test methods removed.
+	 *
+	 * @return - the number of test methods removed.
+	 */
+	public int getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Get the size, in characters, of the code removed.
+	 *
+	 * @return - the size of the code removed.
+	 */
+	public long getCharactersRemoved() {
+		return charactersRemoved;
+	}
+}
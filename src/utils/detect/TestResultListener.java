@@ -0,0 +1,22 @@
+package utils.detect;
+
+import utils.datastructure.Nonconformance;
+
+/**
+ * Interface used to receive the errors found while a test result file is
+ * read.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public interface TestResultListener {
+
+	/**
+	 * Receives an error of a test, as soon as it is read.
+	 *
+	 * @param error
+	 *            - the error read, that may be a nonconformance.
+	 */
+	public void errorFound(Nonconformance error);
+}
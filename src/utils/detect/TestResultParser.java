@@ -0,0 +1,29 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Interface of the readers of the test result files. The file is read as a
+ * stream and each error is delivered as soon as it is read, so the memory used
+ * does not depend on the size of the file.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public interface TestResultParser {
+
+	/**
+	 * Read a test result file, delivering its errors to the listener.
+	 *
+	 * @param file
+	 *            - the test result file.
+	 * @param listener
+	 *            - the listener of the errors read.
+	 * @throws IOException
+	 *             When the file cannot be read.
+	 */
+	public void parse(File file, TestResultListener listener)
+			throws IOException;
+}
@@ -0,0 +1,214 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Class used for Detect module to split the large test classes generated by
+ * Randoop into smaller classes of balanced sizes, so they are compiled faster
+ * and never reach the limits of the class file. Each test method is copied as
+ * it is, at the same line it had on the class Randoop wrote, so the lines of
+ * the stack traces still point to the code of the test that reveals a
+ * nonconformance. The suites that referenced a split class are changed to
+ * reference all of its parts.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class TestSplitter {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Pattern ADD_TEST_SUITE = Pattern
+			.compile("new\\s+TestSuite\\s*\\(\\s*(\\w+)\\.class\\s*\\)");
+	private int maxSize;
+	private int created;
+
+	/**
+	 * The constructor of this class, receives the size above which a test
+	 * class is split.
+	 *
+	 * @param maxSize
+	 *            - the maximum size, in characters, of the test methods of a
+	 *            class.
+	 */
+	public TestSplitter(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+	}
+
+	/**
+	 * Split the large test classes of a directory and update the suites that
+	 * reference them.
+	 *
+	 * @param testDir
+	 *            - the directory of the tests generated.
+	 * @return - the number of test classes created.
+	 * @throws IOException
+	 *             When some test class cannot be read or written.
+	 */
+	public int split(File testDir) throws IOException {
+		File[] files = testDir.listFiles();
+		if (files == null)
+			return 0;
+		Arrays.sort(files);
+		Map<String, List<String>> parts = new LinkedHashMap<String, List<String>>();
+		List<File> sources = new ArrayList<File>();
+		for (File file : files) {
+			if (!file.isFile() || !file.getName().endsWith(".java"))
+				continue;
+			sources.add(file);
+			String name = file.getName().replace(".java", "");
+			List<String> names = split(file, name);
+			if (names.size() > 1)
+				parts.put(name, names);
+		}
+		if (!parts.isEmpty()) {
+			for (File file : sources) {
+				if (!parts.containsKey(file.getName().replace(".java", "")))
+					updateSuite(file, parts);
+			}
+		}
+		return created;
+	}
+
+	/**
+	 * Split a test class whose test methods are larger than the maximum size.
+	 * The class keeps the first part of the test methods, and the other parts
+	 * are written in new classes named after it.
+	 *
+	 * @return - the names of the classes that have the test methods of the
+	 *         class, itself first.
+	 */
+	private List<String> split(File file, String name) throws IOException {
+		List<String> names = new ArrayList<String>();
+		names.add(name);
+		String code = FileUtils.readFileToString(file, UTF_8);
+		List<int[]> methods = TestDeduplicator.testMethods(code);
+		if (methods.isEmpty())
+			return names;
+		int first = methods.get(0)[0];
+		int last = methods.get(methods.size() - 1)[3];
+		long total = last - first;
+		int count = (int) Math.min(methods.size(), (total + maxSize - 1)
+				/ maxSize);
+		if (count <= 1)
+			return names;
+		String header = code.substring(0, first);
+		String footer = code.substring(last);
+		// The methods are given to the parts in order, each one to the part
+		// where its middle falls, so all parts have about the same size.
+		List<int[]> ranges = new ArrayList<int[]>();
+		int[] range = null;
+		int part = -1;
+		for (int[] method : methods) {
+			long middle = (method[0] + method[3]) / 2 - first;
+			int index = (int) Math.min(count - 1, middle * count / total);
+			if (index != part || range == null) {
+				range = new int[] { method[0], method[3] };
+				ranges.add(range);
+				part = index;
+			} else {
+				range[1] = method[3];
+			}
+		}
+		for (int i = 0; i < ranges.size(); i++) {
+			String partName = (i == 0) ? name : name + "_" + i;
+			int start = ranges.get(i)[0];
+			StringBuilder partCode = new StringBuilder(ranges.get(i)[1] - start
+					+ header.length() + footer.length());
+			partCode.append(rename(header, name, partName));
+			// Blank lines put each test method at the line it had before.
+			for (int l = lines(code, first, start); l > 0; l--)
+				partCode.append('\n');
+			partCode.append(code, start, ranges.get(i)[1]);
+			partCode.append(rename(footer, name, partName));
+			if (i > 0)
+				names.add(partName);
+			FileUtils.writeStringToFile(new File(file.getParentFile(),
+					partName + ".java"), partCode.toString(), UTF_8);
+		}
+		created += names.size() - 1;
+		return names;
+	}
+
+	/**
+	 * Change a suite to reference all parts of the classes that were split.
+	 * Both the JUnit 3 suites (new TestSuite(X.class)) and the JUnit 4 suites
+	 * (@SuiteClasses({ X.class })) are changed.
+	 */
+	private void updateSuite(File file, Map<String, List<String>> parts)
+			throws IOException {
+		String code = FileUtils.readFileToString(file, UTF_8);
+		String updated = code;
+		for (Map.Entry<String, List<String>> entry : parts.entrySet()) {
+			String name = entry.getKey();
+			if (!updated.contains(name + ".class"))
+				continue;
+			StringBuilder suite = new StringBuilder();
+			Matcher add = ADD_TEST_SUITE.matcher(updated);
+			int last = 0;
+			while (add.find()) {
+				if (!add.group(1).equals(name))
+					continue;
+				// The whole statement is repeated for each part.
+				int lineStart = updated.lastIndexOf('\n', add.start()) + 1;
+				int lineEnd = updated.indexOf('\n', add.end());
+				lineEnd = (lineEnd < 0) ? updated.length() : lineEnd + 1;
+				String line = updated.substring(lineStart, lineEnd);
+				suite.append(updated, last, lineStart);
+				for (String partName : entry.getValue())
+					suite.append(line.replace(name + ".class", partName
+							+ ".class"));
+				last = lineEnd;
+			}
+			suite.append(updated, last, updated.length());
+			updated = suite.toString();
+			if (last == 0) {
+				StringBuilder classes = new StringBuilder();
+				for (String partName : entry.getValue()) {
+					if (classes.length() > 0)
+						classes.append(", ");
+					classes.append(partName).append(".class");
+				}
+				updated = updated.replaceAll("\\b" + name + "\\.class\\b",
+						Matcher.quoteReplacement(classes.toString()));
+			}
+		}
+		if (!updated.equals(code))
+			FileUtils.writeStringToFile(file, updated, UTF_8);
+	}
+
+	private static String rename(String code, String name, String partName) {
+		if (name.equals(partName))
+			return code;
+		return code.replaceAll("\\b" + Pattern.quote(name) + "\\b",
+				Matcher.quoteReplacement(partName));
+	}
+
+	private static int lines(String code, int from, int to) {
+		int lines = 0;
+		for (int i = from; i < to; i++) {
+			if (code.charAt(i) == '\n')
+				lines++;
+		}
+		return lines;
+	}
+
+	/**
+	 * Get the number of test classes created by the last splits.
+	 *
+	 * @return - the number of test classes created.
+	 */
+	public int getCreated() {
+		return created;
+	}
+}
@@ -0,0 +1,43 @@
+package utils.detect;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import utils.datastructure.Nonconformance;
+
+/**
+ * Reader of the test result files in text format, used when the OpenJml is
+ * the compiler. Each JML error is made of the line that names it and the
+ * lines of its details.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class TextTestResultParser implements TestResultParser {
+
+	@Override
+	public void parse(File file, TestResultListener listener)
+			throws IOException {
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line = "";
+			while ((line = in.readLine()) != null) {
+				if (!line.contains("JML "))
+					continue;
+				StringBuilder text = new StringBuilder();
+				text.append(in.readLine());
+				if (!line.contains(Nonconformance.CategoryType.PRECONDITION
+						.getName())) {
+					in.readLine();
+					text.append(in.readLine());
+					text.append(in.readLine());
+					text.append("\n");
+				}
+				listener.errorFound(new Nonconformance(text.toString(), line,
+						""));
+			}
+		}
+	}
+}
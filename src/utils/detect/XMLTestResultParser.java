@@ -0,0 +1,121 @@
+package utils.detect;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import utils.datastructure.Nonconformance;
+
+/**
+ * Reader of the test result files in the XML format of the JUnit ANT task,
+ * used when the jmlc is the compiler. The content of the system-out and
+ * system-err elements, that may be huge, is skipped without being kept.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class XMLTestResultParser implements TestResultParser {
+	private XMLInputFactory factory;
+
+	/**
+	 * The constructor of this class.
+	 */
+	public XMLTestResultParser() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	@Override
+	public void parse(File file, TestResultListener listener)
+			throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			XMLStreamReader xml = factory.createXMLStreamReader(in);
+			try {
+				read(xml, listener);
+			} finally {
+				xml.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Error reading " + file + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read the elements of the file, delivering the error elements of the
+	 * testcase elements.
+	 */
+	private void read(XMLStreamReader xml, TestResultListener listener)
+			throws XMLStreamException {
+		String name = "";
+		String testFile = "";
+		while (xml.hasNext()) {
+			if (xml.next() != XMLStreamConstants.START_ELEMENT)
+				continue;
+			String tag = xml.getLocalName();
+			if (tag.equals("testcase")) {
+				name = attribute(xml, "name");
+				testFile = attribute(xml, "classname") + ".java";
+			} else if (tag.equals("error")) {
+				String errorType = attribute(xml, "type");
+				String message = attribute(xml, "message");
+				String detailedErrorMessage = readText(xml);
+				listener.errorFound(new Nonconformance(name, testFile,
+						message, errorType, detailedErrorMessage));
+			} else if (tag.equals("system-out") || tag.equals("system-err")) {
+				skip(xml);
+			}
+		}
+	}
+
+	/**
+	 * Read the text of the current element, until its end.
+	 */
+	private String readText(XMLStreamReader xml) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if (depth == 1
+					&& (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA))
+				text.append(xml.getTextCharacters(), xml.getTextStart(),
+						xml.getTextLength());
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Skip the current element, without keeping its content.
+	 */
+	private void skip(XMLStreamReader xml) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
+	/**
+	 * Get an attribute of the current element, or "" when it is missing, as
+	 * done by the DOM.
+	 */
+	private String attribute(XMLStreamReader xml, String name) {
+		String value = xml.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+}
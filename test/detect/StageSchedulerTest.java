@@ -0,0 +1,138 @@
+package detect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests of the execution of the stages by StageScheduler: a stage starts only
+ * after its dependencies, independent stages run at the same time and the
+ * error of a failed stage is the one thrown.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class StageSchedulerTest {
+	private List<String> events = Collections
+			.synchronizedList(new ArrayList<String>());
+
+	private class Stage extends DetectStage {
+		private Exception error;
+
+		Stage(String name, DetectStage... dependencies) {
+			super(name, name, name, dependencies);
+		}
+
+		Stage failing(Exception error) {
+			this.error = error;
+			return this;
+		}
+
+		@Override
+		protected void execute() throws Exception {
+			events.add("start " + getName());
+			work();
+			if (error != null)
+				throw error;
+			events.add("end " + getName());
+		}
+
+		@Override
+		protected void finished() {
+			events.add("finished " + getName());
+		}
+
+		void work() throws Exception {
+		}
+	}
+
+	private void assertBefore(String first, String then) {
+		assertTrue(events.contains(first));
+		assertTrue(events.contains(then));
+		assertTrue(first + " before " + then,
+				events.indexOf(first) < events.indexOf(then));
+	}
+
+	@Test
+	public void stageStartsAfterItsDependencies() throws Exception {
+		StageScheduler scheduler = new StageScheduler();
+		Stage compile = new Stage("compile");
+		Stage generate = new Stage("generate");
+		Stage run = new Stage("run", compile, generate);
+		Stage report = new Stage("report", run);
+		scheduler.addStage(compile);
+		scheduler.addStage(generate);
+		scheduler.addStage(run);
+		scheduler.addStage(report);
+		scheduler.execute();
+		assertEquals(12, events.size());
+		assertBefore("finished compile", "start run");
+		assertBefore("finished generate", "start run");
+		assertBefore("finished run", "start report");
+	}
+
+	@Test
+	public void independentStagesRunAtTheSameTime() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		StageScheduler scheduler = new StageScheduler();
+		for (String name : new String[] { "compile", "generate" }) {
+			scheduler.addStage(new Stage(name) {
+				@Override
+				void work() throws Exception {
+					started.countDown();
+					if (!started.await(10, TimeUnit.SECONDS))
+						throw new IllegalStateException(getName()
+								+ " ran alone");
+				}
+			});
+		}
+		scheduler.execute();
+		assertEquals(6, events.size());
+	}
+
+	@Test
+	public void errorOfTheFailedStageIsThrown() throws Exception {
+		IOException error = new IOException("jmlc failed");
+		StageScheduler scheduler = new StageScheduler();
+		Stage compile = new Stage("compile").failing(error);
+		scheduler.addStage(compile);
+		scheduler.addStage(new Stage("generate"));
+		Stage run = new Stage("run", compile);
+		scheduler.addStage(run);
+		scheduler.addStage(new Stage("report", run));
+		try {
+			scheduler.execute();
+			fail("the error of compile was not thrown");
+		} catch (IOException e) {
+			assertSame(error, e);
+		}
+		assertTrue(events.contains("start compile"));
+		assertFalse(events.contains("finished compile"));
+		assertFalse(events.contains("start run"));
+		assertFalse(events.contains("start report"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void dependenciesMustBeScheduledBefore() {
+		Stage compile = new Stage("compile");
+		new StageScheduler().addStage(new Stage("run", compile));
+	}
+
+	@Test
+	public void noStagesIsNothingToDo() throws Exception {
+		new StageScheduler().execute();
+		assertEquals(0, events.size());
+	}
+}
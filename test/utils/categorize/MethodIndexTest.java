@@ -0,0 +1,174 @@
+package utils.categorize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the reading of the declaration lines by MethodIndex, which must
+ * find the same parameter types as the ones printed from the tree.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class MethodIndexTest {
+
+	private static List<List<String>> signatures(String[]... types) {
+		List<List<String>> signatures = new ArrayList<List<String>>();
+		for (String[] signature : types)
+			signatures.add(Arrays.asList(signature));
+		return signatures;
+	}
+
+	private static String[] types(String... types) {
+		return types;
+	}
+
+	@Test
+	public void emptyLineFindsAllMethods() {
+		assertEquals(Arrays.asList(0, 1), MethodIndex.findBySignature("m",
+				"  ", signatures(types("int"), types("String"))));
+	}
+
+	@Test
+	public void overloadIsFoundByTheParameterTypes() {
+		List<List<String>> signatures = signatures(types("int"),
+				types("String"), types("int", "String"));
+		assertEquals(Arrays.asList(1), MethodIndex.findBySignature("m",
+				"public void m(String s)", signatures));
+		assertEquals(Arrays.asList(2), MethodIndex.findBySignature("m",
+				"public void m(int i, java.lang.String s)", signatures));
+	}
+
+	@Test
+	public void noParameters() {
+		assertEquals(Arrays.asList(1), MethodIndex.findBySignature("m",
+				"public int m()", signatures(types("int"), types())));
+	}
+
+	@Test
+	public void otherNameFindsNoMethod() {
+		assertEquals(Collections.emptyList(), MethodIndex.findBySignature(
+				"m", "public void n(int i)", signatures(types("int"))));
+	}
+
+	@Test
+	public void unknownSignatureIsLookedForOnTheCode() {
+		assertNull(MethodIndex.findBySignature("m", "public void m(long l)",
+				signatures(types("int"))));
+	}
+
+	@Test
+	public void statementIsNotADeclaration() {
+		List<List<String>> signatures = signatures(types("int"));
+		assertNull(MethodIndex.findBySignature("m", "return m(1);",
+				signatures));
+		assertNull(MethodIndex.findBySignature("m", "if (m(x))", signatures));
+		assertNull(MethodIndex.findBySignature("m", "m(x)", signatures));
+		assertNull(MethodIndex.findBySignature("m", "new m(x)", signatures));
+	}
+
+	@Test
+	public void genericParameters() {
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("put",
+				"public void put(Map<String, List<Integer>> map, int n)",
+				signatures(types("Map", "int"))));
+	}
+
+	@Test
+	public void genericMethod() {
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("copy",
+				"public static <T> List<T> copy(List<? extends T> source)",
+				signatures(types("List"))));
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("get",
+				"public Map<String, Integer> get(Map<K, V>[] maps)",
+				signatures(types("Map[]"))));
+	}
+
+	@Test
+	public void varargsAreArrays() {
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("sum",
+				"public static int sum(int... values)",
+				signatures(types("int[]"))));
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("format",
+				"String format(String text, Object ... args)",
+				signatures(types("String", "Object[]"))));
+	}
+
+	@Test
+	public void arraysWrittenAfterTheName() {
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("fill",
+				"public void fill(int values[][], String names [])",
+				signatures(types("int[][]", "String[]"))));
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("fill",
+				"public void fill(int[] values[])",
+				signatures(types("int[][]"))));
+	}
+
+	@Test
+	public void annotationsAndFinalParameters() {
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature(
+				"toString", "@Override public String toString()",
+				signatures(types())));
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("set",
+				"@SuppressWarnings(\"unchecked\") public void set("
+						+ "@Nullable final java.lang.String value, "
+						+ "final @Size(max = 2) int[] size)",
+				signatures(types("String", "int[]"))));
+	}
+
+	@Test
+	public void throwsClause() {
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("read",
+				"public int read(byte[] b) throws IOException, "
+						+ "java.lang.IllegalStateException",
+				signatures(types("byte[]"))));
+	}
+
+	@Test
+	public void constructors() {
+		List<List<String>> signatures = signatures(types(),
+				types("int", "String"));
+		assertEquals(Arrays.asList(1), MethodIndex.findBySignature("<init>",
+				"public <init>(int size, String name)", signatures));
+		assertEquals(Arrays.asList(0), MethodIndex.findBySignature("<init>",
+				"<init>()", signatures));
+	}
+
+	@Test
+	public void methodWithNoReturnTypeIsNotADeclaration() {
+		assertNull(MethodIndex.findBySignature("m", "public m(int i)",
+				signatures(types("int"))));
+	}
+
+	@Test
+	public void normalizeTypeRemovesTypeArguments() {
+		assertEquals("Map", MethodIndex.normalizeType(
+				"java.util.Map<String, java.util.List<Integer>>"));
+		assertEquals("List[]", MethodIndex.normalizeType("List<String>[]"));
+		assertEquals("List", MethodIndex.normalizeType("List<? super T>"));
+	}
+
+	@Test
+	public void normalizeTypeRemovesPackages() {
+		assertEquals("String", MethodIndex.normalizeType("java.lang.String"));
+		assertEquals("Entry", MethodIndex.normalizeType("Map.Entry<K, V>"));
+		assertEquals("String[]",
+				MethodIndex.normalizeType("java.lang.String[]"));
+	}
+
+	@Test
+	public void normalizeTypeOfArraysAndVarargs() {
+		assertEquals("int[]", MethodIndex.normalizeType("int..."));
+		assertEquals("int[][]", MethodIndex.normalizeType("int[]..."));
+		assertEquals("int[][]", MethodIndex.normalizeType(" int [ ] [] "));
+		assertEquals("int", MethodIndex.normalizeType("int"));
+	}
+}
@@ -0,0 +1,218 @@
+package utils.datastructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests of the registry of the distinct nonconformances: each one is counted
+ * once per occurrence and keeps the data of its first test, whatever the
+ * order (or the threads) in which the occurrences were registered.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class NonconformanceRegistryTest {
+
+	private static Nonconformance postcondition(String className,
+			String method, String testFile, String test) {
+		String testClass = testFile.substring(0, testFile.indexOf("."));
+		return new Nonconformance(test, testFile, "by method " + className
+				+ "." + method + " regarding line 10, (" + className
+				+ ".java:10)",
+				"org.jmlspecs.jmlrac.runtime.JMLExitNormalPostconditionError",
+				"\tat bank." + className + "." + method + "(" + className
+						+ ".java:25)\n\tat " + testClass + "." + test + "("
+						+ testFile + ":12)\n");
+	}
+
+	private static Nonconformance only(Set<Nonconformance> nonconformances) {
+		assertEquals(1, nonconformances.size());
+		return nonconformances.iterator().next();
+	}
+
+	@Test
+	public void occurrenceIsParsed() {
+		Nonconformance nc = postcondition("Account", "deposit",
+				"RandoopTest0.java", "test1");
+		assertTrue(nc.isNonconformance());
+		assertEquals("bank", nc.getPackageName());
+		assertEquals("Account", nc.getClassName());
+		assertEquals("deposit", nc.getMethodName());
+		assertEquals(10, nc.getLineNumberOnJavaThatRevealsNC());
+	}
+
+	@Test
+	public void onlyTheFirstOccurrenceIsNew() {
+		NonconformanceRegistry registry = new NonconformanceRegistry();
+		assertTrue(registry.register(postcondition("Account", "deposit",
+				"RandoopTest0.java", "test1")));
+		assertFalse(registry.register(postcondition("Account", "deposit",
+				"RandoopTest0.java", "test2")));
+		assertFalse(registry.register(postcondition("Account", "deposit",
+				"RandoopTest1.java", "test1")));
+		assertTrue(registry.register(postcondition("Account", "withdraw",
+				"RandoopTest0.java", "test3")));
+		assertEquals(2, registry.size());
+	}
+
+	@Test
+	public void identifiersAreComparedIgnoringCase() {
+		NonconformanceRegistry registry = new NonconformanceRegistry();
+		assertTrue(registry.register(postcondition("Account", "deposit",
+				"RandoopTest0.java", "test1")));
+		assertFalse(registry.register(postcondition("account", "Deposit",
+				"RandoopTest0.java", "test2")));
+		assertEquals(1, registry.size());
+		assertEquals(2, only(registry.getNonconformances()).getOccurrences());
+	}
+
+	@Test
+	public void occurrencesAreCounted() {
+		NonconformanceRegistry registry = new NonconformanceRegistry();
+		for (int i = 1; i <= 3; i++)
+			registry.register(postcondition("Account", "deposit",
+					"RandoopTest0.java", "test" + i));
+		registry.register(postcondition("Account", "withdraw",
+				"RandoopTest0.java", "test4"));
+		for (Nonconformance nc : registry.getNonconformances()) {
+			if (nc.getMethodName().equals("deposit"))
+				assertEquals(3, nc.getOccurrences());
+			else
+				assertEquals(1, nc.getOccurrences());
+		}
+	}
+
+	@Test
+	public void objectKeptIsTheFirstRegistered() {
+		NonconformanceRegistry registry = new NonconformanceRegistry();
+		Nonconformance first = postcondition("Account", "deposit",
+				"RandoopTest1.java", "test5");
+		registry.register(first);
+		registry.register(postcondition("Account", "deposit",
+				"RandoopTest0.java", "test9"));
+		assertSame(first, only(registry.getNonconformances()));
+	}
+
+	@Test
+	public void earliestOccurrenceDoesNotDependOnTheOrder() {
+		List<Nonconformance> occurrences = new ArrayList<Nonconformance>();
+		for (int i = 0; i < 6; i++) {
+			NonconformanceRegistry registry = new NonconformanceRegistry();
+			occurrences.clear();
+			occurrences.add(postcondition("Account", "deposit",
+					"RandoopTest1.java", "test1"));
+			occurrences.add(postcondition("Account", "deposit",
+					"RandoopTest0.java", "test9"));
+			occurrences.add(postcondition("Account", "deposit",
+					"RandoopTest0.java", "test2"));
+			Collections.rotate(occurrences, i);
+			if (i >= 3)
+				Collections.swap(occurrences, 0, 1);
+			for (Nonconformance nc : occurrences)
+				registry.register(nc);
+			Nonconformance nc = only(registry.getNonconformances());
+			assertEquals("RandoopTest0.java", nc.getTestFile());
+			assertEquals("test2", nc.getNumberedTest());
+			assertTrue(nc.getErrorMessage().contains(
+					"RandoopTest0.test2(RandoopTest0.java:12)"));
+			assertEquals(3, nc.getOccurrences());
+		}
+	}
+
+	@Test
+	public void earliestOccurrenceForgetsTheCategorization() {
+		NonconformanceRegistry registry = new NonconformanceRegistry();
+		Nonconformance first = postcondition("Account", "deposit",
+				"RandoopTest1.java", "test1");
+		registry.register(first);
+		first.setCause("Weak precondition");
+		registry.register(postcondition("Account", "deposit",
+				"RandoopTest0.java", "test1"));
+		only(registry.getNonconformances());
+		assertEquals("RandoopTest0.java", first.getTestFile());
+		assertEquals("", first.getCause());
+		assertEquals(2, first.getOccurrences());
+	}
+
+	@Test
+	public void laterOccurrenceKeepsTheCategorization() {
+		NonconformanceRegistry registry = new NonconformanceRegistry();
+		Nonconformance first = postcondition("Account", "deposit",
+				"RandoopTest0.java", "test1");
+		registry.register(first);
+		first.setCause("Weak precondition");
+		registry.register(postcondition("Account", "deposit",
+				"RandoopTest1.java", "test1"));
+		only(registry.getNonconformances());
+		assertEquals("RandoopTest0.java", first.getTestFile());
+		assertEquals("Weak precondition", first.getCause());
+	}
+
+	@Test
+	public void copyOccurrenceTakesTheDataOfTheOtherTest() {
+		Nonconformance nc = postcondition("Account", "deposit",
+				"RandoopTest1.java", "test7");
+		nc.setOccurrences(4);
+		nc.setStackTraceOrder(new ArrayList<String>());
+		Nonconformance other = postcondition("Account", "deposit",
+				"RandoopTest0.java", "test3");
+		other.setStackTraceOrder(new ArrayList<String>());
+		nc.copyOccurrence(other);
+		assertEquals("RandoopTest0.java", nc.getTestFile());
+		assertEquals("test3", nc.getNumberedTest());
+		assertEquals(other.getErrorMessage(), nc.getErrorMessage());
+		assertEquals(other.getIdentifier(), nc.getIdentifier());
+		assertEquals(Arrays.asList("bank.Account.deposit",
+				"RandoopTest0.test3"), nc.getStackTraceOrder());
+		assertNotSame(other.getStackTraceOrder(), nc.getStackTraceOrder());
+		assertEquals(4, nc.getOccurrences());
+	}
+
+	@Test
+	public void concurrentRegistersAreAllCounted() throws InterruptedException {
+		final NonconformanceRegistry registry = new NonconformanceRegistry();
+		final AtomicInteger firsts = new AtomicInteger();
+		final int tests = 200;
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < tests; i++) {
+						Nonconformance nc = postcondition("Account",
+								"method" + (i % 5), "RandoopTest" + thread
+										+ ".java", "test" + i);
+						if (registry.register(nc))
+							firsts.incrementAndGet();
+					}
+				}
+			};
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(5, registry.size());
+		assertEquals(5, firsts.get());
+		int occurrences = 0;
+		for (Nonconformance nc : registry.getNonconformances()) {
+			occurrences += nc.getOccurrences();
+			assertEquals("RandoopTest0.java", nc.getTestFile());
+		}
+		assertEquals(threads.length * tests, occurrences);
+	}
+}
@@ -0,0 +1,64 @@
+package utils.detect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+/**
+ * Tests of the normalization of the test bodies by TestDeduplicator: two
+ * tests are equal only when their normalized bodies are equal.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class TestDeduplicatorTest {
+
+	@Test
+	public void blankSpacesAreCollapsed() {
+		assertEquals("int v0 = 2 ; foo(v0);",
+				TestDeduplicator.normalize("\n    int  x1 =  2 ;\n\tfoo(x1);\n  "));
+	}
+
+	@Test
+	public void commentsAreRemoved() {
+		assertEquals(TestDeduplicator.normalize("foo(1);\nbar(2);"),
+				TestDeduplicator.normalize("// first\nfoo(1); /* then\n */ bar(2); // end"));
+	}
+
+	@Test
+	public void localVariablesAreRenamedByOrder() {
+		assertEquals(
+				TestDeduplicator.normalize("java.lang.String str0 = \"a\";\n"
+						+ "int i1 = str0.length();"),
+				TestDeduplicator.normalize("java.lang.String str5 = \"a\";\n"
+						+ "int i9 = str5.length();"));
+		assertEquals("foo(v0, v0);", TestDeduplicator.normalize("foo(x3, x3);"));
+		assertEquals("foo(v0, v1);", TestDeduplicator.normalize("foo(x3, y4);"));
+	}
+
+	@Test
+	public void membersAndTypesAreNotRenamed() {
+		assertEquals("Type1 v0 = Type1.field2; v0.call3();",
+				TestDeduplicator.normalize("Type1 var7 = Type1.field2; var7.call3();"));
+	}
+
+	@Test
+	public void literalsAreKept() {
+		assertEquals("foo(\"x1 // y2 /* z3 */\", v0,'a');",
+				TestDeduplicator.normalize("foo(\"x1 // y2 /* z3 */\",  x1,'a');"));
+		assertEquals("foo(\"a \\\" b1\");",
+				TestDeduplicator.normalize("foo(\"a \\\" b1\");"));
+		assertFalse(TestDeduplicator.normalize("foo(\"a\");").equals(
+				TestDeduplicator.normalize("foo(\"b\");")));
+	}
+
+	@Test
+	public void debugPrintsAreRemoved() {
+		assertEquals("foo(v0);", TestDeduplicator.normalize(
+				"if (debug) { System.out.println(\"%%%% test1\"); }\nfoo(x0);"));
+		assertEquals("foo(v0);", TestDeduplicator.normalize(
+				"if (debug) System.out.println();\nfoo(x0);"));
+	}
+}
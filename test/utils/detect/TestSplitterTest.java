@@ -0,0 +1,148 @@
+package utils.detect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the split of the test classes by TestSplitter: each test method
+ * must be kept once, at the line it had, and the suites must reference all
+ * parts of the classes split.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class TestSplitterTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private File testDir;
+
+	@Before
+	public void createTestDir() throws IOException {
+		testDir = File.createTempFile("splitter", "");
+		assertTrue(testDir.delete() && testDir.mkdir());
+	}
+
+	@After
+	public void deleteTestDir() throws IOException {
+		FileUtils.deleteDirectory(testDir);
+	}
+
+	private static String testClass(String name, int tests) {
+		StringBuilder code = new StringBuilder();
+		code.append("import junit.framework.*;\n\n");
+		code.append("public class ").append(name)
+				.append(" extends TestCase {\n\n");
+		code.append("  public static boolean debug = false;\n\n");
+		for (int i = 1; i <= tests; i++) {
+			code.append("  public void test").append(i)
+					.append("() throws Throwable {\n");
+			code.append("    java.lang.String str0 = \"").append(name)
+					.append(" ").append(i).append("\";\n");
+			code.append("    assertNotNull(str0);\n");
+			code.append("  }\n\n");
+		}
+		code.append("}\n");
+		return code.toString();
+	}
+
+	private File write(String name, String code) throws IOException {
+		File file = new File(testDir, name + ".java");
+		FileUtils.writeStringToFile(file, code, UTF_8);
+		return file;
+	}
+
+	private String read(String name) throws IOException {
+		return FileUtils.readFileToString(new File(testDir, name + ".java"),
+				UTF_8);
+	}
+
+	private static int lineOf(String code, String text) {
+		int index = code.indexOf(text);
+		assertTrue(text, index >= 0);
+		int line = 1;
+		for (int i = 0; i < index; i++) {
+			if (code.charAt(i) == '\n')
+				line++;
+		}
+		return line;
+	}
+
+	private static int count(String code, String text) {
+		int count = 0;
+		for (int i = code.indexOf(text); i >= 0; i = code.indexOf(text, i + 1))
+			count++;
+		return count;
+	}
+
+	@Test
+	public void smallClassIsNotSplit() throws IOException {
+		String code = testClass("RandoopTest0", 4);
+		write("RandoopTest0", code);
+		assertEquals(0, new TestSplitter(code.length()).split(testDir));
+		assertEquals(code, read("RandoopTest0"));
+		assertEquals(1, testDir.list().length);
+	}
+
+	@Test
+	public void largeClassIsSplitKeepingTheLines() throws IOException {
+		String code = testClass("RandoopTest0", 6);
+		write("RandoopTest0", code);
+		int size = code.indexOf("  public void test4") - code.indexOf("  public void test1");
+		assertEquals(1, new TestSplitter(size).split(testDir));
+		String first = read("RandoopTest0");
+		String second = read("RandoopTest0_1");
+		assertTrue(second.contains("public class RandoopTest0_1 extends TestCase"));
+		for (int i = 1; i <= 6; i++) {
+			String test = "public void test" + i + "()";
+			String part = (i <= 3) ? first : second;
+			assertEquals(1, count(part, test));
+			assertEquals(0, count((i <= 3) ? second : first, test));
+			assertEquals(lineOf(code, test), lineOf(part, test));
+		}
+	}
+
+	@Test
+	public void classIsNeverSplitInMorePartsThanTests() throws IOException {
+		write("RandoopTest0", testClass("RandoopTest0", 3));
+		assertEquals(2, new TestSplitter(1).split(testDir));
+		assertEquals(3, testDir.list().length);
+	}
+
+	@Test
+	public void suitesReferenceAllParts() throws IOException {
+		String code = testClass("RandoopTest0", 4);
+		write("RandoopTest0", code);
+		write("RandoopTest1", testClass("RandoopTest1", 1));
+		write("RandoopTest", "import junit.framework.*;\n\n"
+				+ "public class RandoopTest extends TestCase {\n\n"
+				+ "  public static Test suite() {\n"
+				+ "    TestSuite result = new TestSuite();\n"
+				+ "    result.addTest(new TestSuite(RandoopTest0.class));\n"
+				+ "    result.addTest(new TestSuite(RandoopTest1.class));\n"
+				+ "    return result;\n  }\n}\n");
+		write("RandoopSuite", "import org.junit.runner.RunWith;\n"
+				+ "import org.junit.runners.Suite;\n\n"
+				+ "@RunWith(Suite.class)\n"
+				+ "@Suite.SuiteClasses({ RandoopTest0.class, RandoopTest1.class })\n"
+				+ "public class RandoopSuite {\n}\n");
+		int size = code.indexOf("  public void test3") - code.indexOf("  public void test1");
+		assertEquals(1, new TestSplitter(size).split(testDir));
+		String suite = read("RandoopTest");
+		assertTrue(suite.contains("    result.addTest(new TestSuite(RandoopTest0.class));\n"
+				+ "    result.addTest(new TestSuite(RandoopTest0_1.class));\n"
+				+ "    result.addTest(new TestSuite(RandoopTest1.class));\n"));
+		assertTrue(read("RandoopSuite").contains(
+				"@Suite.SuiteClasses({ RandoopTest0.class, RandoopTest0_1.class, RandoopTest1.class })"));
+		assertFalse(read("RandoopTest1").contains("RandoopTest0"));
+	}
+}
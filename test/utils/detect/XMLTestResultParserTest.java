@@ -0,0 +1,194 @@
+package utils.detect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import utils.datastructure.Nonconformance;
+
+/**
+ * Tests of the reading of the JUnit result files by XMLTestResultParser,
+ * which must find the same errors the whole document read by DOM has, with
+ * no need to read the output of the tests.
+ *
+ * @author Alysson Milanez and Dennis Sousa.
+ * @version 1.0
+ *
+ */
+public class XMLTestResultParserTest {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String POSTCONDITION = "org.jmlspecs.jmlrac.runtime.JMLExitNormalPostconditionError";
+	private File report;
+
+	@Before
+	public void createReport() throws IOException {
+		report = File.createTempFile("TEST-RandoopTest", ".xml");
+	}
+
+	@After
+	public void deleteReport() {
+		report.delete();
+	}
+
+	private static String error(String type, String message, String detail) {
+		return "    <error message=\"" + message + "\" type=\"" + type
+				+ "\">" + detail + "</error>\n";
+	}
+
+	private static String testCase(String className, String name,
+			String... errors) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("  <testcase classname=\"").append(className)
+				.append("\" name=\"").append(name)
+				.append("\" time=\"0.001\"");
+		if (errors.length == 0)
+			return xml.append(" />\n").toString();
+		xml.append(">\n");
+		for (String error : errors)
+			xml.append(error);
+		return xml.append("  </testcase>\n").toString();
+	}
+
+	private void write(String... testCases) throws IOException {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+		xml.append("<testsuite errors=\"2\" failures=\"0\" name=\"RandoopTest\" tests=\"4\">\n");
+		xml.append("  <properties>\n    <property name=\"java.version\" value=\"1.7\" />\n  </properties>\n");
+		for (String testCase : testCases)
+			xml.append(testCase);
+		xml.append("  <system-out><![CDATA[");
+		for (int i = 0; i < 20000; i++)
+			xml.append("<error type=\"").append(POSTCONDITION)
+					.append("\">output of the tests</error>\n");
+		xml.append("]]>");
+		xml.append(error(POSTCONDITION,
+				"by method Account.deposit regarding line 10, (Account.java:10)",
+				"\tat bank.Account.deposit(Account.java:25)\n"));
+		xml.append("</system-out>\n");
+		xml.append("  <system-err>&lt;testcase name=\"fake\"&gt;</system-err>\n");
+		xml.append("</testsuite>\n");
+		FileUtils.writeStringToFile(report, xml.toString(), UTF_8);
+	}
+
+	private List<Nonconformance> parse() throws IOException {
+		final List<Nonconformance> errors = new ArrayList<Nonconformance>();
+		new XMLTestResultParser().parse(report, new TestResultListener() {
+			@Override
+			public void errorFound(Nonconformance error) {
+				errors.add(error);
+			}
+		});
+		return errors;
+	}
+
+	/**
+	 * The errors of the report as they were read from the whole document.
+	 */
+	private List<Nonconformance> parseDocument() throws Exception {
+		List<Nonconformance> errors = new ArrayList<Nonconformance>();
+		Document doc = DocumentBuilderFactory.newInstance()
+				.newDocumentBuilder().parse(report);
+		NodeList testCases = doc.getElementsByTagName("testcase");
+		for (int i = 0; i < testCases.getLength(); i++) {
+			Element testCase = (Element) testCases.item(i);
+			NodeList children = testCase.getChildNodes();
+			for (int j = 0; j < children.getLength(); j++) {
+				Node child = children.item(j);
+				if (child.getNodeType() != Node.ELEMENT_NODE
+						|| !child.getNodeName().equals("error"))
+					continue;
+				Element problem = (Element) child;
+				errors.add(new Nonconformance(testCase.getAttribute("name"),
+						testCase.getAttribute("classname") + ".java", problem
+								.getAttribute("message"), problem
+								.getAttribute("type"), problem
+								.getTextContent()));
+			}
+		}
+		return errors;
+	}
+
+	private static void assertSameError(Nonconformance expected,
+			Nonconformance actual) {
+		assertEquals(expected.getNumberedTest(), actual.getNumberedTest());
+		assertEquals(expected.getTestFile(), actual.getTestFile());
+		assertEquals(expected.getType(), actual.getType());
+		assertEquals(expected.isNonconformance(), actual.isNonconformance());
+		assertEquals(expected.getErrorMessage(), actual.getErrorMessage());
+		if (expected.isNonconformance())
+			assertEquals(expected.getIdentifier(), actual.getIdentifier());
+	}
+
+	@Test
+	public void errorsAreTheSameOfTheDocument() throws Exception {
+		write(testCase("RandoopTest0", "test1"),
+				testCase("RandoopTest0", "test2", error(POSTCONDITION,
+						"by method Account.deposit regarding line 10, (Account.java:10)",
+						"\n\tat bank.Account.deposit(Account.java:25)\n"
+								+ "\tat RandoopTest0.test2(RandoopTest0.java:12)\n")),
+				testCase("RandoopTest1", "test1", error(
+						"java.lang.NullPointerException", "",
+						"java.lang.NullPointerException\n"
+								+ "\tat RandoopTest1.test1(RandoopTest1.java:8)\n")),
+				testCase("RandoopTest1", "test2", error(POSTCONDITION,
+						"by method Account.withdraw regarding line 14, (Account.java:14)",
+						"<![CDATA[\n\tat bank.Account.withdraw(Account.java:31)\n"
+								+ "\tat RandoopTest1.test2(RandoopTest1.java:20)\n]]>")));
+		List<Nonconformance> expected = parseDocument();
+		List<Nonconformance> actual = parse();
+		assertEquals(3, expected.size());
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertSameError(expected.get(i), actual.get(i));
+	}
+
+	@Test
+	public void errorIsReadWithItsTest() throws IOException {
+		write(testCase("RandoopTest1", "test2", error(POSTCONDITION,
+				"by method Account.withdraw regarding line 14, (Account.java:14)",
+				"\n\tat bank.Account.withdraw(Account.java:31)\n"
+						+ "\tat RandoopTest1.test2(RandoopTest1.java:20)\n")));
+		List<Nonconformance> errors = parse();
+		assertEquals(1, errors.size());
+		Nonconformance nc = errors.get(0);
+		assertTrue(nc.isNonconformance());
+		assertEquals("test2", nc.getNumberedTest());
+		assertEquals("RandoopTest1.java", nc.getTestFile());
+		assertEquals("bank", nc.getPackageName());
+		assertEquals("Account", nc.getClassName());
+		assertEquals("withdraw", nc.getMethodName());
+		assertEquals(14, nc.getLineNumberOnJavaThatRevealsNC());
+		assertEquals("\n\tat bank.Account.withdraw(Account.java:31)\n"
+				+ "\tat RandoopTest1.test2(RandoopTest1.java:20)\n",
+				nc.getErrorMessage());
+	}
+
+	@Test
+	public void outputOfTheTestsIsSkipped() throws IOException {
+		write(testCase("RandoopTest0", "test1"));
+		assertEquals(0, parse().size());
+	}
+
+	@Test(expected = IOException.class)
+	public void malformedReportIsAnIOException() throws IOException {
+		FileUtils.writeStringToFile(report,
+				"<testsuite><testcase name=\"test1\">", UTF_8);
+		parse();
+	}
+}